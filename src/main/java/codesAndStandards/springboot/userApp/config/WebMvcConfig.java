@@ -1,5 +1,6 @@
 package codesAndStandards.springboot.userApp.config;
 
+import codesAndStandards.springboot.userApp.interceptor.DocumentAccessInterceptor;
 import codesAndStandards.springboot.userApp.interceptor.LicenseInterceptor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Configuration;
@@ -12,6 +13,9 @@ public class WebMvcConfig implements WebMvcConfigurer {
     @Autowired
     private LicenseInterceptor licenseInterceptor;
 
+    @Autowired
+    private DocumentAccessInterceptor documentAccessInterceptor;
+
     @Override
     public void addInterceptors(InterceptorRegistry registry) {
         registry.addInterceptor(licenseInterceptor)
@@ -22,5 +26,16 @@ public class WebMvcConfig implements WebMvcConfigurer {
                         "/login",                         // Don't check login page
                         "/register"                       // Don't check register page
                 );
+
+        registry.addInterceptor(documentAccessInterceptor)
+                .addPathPatterns(                     // Endpoints that serve document bytes
+                        "/documents/DocView/*",
+                        "/documents/DocViewer-view/*",
+                        "/documents/download/*",
+                        "/documents/*/thumbnail",
+                        "/documents/*/preview/*",
+                        "/documents/*/pages",
+                        "/documents/*/page/*"
+                );
     }
 }
\ No newline at end of file
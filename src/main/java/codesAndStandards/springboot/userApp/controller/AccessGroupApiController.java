@@ -1,6 +1,7 @@
 package codesAndStandards.springboot.userApp.controller;
 
 import codesAndStandards.springboot.userApp.dto.*;
+import codesAndStandards.springboot.userApp.service.DocumentAccessService;
 import codesAndStandards.springboot.userApp.service.GroupService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -22,6 +23,7 @@ import java.util.Map;
 public class AccessGroupApiController {
 
     private final GroupService groupService;
+    private final DocumentAccessService documentAccessService;
 
     /**
      * Get all groups
@@ -40,6 +42,23 @@ public class AccessGroupApiController {
         }
     }
 
+    /**
+     * Get one page of groups with counts, searched by name or description
+     * GET /api/access-groups/page?search=&page=0&size=50
+     */
+    @GetMapping("/page")
+    @PreAuthorize("hasAnyAuthority('Admin', 'Manager', 'User')")
+    public ResponseEntity<GroupListPage> getGroupsPage(@RequestParam(required = false) String search,
+                                                       @RequestParam(defaultValue = "0") int page,
+                                                       @RequestParam(defaultValue = "50") int size) {
+        try {
+            return ResponseEntity.ok(groupService.getGroupsPage(search, page, size));
+        } catch (Exception e) {
+            log.error("Error fetching groups page", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
     /**
      * Get group by ID
      * GET /api/access-groups/{id}
@@ -64,6 +83,46 @@ public class AccessGroupApiController {
         }
     }
 
+    /**
+     * Get one page of a group's members
+     * GET /api/access-groups/{id}/members?search=&page=0&size=50
+     */
+    @GetMapping("/{id}/members")
+    @PreAuthorize("hasAnyAuthority('Admin', 'Manager', 'User')")
+    public ResponseEntity<?> getGroupMembers(@PathVariable Long id,
+                                             @RequestParam(required = false) String search,
+                                             @RequestParam(defaultValue = "0") int page,
+                                             @RequestParam(defaultValue = "50") int size) {
+        try {
+            return ResponseEntity.ok(groupService.getGroupMembers(id, search, page, size));
+        } catch (RuntimeException e) {
+            log.error("Error fetching members of group {}", id, e);
+            Map<String, String> error = new HashMap<>();
+            error.put("message", e.getMessage());
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(error);
+        }
+    }
+
+    /**
+     * Get one page of a group's documents
+     * GET /api/access-groups/{id}/documents?search=&page=0&size=50
+     */
+    @GetMapping("/{id}/documents")
+    @PreAuthorize("hasAnyAuthority('Admin', 'Manager', 'User')")
+    public ResponseEntity<?> getGroupDocuments(@PathVariable Long id,
+                                               @RequestParam(required = false) String search,
+                                               @RequestParam(defaultValue = "0") int page,
+                                               @RequestParam(defaultValue = "50") int size) {
+        try {
+            return ResponseEntity.ok(groupService.getGroupDocuments(id, search, page, size));
+        } catch (RuntimeException e) {
+            log.error("Error fetching documents of group {}", id, e);
+            Map<String, String> error = new HashMap<>();
+            error.put("message", e.getMessage());
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(error);
+        }
+    }
+
     /**
      * Create new group
      * POST /api/access-groups
@@ -196,6 +255,37 @@ public class AccessGroupApiController {
         }
     }
 
+    /**
+     * Check a user's access to many documents in one call
+     * POST /api/access-groups/check-access/batch   { "userId": 1, "documentIds": [10, 11, 12] }
+     */
+    @PostMapping("/check-access/batch")
+    @PreAuthorize("hasAnyAuthority('Admin', 'Manager', 'User')")
+    public ResponseEntity<?> checkAccessBatch(@RequestBody BatchAccessCheckRequestDTO request) {
+        int requested = request.getDocumentIds() != null ? request.getDocumentIds().size() : 0;
+        log.info("REST request to check access for user {} to {} documents", request.getUserId(), requested);
+        Map<String, String> error = new HashMap<>();
+        if (request.getUserId() == null) {
+            error.put("message", "userId is required");
+            return ResponseEntity.badRequest().body(error);
+        }
+        try {
+            Map<Long, Boolean> access = documentAccessService.checkAccess(request.getUserId(), request.getDocumentIds());
+            return ResponseEntity.ok(BatchAccessCheckDTO.builder()
+                    .userId(request.getUserId())
+                    .accessibleCount((int) access.values().stream().filter(Boolean::booleanValue).count())
+                    .access(access)
+                    .build());
+        } catch (IllegalArgumentException e) {
+            error.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        } catch (RuntimeException e) {
+            log.warn("Batch access check failed for user {}: {}", request.getUserId(), e.getMessage());
+            error.put("message", e.getMessage());
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(error);
+        }
+    }
+
     /**
      * Get accessible document IDs for a user
      * GET /api/access-groups/accessible-documents/{userId}
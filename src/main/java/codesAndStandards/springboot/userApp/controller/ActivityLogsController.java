@@ -1,12 +1,13 @@
 package codesAndStandards.springboot.userApp.controller;
 
+import codesAndStandards.springboot.userApp.dto.ActivityLogFilter;
+import codesAndStandards.springboot.userApp.dto.ActivityLogPage;
+import codesAndStandards.springboot.userApp.dto.ActivityLogStatsDto;
 import codesAndStandards.springboot.userApp.dto.UserDto;
-import codesAndStandards.springboot.userApp.entity.ActivityLog;
-import codesAndStandards.springboot.userApp.entity.User;
-import codesAndStandards.springboot.userApp.repository.UserRepository;
 import codesAndStandards.springboot.userApp.service.ActivityLogService;
 import codesAndStandards.springboot.userApp.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -15,10 +16,11 @@ import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 
+import java.time.LocalDate;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 
 @Controller
@@ -29,51 +31,71 @@ public class ActivityLogsController {
     @Autowired
     private ActivityLogService activityLogService;
 
-    @Autowired
-    private UserRepository userRepository;
-
     @Autowired
     private UserService userService;
 
     /**
-     * View all activity logs
+     * View activity logs - one keyset page at a time, filtered on the server
      */
     @GetMapping("/activity-logs")
-    public String viewLogs(Model model) {
-        // Get all logs
-        List<ActivityLog> logs = activityLogService.getAllLogs();
-
-        // Get user details for each log
-        Map<Long, User> userMap = new HashMap<>();
-        for (ActivityLog log : logs) {
-            if (log.getUser() != null) { // ✅ Safe check
-                Long userId = log.getUser().getId();
-
-                if (!userMap.containsKey(userId)) {
-                    User user = userRepository.findById(userId).orElse(null);
-                    userMap.put(userId, user);
-                }
-            }
-        }
-
-        // Get statistics
-        Long todayCount = activityLogService.getTodayCount();
-        Long countSuccessLogs = activityLogService.countSuccessLogs();
-        Long countFailedLogs = activityLogService.countFailedLogs();
-
-        // Count download logs (both successful and failed)
-        long countDownloadLogs = logs.stream()     .filter(log -> "DOCUMENT_DOWNLOAD".equals(log.getAction()))     .count();
+    public String viewLogs(@RequestParam(required = false) String user,
+                           @RequestParam(required = false) String action,
+                           @RequestParam(required = false) String outcome,
+                           @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                           @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                           @RequestParam(required = false) Long before,
+                           @RequestParam(defaultValue = "" + ActivityLogService.DEFAULT_PAGE_SIZE) int size,
+                           Model model) {
+        ActivityLogFilter filter = ActivityLogFilter.builder()
+                .username(user)
+                .action(action)
+                .outcome(outcome)
+                .fromDate(from)
+                .toDate(to)
+                .build();
+
+        ActivityLogPage page = activityLogService.getLogsPage(filter, before, size);
+        ActivityLogStatsDto stats = activityLogService.getDashboardStats();
+
+        model.addAttribute("logs", page.getLogs());
+        model.addAttribute("hasMore", page.isHasMore());
+        model.addAttribute("nextBeforeId", page.getNextBeforeId());
+        model.addAttribute("before", before);
+        model.addAttribute("filter", filter);
+        model.addAttribute("pageSize", size);
+        model.addAttribute("actions", stats.getCountsByAction().keySet());
+        model.addAttribute("activeFilter", resolveActiveCard(filter));
+
+        model.addAttribute("todayCount", stats.getTodayCount());
+        model.addAttribute("totalLogs", stats.getTotalLogs());
+        model.addAttribute("countSuccessLogs", stats.getSuccessCount());
+        model.addAttribute("countFailedLogs", stats.getFailedCount());
+        model.addAttribute("countDownloadLogs", stats.getDownloadCount());
 
+        return "activity-logs";
+    }
 
-        model.addAttribute("logs", logs);
-        model.addAttribute("userMap", userMap);
-        model.addAttribute("todayCount", todayCount);
-        model.addAttribute("totalLogs", logs.size());
-        model.addAttribute("countSuccessLogs", countSuccessLogs);
-        model.addAttribute("countFailedLogs", countFailedLogs);
-        model.addAttribute("countDownloadLogs", countDownloadLogs);
+    /** Which stat card (if any) matches the current filter, so the page can highlight it */
+    private String resolveActiveCard(ActivityLogFilter filter) {
+        boolean noUser = filter.getUsername() == null || filter.getUsername().isBlank();
+        boolean noAction = filter.getAction() == null || filter.getAction().isBlank();
+        boolean noOutcome = filter.getOutcome() == null || filter.getOutcome().isBlank();
+        boolean noDates = filter.getFromDate() == null && filter.getToDate() == null;
 
-        return "activity-logs";
+        if (noUser && noAction && noDates && ActivityLogService.OUTCOME_SUCCESS.equalsIgnoreCase(filter.getOutcome())) {
+            return "success";
+        }
+        if (noUser && noAction && noDates && ActivityLogService.OUTCOME_FAILED.equalsIgnoreCase(filter.getOutcome())) {
+            return "failures";
+        }
+        if (noUser && noOutcome && noDates && ActivityLogService.DOCUMENT_DOWNLOAD.equals(filter.getAction())) {
+            return "downloads";
+        }
+        LocalDate today = LocalDate.now();
+        if (noUser && noAction && noOutcome && today.equals(filter.getFromDate()) && today.equals(filter.getToDate())) {
+            return "today";
+        }
+        return (noUser && noAction && noOutcome && noDates) ? "all" : "";
     }
 
     @GetMapping("/apis/users/{userId}")
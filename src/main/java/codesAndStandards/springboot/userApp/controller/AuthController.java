@@ -2,8 +2,12 @@ package codesAndStandards.springboot.userApp.controller;
 
 import codesAndStandards.springboot.userApp.dto.*;
 import codesAndStandards.springboot.userApp.entity.AccessControlLogic;
+import codesAndStandards.springboot.userApp.entity.Document;
+import codesAndStandards.springboot.userApp.entity.DocumentProfile;
+import codesAndStandards.springboot.userApp.exception.TooManyRequestsException;
 import codesAndStandards.springboot.userApp.entity.User;
 import codesAndStandards.springboot.userApp.entity.Role;
+import codesAndStandards.springboot.userApp.event.UserAccountChangedEvent;
 import codesAndStandards.springboot.userApp.repository.AccessControlLogicRepository;
 import codesAndStandards.springboot.userApp.repository.RoleRepository;
 import codesAndStandards.springboot.userApp.repository.UserRepository;
@@ -11,9 +15,13 @@ import codesAndStandards.springboot.userApp.service.*;
 import codesAndStandards.springboot.userApp.service.Impl.UserServiceImpl;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -25,7 +33,10 @@ import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.security.Principal;
+import java.time.LocalDate;
+import java.time.ZoneId;
 import java.util.*;
 
 import org.slf4j.Logger;
@@ -33,12 +44,17 @@ import org.slf4j.LoggerFactory;
 
 import org.springframework.web.multipart.MultipartFile;
 
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.InputStreamResource;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.UrlResource;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.CacheControl;
 import org.springframework.http.MediaType;
 
 import org.springframework.http.ResponseEntity;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.stream.Collectors;
@@ -154,16 +170,16 @@ public class AuthController {
     @PreAuthorize("hasAuthority('Admin')")
     @GetMapping("/users")
     public String users(Model model) {
-        List<UserDto> users = userService.findAllUsers();
+        // Rows are loaded by the page from /api/users/page; only the counts are rendered here
         List<Role> roles = roleRepository.findAll();
 
         // Calculate statistics
-        long totalUsers = users.size();
-        long adminCount = users.stream().filter(u -> "Admin".equals(u.getRoleName())).count();
-        long managerCount = users.stream().filter(u -> "Manager".equals(u.getRoleName())).count();
-        long viewerCount = users.stream().filter(u -> "Viewer".equals(u.getRoleName())).count();
+        Map<String, Long> roleCounts = userService.countUsersByRole();
+        long totalUsers = roleCounts.values().stream().mapToLong(Long::longValue).sum();
+        long adminCount = roleCounts.getOrDefault("Admin", 0L);
+        long managerCount = roleCounts.getOrDefault("Manager", 0L);
+        long viewerCount = roleCounts.getOrDefault("Viewer", 0L);
 
-        model.addAttribute("users", users);
         model.addAttribute("roles", roles);
         model.addAttribute("user", new UserDto());
 
@@ -462,6 +478,9 @@ public class AuthController {
     @Autowired
     private PasswordEncoder passwordEncoder;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     @PostMapping("/profile/update")
     public String updateProfile(@Valid @ModelAttribute("user") UserDto userDto,
                                 BindingResult result,
@@ -537,6 +556,7 @@ public class AuthController {
 //            loggedInUser.setMobile(userDto.getMobile());
 
             userRepository.save(loggedInUser);
+            eventPublisher.publishEvent(new UserAccountChangedEvent(username));
 
             activityLogService.logByUsername(username, ActivityLogService.EDIT_PROFILE, "Profile updated successfully");
             redirectAttributes.addFlashAttribute("success", "Profile updated successfully!");
@@ -1153,18 +1173,50 @@ public class AuthController {
     @Autowired
     private WatermarkService watermarkService;
 
-    //Viewing any document(all have permission for this) -AJ
-    @PreAuthorize("hasAnyAuthority('Manager', 'Admin','Viewer')")
+    @Autowired
+    private DocumentUsageService documentUsageService;
+
+    @Autowired
+    private PdfWorkPool pdfWorkPool;
+
+    @Autowired
+    private WatermarkedFileCache watermarkedFileCache;
+
+    @Autowired
+    private DocumentPackageService documentPackageService;
+
+    @Autowired
+    private LinearizationService linearizationService;
+
+    @Autowired
+    private DocumentProfileService documentProfileService;
+
+    //Viewing any document -AJ
+    //Viewers only ever get server-rendered page images (DocumentRenditionController), never the PDF
+    @PreAuthorize("hasAnyAuthority('Manager', 'Admin')")
     @GetMapping("/documents/DocView/{id}")
-    public ResponseEntity<Resource> viewDocument(@PathVariable Long id) {
+    public ResponseEntity<Resource> viewDocument(@PathVariable Long id,
+                                                 @RequestHeader(value = HttpHeaders.RANGE, required = false) String range,
+                                                 WebRequest webRequest) {
         try {
             String filePath = documentService.getFilePath(id);
-            Path path = Paths.get(filePath);
+            // Prefer the linearized copy: with range requests the viewer can draw page 1 early
+            Path webCopy = linearizationService.getWebOptimizedCopy(id);
+
+            DocumentProfile profile = documentProfileService.findCurrent(id, filePath).orElse(null);
+            String etag = documentETag(profile, webCopy);
+            if (etag != null && webRequest.checkNotModified(etag, documentLastModified(profile))) {
+                return null;
+            }
+
+            Path path = webCopy != null ? webCopy : Paths.get(filePath);
             Resource resource = new UrlResource(path.toUri());
 
             if (resource.exists() && resource.isReadable()) {
-                return ResponseEntity.ok()
-                        .contentType(MediaType.APPLICATION_PDF)
+                if (range == null) {
+                    documentUsageService.recordView(id);
+                }
+                return pdfResponse(etag, profile)
                         .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + resource.getFilename() + "\"")
                         .body(resource);
             } else {
@@ -1177,31 +1229,81 @@ public class AuthController {
     }
 
 
-    @PreAuthorize("hasAnyAuthority('Manager', 'Admin','Viewer')")
+    @PreAuthorize("hasAnyAuthority('Manager', 'Admin')")
     @GetMapping("/documents/DocViewer-view/{id}")
-    public ResponseEntity<byte[]> viewDocumentForViewer(@PathVariable Long id, Principal principal) {
+    public ResponseEntity<Resource> viewDocumentForViewer(@PathVariable Long id,
+                                                          @RequestHeader(value = HttpHeaders.RANGE, required = false) String range,
+                                                          WebRequest webRequest) {
         try {
-            DocumentDto document = documentService.findDocumentById(id);
-
             String filePath = documentService.getFilePath(id);
-            logger.info("Loading PDF from network share: {}", filePath);
+            Path webCopy = linearizationService.getWebOptimizedCopy(id);
+
+            // Reopening an unchanged document is answered with 304 from the database, without the share
+            DocumentProfile profile = documentProfileService.findCurrent(id, filePath).orElse(null);
+            String etag = documentETag(profile, webCopy);
+            if (etag != null && webRequest.checkNotModified(etag, documentLastModified(profile))) {
+                return null;
+            }
 
-            byte[] pdfBytes = networkFileService.readFileFromNetworkShare(filePath);
+            // Linearized copy on local disk: served with range support, so pdf.js only fetches what it draws
+            if (webCopy != null) {
+                if (range == null) {
+                    documentUsageService.recordView(id);
+                }
+                return pdfResponse(etag, profile).body(new FileSystemResource(webCopy));
+            }
 
-            logger.info("Successfully loaded PDF, size: {} bytes", pdfBytes.length);
+            // No local copy: stream the original once. An InputStreamResource is never split into
+            // ranges (no Accept-Ranges), so pdf.js reads it in one request instead of re-reading
+            // the whole file from the share for every 64 KB chunk
+            logger.info("Streaming PDF from network share: {}", filePath);
+            documentUsageService.recordView(id);
 
-            return ResponseEntity.ok()
-                    .contentType(MediaType.APPLICATION_PDF)
-                    .header(HttpHeaders.CACHE_CONTROL, "no-store, no-cache, must-revalidate")
-                    .header(HttpHeaders.CONTENT_LENGTH, String.valueOf(pdfBytes.length))
-                    .body(pdfBytes);
+            return pdfResponse(etag, profile).body(new InputStreamResource(networkFileService.openFileStream(filePath)));
 
         } catch (Exception e) {
             logger.error("Failed to view document for viewer", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .contentType(MediaType.TEXT_PLAIN)
-                    .body(("Error loading PDF: " + e.getMessage()).getBytes());
+                    .body(new ByteArrayResource(("Error loading PDF: " + e.getMessage()).getBytes()));
+        }
+    }
+
+    //    Validators for the document byte endpoints come from the ingest profile (content hash and
+    //    file time), so they are known without opening the file. Until a document has been profiled
+    //    there is no validator and the file is simply sent again.
+    private String documentETag(DocumentProfile profile, Path webCopy) {
+        if (profile == null || profile.getContentHash() == null) {
+            return null;
+        }
+        // The linearized copy has different bytes from the original, so it gets its own tag
+        String tag = profile.getContentHash().substring(0, 32);
+        if (webCopy != null) {
+            tag += "-" + webCopy.getFileName().toString().replace(".pdf", "");
+        }
+        return "\"" + tag + "\"";
+    }
+
+    private long documentLastModified(DocumentProfile profile) {
+        if (profile == null || profile.getFileLastModified() == null) {
+            return -1;
+        }
+        return profile.getFileLastModified().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    //    Private to the signed-in user, and revalidated on every open (a 304 when unchanged)
+    private ResponseEntity.BodyBuilder pdfResponse(String etag, DocumentProfile profile) {
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_PDF)
+                .cacheControl(CacheControl.noCache().cachePrivate());
+        if (etag != null) {
+            builder.eTag(etag);
+            long lastModified = documentLastModified(profile);
+            if (lastModified > 0) {
+                builder.lastModified(lastModified);
+            }
         }
+        return builder;
     }
 
 // ================== SECURE PDF VIEWER API ================== -AJ
@@ -1248,6 +1350,8 @@ public class AuthController {
             model.addAttribute("document", document);
             model.addAttribute("userRole", userRole);
             model.addAttribute("username", user.getUsername());
+            // Range requests only pay off when there is a local linearized copy to serve them from
+            model.addAttribute("rangeRequests", linearizationService.getWebOptimizedCopy(id) != null);
 
             logger.info("Document title: " + document.getTitle());
             logger.info("Document product code: " + document.getProductCode());
@@ -1298,9 +1402,11 @@ public class AuthController {
 
 
     //    Download with watermark(username and timestamp) -AJ
+    //    Streams share -> PDFBox (bounded scratch buffer) -> servlet output; the file is never held in heap
     @PreAuthorize("hasAnyAuthority('Manager', 'Admin')")
     @GetMapping("/documents/download/{id}")
-    public ResponseEntity<byte[]> downloadDocument(@PathVariable Long id, Principal principal) {
+    public void downloadDocument(@PathVariable Long id, Principal principal,
+                                 HttpServletRequest request, HttpServletResponse response) throws IOException {
         String username = principal != null ? principal.getName() : "Unknown";
 
         try {
@@ -1308,17 +1414,49 @@ public class AuthController {
             String filePath = documentService.getFilePath(id);
             logger.info("Downloading and watermarking document: {} for user: {}", document.getTitle(), username);
 
-            // Read original PDF from network share
-            byte[] originalPdfBytes = networkFileService.readFileFromNetworkShare(filePath);
-            logger.info("Original PDF loaded, size: {} bytes", originalPdfBytes.length);
-
-            // Add watermark
-            byte[] watermarkedPdfBytes = watermarkService.addWatermarkToPdf(originalPdfBytes, username);
-
             // Prepare filename
             String filename = "WATERMARKED_" + document.getTitle() + ".pdf";
 
-            logger.info("Downloaded PDF with watermark successfully, size: {} bytes", watermarkedPdfBytes.length);
+            response.setContentType(MediaType.APPLICATION_PDF_VALUE);
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"");
+
+            // Known from ingest: a password-protected PDF cannot be watermarked, so don't fetch it from the share
+            if (documentProfileService.findCurrent(id, filePath)
+                    .map(DocumentProfile::getPasswordRequired).filter(Boolean.TRUE::equals).isPresent()) {
+                throw new IllegalStateException("Document is password protected and cannot be watermarked");
+            }
+
+            // Repeat downloads within the cache window reuse the watermarked copy on local disk
+            Path cachedCopy = watermarkedFileCache.isEnabled()
+                    ? watermarkedFileCache.get(id, username, filePath)
+                    : null;
+
+            // Read original PDF from network share and watermark it.
+            // The CPU-heavy part runs on the bounded PDF pool; a saturated pool answers 429 before any bytes are sent
+            if (cachedCopy == null && watermarkedFileCache.isEnabled()) {
+                cachedCopy = pdfWorkPool.call(username, () ->
+                        watermarkedFileCache.put(id, username, filePath, out -> {
+                            try (InputStream originalPdf = networkFileService.openFileStream(filePath)) {
+                                watermarkService.writeWatermarkedPdf(originalPdf, username, out);
+                            }
+                        }));
+            }
+
+            if (cachedCopy != null) {
+                sendFile(cachedCopy, request, response);
+            } else {
+                // Cache disabled: write the watermarked copy directly to the response
+                pdfWorkPool.call(username, () -> {
+                    try (InputStream originalPdf = networkFileService.openFileStream(filePath)) {
+                        watermarkService.writeWatermarkedPdf(originalPdf, username, response.getOutputStream());
+                    }
+                    return null;
+                });
+                response.flushBuffer();
+            }
+
+            logger.info("Downloaded PDF with watermark successfully: {}", document.getTitle());
+            documentUsageService.recordDownload(id);
 
             // LOG SUCCESS - DOCUMENT_DOWNLOAD
             activityLogService.logByUsername(
@@ -1329,11 +1467,10 @@ public class AuthController {
                             document.getUploadedByUsername())
             );
 
-            return ResponseEntity.ok()
-                    .contentType(MediaType.APPLICATION_PDF)
-                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
-                    .header(HttpHeaders.CONTENT_LENGTH, String.valueOf(watermarkedPdfBytes.length))
-                    .body(watermarkedPdfBytes);
+        } catch (TooManyRequestsException e) {
+            logger.warn("Download of document {} rejected for {}: {}", id, username, e.getMessage());
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()));
+            response.sendError(HttpStatus.TOO_MANY_REQUESTS.value(), e.getMessage());
 
         } catch (Exception e) {
             logger.error("Failed to download and watermark document", e);
@@ -1345,9 +1482,97 @@ public class AuthController {
                     String.format("Failed to download document ID: %d - Error: %s", id, e.getMessage())
             );
 
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .contentType(MediaType.TEXT_PLAIN)
-                    .body(("Error downloading document: " + e.getMessage()).getBytes());
+            // Only possible while nothing has been sent yet; otherwise the client sees a truncated download
+            if (!response.isCommitted()) {
+                response.reset();
+                response.setStatus(HttpStatus.INTERNAL_SERVER_ERROR.value());
+                response.setContentType(MediaType.TEXT_PLAIN_VALUE);
+                response.getOutputStream().write(("Error downloading document: " + e.getMessage()).getBytes());
+            }
+        }
+    }
+
+    //    Download several documents as one ZIP of watermarked PDFs
+    //    Documents are watermarked in parallel on the PDF pool and streamed into the archive as they finish
+    @PreAuthorize("hasAnyAuthority('Manager', 'Admin')")
+    @PostMapping("/documents/download-package")
+    public void downloadPackage(@RequestParam("ids") List<Long> ids, Principal principal,
+                                HttpServletResponse response) throws IOException {
+        String username = principal != null ? principal.getName() : "Unknown";
+
+        try {
+            List<Document> documents = documentPackageService.resolveDocuments(ids);
+            logger.info("Downloading package of {} documents for user: {}", documents.size(), username);
+
+            String filename = "DOCUMENTS_" + LocalDate.now() + ".zip";
+            response.setContentType("application/zip");
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"");
+
+            DocumentPackageService.PackageResult result =
+                    documentPackageService.writePackage(documents, username, response.getOutputStream());
+            response.flushBuffer();
+
+            for (Document document : documents) {
+                documentUsageService.recordDownload(document.getId());
+            }
+
+            // LOG SUCCESS - DOCUMENT_DOWNLOAD
+            activityLogService.logByUsername(
+                    username,
+                    ActivityLogService.DOCUMENT_DOWNLOAD,
+                    String.format("Downloaded package of %d documents: %s%s",
+                            result.getIncluded().size(),
+                            String.join(", ", result.getIncluded()),
+                            result.getFailed().isEmpty() ? "" : " (failed: " + String.join(", ", result.getFailed()) + ")")
+            );
+
+        } catch (TooManyRequestsException e) {
+            logger.warn("Package download rejected for {}: {}", username, e.getMessage());
+            if (!response.isCommitted()) {
+                response.reset();
+                response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()));
+                response.sendError(HttpStatus.TOO_MANY_REQUESTS.value(), e.getMessage());
+            }
+
+        } catch (IllegalArgumentException e) {
+            if (!response.isCommitted()) {
+                response.reset();
+                response.sendError(HttpStatus.BAD_REQUEST.value(), e.getMessage());
+            }
+
+        } catch (Exception e) {
+            logger.error("Failed to download document package", e);
+
+            // LOG FAILURE - DOCUMENT_DOWNLOAD_FAILED
+            activityLogService.logByUsername(
+                    username,
+                    ActivityLogService.DOCUMENT_DOWNLOAD_FAILED,
+                    String.format("Failed to download package of documents %s - Error: %s", ids, e.getMessage())
+            );
+
+            if (!response.isCommitted()) {
+                response.reset();
+                response.sendError(HttpStatus.INTERNAL_SERVER_ERROR.value(), "Error downloading documents: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Send a local file as the response body. On Tomcat's NIO connector the container transfers
+     * it with sendfile after this method returns (kernel copy, no user-space buffer); otherwise
+     * the file is copied to the output stream.
+     */
+    private void sendFile(Path file, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        long length = Files.size(file);
+        response.setContentLengthLong(length);
+
+        if (Boolean.TRUE.equals(request.getAttribute("org.apache.tomcat.sendfile.support"))) {
+            request.setAttribute("org.apache.tomcat.sendfile.filename", file.toAbsolutePath().toString());
+            request.setAttribute("org.apache.tomcat.sendfile.start", 0L);
+            request.setAttribute("org.apache.tomcat.sendfile.end", length);
+        } else {
+            Files.copy(file, response.getOutputStream());
+            response.flushBuffer();
         }
     }
 
@@ -5,6 +5,7 @@ import codesAndStandards.springboot.userApp.dto.DocumentInfoDTO;
 import codesAndStandards.springboot.userApp.entity.Document;
 import codesAndStandards.springboot.userApp.repository.DocumentRepository;
 import codesAndStandards.springboot.userApp.service.DocumentService;
+import codesAndStandards.springboot.userApp.service.DocumentUsageService;
 import codesAndStandards.springboot.userApp.service.LicenseService;
 import codesAndStandards.springboot.userApp.service.UserService;
 import lombok.RequiredArgsConstructor;
@@ -36,6 +37,9 @@ public class DocumentApiController {
     @Autowired
     private LicenseService licenseService;
 
+    @Autowired
+    private DocumentUsageService documentUsageService;
+
     /**
      * Get all documents for access control selection
      * GET /api/documents
@@ -112,6 +116,33 @@ public class DocumentApiController {
         }
     }
 
+    /**
+     * Most viewed / most downloaded documents
+     * GET /api/documents/popular?metric=views|downloads&limit=10
+     * ✅ WITH LICENSE VALIDATION
+     */
+    @GetMapping("/popular")
+    @PreAuthorize("hasAnyAuthority('Admin', 'Manager')")
+    public ResponseEntity<?> getPopularDocuments(@RequestParam(defaultValue = DocumentUsageService.METRIC_VIEWS) String metric,
+                                                 @RequestParam(defaultValue = "10") int limit) {
+        log.info("REST request to get most popular documents by {}", metric);
+
+        // ✅ LICENSE CHECK
+        if (!licenseService.isLicenseValid()) {
+            log.warn("License validation failed for getPopularDocuments");
+            return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                    .body(Map.of("error", "License expired or not found"));
+        }
+
+        try {
+            return ResponseEntity.ok(documentUsageService.getMostPopular(metric, limit));
+        } catch (Exception e) {
+            log.error("Error fetching popular documents", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Failed to fetch popular documents"));
+        }
+    }
+
     /**
      * Search documents by title or code
      * GET /api/documents/search?query=xyz
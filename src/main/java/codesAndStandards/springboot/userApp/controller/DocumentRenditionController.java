@@ -0,0 +1,154 @@
+package codesAndStandards.springboot.userApp.controller;
+
+import codesAndStandards.springboot.userApp.dto.DocumentDto;
+import codesAndStandards.springboot.userApp.dto.DocumentPagesDto;
+import codesAndStandards.springboot.userApp.exception.TooManyRequestsException;
+import codesAndStandards.springboot.userApp.service.DocumentService;
+import codesAndStandards.springboot.userApp.service.DocumentUsageService;
+import codesAndStandards.springboot.userApp.service.RenditionService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+
+import java.nio.file.Path;
+import java.security.Principal;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Page images for the document library and the rasterized viewer.
+ * Renditions are immutable for a given source file, so they are served with a long private
+ * max-age plus an ETag of the file fingerprint.
+ * Group-based access is enforced before these handlers by DocumentAccessInterceptor.
+ */
+@RestController
+@RequestMapping("/documents")
+@RequiredArgsConstructor
+@Slf4j
+public class DocumentRenditionController {
+
+    private final DocumentService documentService;
+    private final RenditionService renditionService;
+    private final DocumentUsageService documentUsageService;
+
+    @Value("${rendition.max-age-days:30}")
+    private long maxAgeDays;
+
+    /**
+     * First-page thumbnail
+     * GET /documents/{id}/thumbnail
+     */
+    @PreAuthorize("hasAnyAuthority('Manager', 'Admin','Viewer')")
+    @GetMapping("/{id}/thumbnail")
+    public ResponseEntity<Resource> getThumbnail(@PathVariable Long id, Principal principal, WebRequest request) {
+        return serve(id, 1, principal, request,
+                filePath -> renditionService.getThumbnail(id, filePath, principal.getName()));
+    }
+
+    /**
+     * Low-resolution preview of a page (1-based)
+     * GET /documents/{id}/preview/{page}
+     */
+    @PreAuthorize("hasAnyAuthority('Manager', 'Admin','Viewer')")
+    @GetMapping("/{id}/preview/{page}")
+    public ResponseEntity<Resource> getPreview(@PathVariable Long id, @PathVariable int page,
+                                               Principal principal, WebRequest request) {
+        return serve(id, page, principal, request,
+                filePath -> renditionService.getPreview(id, filePath, page - 1, principal.getName()));
+    }
+
+    /**
+     * Page count and page sizes for the rasterized viewer
+     * GET /documents/{id}/pages
+     */
+    @PreAuthorize("hasAnyAuthority('Manager', 'Admin','Viewer')")
+    @GetMapping("/{id}/pages")
+    public ResponseEntity<?> getPages(@PathVariable Long id, Principal principal) {
+        try {
+            DocumentDto document = documentService.findDocumentById(id);
+            String filePath = documentService.getFilePath(id);
+            List<DocumentPagesDto.PageSize> pages = renditionService.getPageSizes(id, filePath, principal.getName());
+            documentUsageService.recordView(id);
+
+            return ResponseEntity.ok(DocumentPagesDto.builder()
+                    .documentId(id)
+                    .title(document.getTitle())
+                    .pageCount(pages.size())
+                    .pages(pages)
+                    .scales(RenditionService.PAGE_SCALES)
+                    .build());
+
+        } catch (TooManyRequestsException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            return ResponseEntity.notFound().build();
+        } catch (Exception e) {
+            log.error("Failed to read page layout of document {}", id, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    /**
+     * One page (1-based) rendered at a zoom level in percent; snaps to the nearest supported scale
+     * GET /documents/{id}/page/{page}?scale=100
+     */
+    @PreAuthorize("hasAnyAuthority('Manager', 'Admin','Viewer')")
+    @GetMapping("/{id}/page/{page}")
+    public ResponseEntity<Resource> getPage(@PathVariable Long id, @PathVariable int page,
+                                            @RequestParam(defaultValue = "100") int scale,
+                                            Principal principal, WebRequest request) {
+        return serve(id, page, principal, request,
+                filePath -> renditionService.getPage(id, filePath, page - 1, scale, principal.getName()));
+    }
+
+    @FunctionalInterface
+    private interface RenditionSource {
+        Path get(String filePath) throws Exception;
+    }
+
+    private ResponseEntity<Resource> serve(Long id, int page, Principal principal, WebRequest request,
+                                           RenditionSource source) {
+        String filePath;
+        try {
+            filePath = documentService.getFilePath(id);
+        } catch (RuntimeException e) {
+            return ResponseEntity.notFound().build();
+        }
+
+        String etag = "\"" + renditionService.fingerprint(filePath) + "\"";
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+
+        try {
+            Path file = source.get(filePath);
+
+            return ResponseEntity.ok()
+                    .contentType(MediaType.IMAGE_JPEG)
+                    .cacheControl(CacheControl.maxAge(maxAgeDays, TimeUnit.DAYS).cachePrivate())
+                    .eTag(etag)
+                    .body(new FileSystemResource(file));
+
+        } catch (TooManyRequestsException e) {
+            throw e;
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.notFound().build();
+        } catch (Exception e) {
+            log.error("Failed to render page {} of document {}", page, id, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+}
@@ -1,9 +1,12 @@
 package codesAndStandards.springboot.userApp.controller;
 
+import codesAndStandards.springboot.userApp.dto.BulkUserImportReport;
 import codesAndStandards.springboot.userApp.dto.GroupListDTO;
 import codesAndStandards.springboot.userApp.dto.UserInfoDTO;
+import codesAndStandards.springboot.userApp.dto.UserListPage;
 import codesAndStandards.springboot.userApp.entity.User;
 import codesAndStandards.springboot.userApp.repository.UserRepository;
+import codesAndStandards.springboot.userApp.service.BulkUserImportService;
 import codesAndStandards.springboot.userApp.service.Impl.DocumentServiceImpl;
 import codesAndStandards.springboot.userApp.service.UserService;
 import lombok.RequiredArgsConstructor;
@@ -14,7 +17,9 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
 
+import java.security.Principal;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -30,6 +35,9 @@ public class UserApiController {
 
     private final UserRepository userRepository;
     private final UserService userService;
+    private final BulkUserImportService bulkUserImportService;
+
+    private static final int SEARCH_RESULT_LIMIT = 50;
 
     /**
      * Get all users for access control selection
@@ -40,11 +48,7 @@ public class UserApiController {
     public ResponseEntity<List<UserInfoDTO>> getAllUsers() {
         log.info("REST request to get all users for access control");
         try {
-            List<User> users = userRepository.findAll();
-
-            List<UserInfoDTO> userDTOs = users.stream()
-                    .map(this::convertToDTO)
-                    .collect(Collectors.toList());
+            List<UserInfoDTO> userDTOs = userRepository.findAllUserInfo();
 
             log.info("Returning {} users", userDTOs.size());
             return ResponseEntity.ok(userDTOs);
@@ -82,6 +86,38 @@ public class UserApiController {
         }
     }
 
+    /**
+     * One page of users for the user admin screen, searched and sorted in SQL
+     * GET /api/users/page?search=jo&match=prefix|contains&role=Manager&page=0&size=50&sort=username&direction=asc
+     */
+    @GetMapping("/page")
+    @PreAuthorize("hasAuthority('Admin')")
+    public ResponseEntity<UserListPage> getUsersPage(@RequestParam(required = false) String search,
+                                                     @RequestParam(defaultValue = "prefix") String match,
+                                                     @RequestParam(required = false) String role,
+                                                     @RequestParam(defaultValue = "0") int page,
+                                                     @RequestParam(defaultValue = "50") int size,
+                                                     @RequestParam(defaultValue = "username") String sort,
+                                                     @RequestParam(defaultValue = "asc") String direction) {
+        try {
+            return ResponseEntity.ok(userService.getUsersPage(search, "contains".equalsIgnoreCase(match), role,
+                    page, size, sort, direction));
+        } catch (Exception e) {
+            log.error("Error fetching users page", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    /**
+     * Users per role
+     * GET /api/users/role-counts
+     */
+    @GetMapping("/role-counts")
+    @PreAuthorize("hasAuthority('Admin')")
+    public ResponseEntity<Map<String, Long>> getRoleCounts() {
+        return ResponseEntity.ok(userService.countUsersByRole());
+    }
+
     /**
      * Search users by username, email, first name, or last name
      * GET /api/users/search?query=xyz
@@ -91,18 +127,16 @@ public class UserApiController {
     public ResponseEntity<List<UserInfoDTO>> searchUsers(@RequestParam String query) {
         log.info("REST request to search users with query: {}", query);
         try {
-            List<User> users = userRepository.findAll().stream()
-                    .filter(user -> {
-                        String searchQuery = query.toLowerCase();
-                        return (user.getUsername() != null && user.getUsername().toLowerCase().contains(searchQuery)) ||
-                                (user.getEmail() != null && user.getEmail().toLowerCase().contains(searchQuery)) ||
-                                (user.getFirstName() != null && user.getFirstName().toLowerCase().contains(searchQuery)) ||
-                                (user.getLastName() != null && user.getLastName().toLowerCase().contains(searchQuery));
-                    })
-                    .collect(Collectors.toList());
-
-            List<UserInfoDTO> userDTOs = users.stream()
-                    .map(this::convertToDTO)
+            // First page of substring matches, searched in SQL
+            List<UserInfoDTO> userDTOs = userService.getUsersPage(query, true, null, 0, SEARCH_RESULT_LIMIT, "username", "asc")
+                    .getUsers().stream()
+                    .map(u -> UserInfoDTO.builder()
+                            .id(u.getId())
+                            .username(u.getUsername())
+                            .email(u.getEmail())
+                            .role(u.getRoleName())
+                            .department(u.getFirstName() + " " + u.getLastName())
+                            .build())
                     .collect(Collectors.toList());
 
             return ResponseEntity.ok(userDTOs);
@@ -112,6 +146,48 @@ public class UserApiController {
         }
     }
 
+    /**
+     * Start a bulk user import from a CSV or .xlsx file; returns the job to poll
+     * POST /api/users/import
+     */
+    @PostMapping("/import")
+    @PreAuthorize("hasAuthority('Admin')")
+    public ResponseEntity<?> importUsers(@RequestParam("file") MultipartFile file, Principal principal) {
+        log.info("REST request to import users from {}", file.getOriginalFilename());
+        try {
+            String jobId = bulkUserImportService.startImport(file, principal.getName());
+            Map<String, String> body = new HashMap<>();
+            body.put("jobId", jobId);
+            body.put("status", BulkUserImportReport.QUEUED);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(body);
+        } catch (IllegalArgumentException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        } catch (Exception e) {
+            log.error("Error starting user import", e);
+            Map<String, String> error = new HashMap<>();
+            error.put("message", "Failed to start user import");
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(error);
+        }
+    }
+
+    /**
+     * Progress and per-row report of a bulk user import
+     * GET /api/users/import/{jobId}
+     */
+    @GetMapping("/import/{jobId}")
+    @PreAuthorize("hasAuthority('Admin')")
+    public ResponseEntity<?> getImportReport(@PathVariable String jobId) {
+        try {
+            return ResponseEntity.ok(bulkUserImportService.getReport(jobId));
+        } catch (IllegalArgumentException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("message", e.getMessage());
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(error);
+        }
+    }
+
     /**
      * Convert User entity to UserInfoDTO
      */
@@ -0,0 +1,24 @@
+package codesAndStandards.springboot.userApp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * Server-side filters for the activity log viewer. Every field is optional.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ActivityLogFilter {
+    private String username;
+    private String action;
+    private LocalDate fromDate;
+    private LocalDate toDate;
+    /** SUCCESS or FAILED */
+    private String outcome;
+}
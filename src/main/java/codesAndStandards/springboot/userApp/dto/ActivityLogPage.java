@@ -0,0 +1,22 @@
+package codesAndStandards.springboot.userApp.dto;
+
+import codesAndStandards.springboot.userApp.entity.ActivityLog;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * One keyset page of activity logs. nextBeforeId is the cursor for the next (older) page.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ActivityLogPage {
+    private List<ActivityLog> logs;
+    private boolean hasMore;
+    private Long nextBeforeId;
+}
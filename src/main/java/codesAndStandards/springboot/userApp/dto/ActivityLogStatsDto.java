@@ -0,0 +1,24 @@
+package codesAndStandards.springboot.userApp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+/**
+ * Dashboard counters shown on the activity log page.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ActivityLogStatsDto {
+    private long totalLogs;
+    private long todayCount;
+    private long successCount;
+    private long failedCount;
+    private long downloadCount;
+    private Map<String, Long> countsByAction;
+}
@@ -0,0 +1,21 @@
+package codesAndStandards.springboot.userApp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+/**
+ * Access of one user to many documents: document ID → has access.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BatchAccessCheckDTO {
+    private Long userId;
+    private int accessibleCount;
+    private Map<Long, Boolean> access;
+}
@@ -0,0 +1,17 @@
+package codesAndStandards.springboot.userApp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BatchAccessCheckRequestDTO {
+    private Long userId;
+    private List<Long> documentIds;
+}
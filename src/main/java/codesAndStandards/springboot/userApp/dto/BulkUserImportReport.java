@@ -0,0 +1,45 @@
+package codesAndStandards.springboot.userApp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Progress and per-row outcome of a bulk user import job
+ * (POST /api/users/import, GET /api/users/import/{jobId})
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkUserImportReport {
+
+    public static final String QUEUED = "QUEUED";
+    public static final String RUNNING = "RUNNING";
+    public static final String COMPLETED = "COMPLETED";
+    public static final String FAILED = "FAILED";
+
+    private String jobId;
+    private String fileName;
+    private String status;
+    private String error;
+    private int processedRows;
+    private int createdCount;
+    private int failedCount;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private List<RowResult> rows;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RowResult {
+        private int rowNumber;
+        private String username;
+        private boolean created;
+        private Long userId;
+        private String message;
+    }
+}
@@ -14,4 +14,9 @@ public class DocumentInfoDTO {
     private String title;
     private String documentCode;
     private String category;
+
+    // Group document list projection
+    public DocumentInfoDTO(Long id, String title, String documentCode) {
+        this(id, title, documentCode, null);
+    }
 }
\ No newline at end of file
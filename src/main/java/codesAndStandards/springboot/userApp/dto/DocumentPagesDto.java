@@ -0,0 +1,32 @@
+package codesAndStandards.springboot.userApp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Page layout of a document for the rasterized viewer: page count and page sizes in PDF points
+ * (1/72 inch, the size of a page image at scale 100).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class DocumentPagesDto {
+    private Long documentId;
+    private String title;
+    private int pageCount;
+    private List<PageSize> pages;
+    private List<Integer> scales;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class PageSize {
+        private float width;
+        private float height;
+    }
+}
@@ -0,0 +1,18 @@
+package codesAndStandards.springboot.userApp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class DocumentPopularityDto {
+    private Long documentId;
+    private String title;
+    private String productCode;
+    private Long viewCount;
+    private Long downloadCount;
+}
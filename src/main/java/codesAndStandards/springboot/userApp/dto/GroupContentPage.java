@@ -0,0 +1,23 @@
+package codesAndStandards.springboot.userApp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * One page of a group's members or documents. totalCount is the number matching the search.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class GroupContentPage<T> {
+    private List<T> items;
+    private int page;
+    private int size;
+    private long totalCount;
+    private boolean hasMore;
+}
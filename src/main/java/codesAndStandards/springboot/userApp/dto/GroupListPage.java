@@ -0,0 +1,23 @@
+package codesAndStandards.springboot.userApp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * One page of the access group list. totalCount is the number of groups matching the search.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class GroupListPage {
+    private List<GroupListDTO> groups;
+    private int page;
+    private int size;
+    private long totalCount;
+    private boolean hasMore;
+}
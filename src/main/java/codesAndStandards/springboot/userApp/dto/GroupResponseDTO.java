@@ -7,6 +7,11 @@ import lombok.NoArgsConstructor;
 
 import java.time.LocalDateTime;
 import java.util.List;
+
+/**
+ * Group details. Member and document details are paged separately
+ * (/api/access-groups/{id}/members and /documents); only their IDs are included here.
+ */
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -22,6 +27,4 @@ public class GroupResponseDTO {
     private Integer userCount;
     private List<Long> documentIds;
     private List<Long> userIds;
-    private List<DocumentInfoDTO> documents;
-    private List<UserInfoDTO> users;
 }
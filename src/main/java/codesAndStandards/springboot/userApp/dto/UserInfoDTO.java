@@ -14,4 +14,9 @@ public class UserInfoDTO {
     private String email;
     private String role;
     private String department;
+
+    // Group member list projection
+    public UserInfoDTO(Long id, String username, String email, String role) {
+        this(id, username, email, role, null);
+    }
 }
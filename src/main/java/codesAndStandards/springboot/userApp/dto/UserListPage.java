@@ -0,0 +1,23 @@
+package codesAndStandards.springboot.userApp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * One page of the user list. totalCount is the number of users matching the search and role.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class UserListPage {
+    private List<UserListDTO> users;
+    private int page;
+    private int size;
+    private long totalCount;
+    private boolean hasMore;
+}
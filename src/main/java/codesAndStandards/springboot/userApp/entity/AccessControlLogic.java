@@ -20,6 +20,10 @@ import java.time.LocalDateTime;
                         name = "UQ_AccessControlLogic",
                         columnNames = {"document_id", "groupId"}
                 )
+        },
+        indexes = {
+                // Group-side lookups (members of a group, per-group counts)
+                @Index(name = "idx_acl_group", columnList = "groupId, document_id")
         }
 )
 public class AccessControlLogic {
@@ -11,7 +11,14 @@ import java.time.LocalDateTime;
 @Getter
 @Setter
 @Entity
-@Table(name = "ActivityLog")
+@Table(
+        name = "ActivityLog",
+        indexes = {
+                @Index(name = "idx_activitylog_timestamp", columnList = "timestamp"),
+                @Index(name = "idx_activitylog_action", columnList = "action"),
+                @Index(name = "idx_activitylog_user_id", columnList = "user_id")
+        }
+)
 public class ActivityLog {
 
     @Id
@@ -0,0 +1,64 @@
+package codesAndStandards.springboot.userApp.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Pre-aggregated ActivityLog counts per hour / per day, by action, user and outcome.
+ * Maintained together with every ActivityLog insert and delete, so dashboard
+ * statistics never have to scan the log table; all-time totals are summed from the
+ * day buckets. There is deliberately no single running-total row: every log write
+ * would serialize on it.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Entity
+@Table(
+        name = "ActivityLogRollup",
+        indexes = {
+                @Index(name = "idx_activitylogrollup_bucket", columnList = "granularity, bucket_start")
+        },
+        uniqueConstraints = {
+                @UniqueConstraint(
+                        name = "UQ_ActivityLogRollup",
+                        columnNames = {"granularity", "bucket_start", "action", "user_id", "outcome"}
+                )
+        }
+)
+public class ActivityLogRollup {
+
+    public static final String HOUR = "HOUR";
+    public static final String DAY = "DAY";
+
+    /** user_id value used for events without a user (deleted or unknown) */
+    public static final long NO_USER = 0L;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "rollup_id")
+    private Long rollupId;
+
+    @Column(name = "granularity", nullable = false, length = 4)
+    private String granularity;
+
+    @Column(name = "bucket_start", nullable = false)
+    private LocalDateTime bucketStart;
+
+    @Column(name = "action", nullable = false, length = 50)
+    private String action;
+
+    // Plain column (no FK) so rollups survive user deletion
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "outcome", nullable = false, length = 10)
+    private String outcome;
+
+    @Column(name = "event_count", nullable = false)
+    private Long eventCount;
+}
@@ -51,6 +51,10 @@ public class Document {
     @Column(name = "file_path", nullable = false)
     private String filePath;
 
+    // Linearized ("fast web view") copy served to the viewer; null until produced. Downloads use filePath.
+    @Column(name = "web_optimized_path", length = 500)
+    private String webOptimizedPath;
+
     @Column(name = "created_at")
     private LocalDateTime uploadedAt = LocalDateTime.now();
 
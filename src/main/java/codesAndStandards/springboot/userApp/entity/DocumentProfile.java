@@ -0,0 +1,92 @@
+package codesAndStandards.springboot.userApp.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+import java.time.LocalDateTime;
+
+/**
+ * Properties of a document's PDF, measured once at ingest (or by the backfill) so hot paths
+ * do not have to reopen the file. A profile is only valid for the file it was measured from:
+ * compare sourcePath with Document.filePath before trusting it.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(
+        name = "DocumentProfile",
+        indexes = {
+                @Index(name = "idx_documentprofile_content_hash", columnList = "content_hash")
+        }
+)
+public class DocumentProfile {
+
+    @Id
+    @Column(name = "document_id")
+    private Long documentId;
+
+    @OneToOne(fetch = FetchType.LAZY)
+    @MapsId
+    @JoinColumn(
+            name = "document_id",
+            referencedColumnName = "document_id",
+            foreignKey = @ForeignKey(name = "FK_DocumentProfile_Document")
+    )
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private Document document;
+
+    @Column(name = "source_path", nullable = false, length = 500)
+    private String sourcePath;
+
+    // SHA-256 of the file bytes, hex
+    @Column(name = "content_hash", nullable = false, length = 64)
+    private String contentHash;
+
+    @Column(name = "byte_size", nullable = false)
+    private Long byteSize;
+
+    @Column(name = "pdf_version")
+    private Float pdfVersion;
+
+    // Null when the file could not be opened (e.g. it needs a user password)
+    @Column(name = "page_count")
+    private Integer pageCount;
+
+    @Column(name = "encrypted", nullable = false)
+    private Boolean encrypted;
+
+    // True when the file cannot be opened without a user password
+    @Column(name = "password_required", nullable = false)
+    private Boolean passwordRequired;
+
+    // Raw /P permission bits of the encryption dictionary (-1 = all allowed / not encrypted)
+    @Column(name = "permissions")
+    private Integer permissions;
+
+    @Column(name = "can_print")
+    private Boolean canPrint;
+
+    @Column(name = "can_extract")
+    private Boolean canExtract;
+
+    @Column(name = "linearized", nullable = false)
+    private Boolean linearized;
+
+    @Column(name = "has_text_layer")
+    private Boolean hasTextLayer;
+
+    // Run-length page sizes in points, rotation applied: "612x792*120;842x595*3"
+    @Lob
+    @Column(name = "page_sizes")
+    private String pageSizes;
+
+    @Column(name = "file_last_modified")
+    private LocalDateTime fileLastModified;
+
+    @Column(name = "analyzed_at", nullable = false)
+    private LocalDateTime analyzedAt;
+}
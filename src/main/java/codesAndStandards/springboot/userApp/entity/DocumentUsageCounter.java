@@ -0,0 +1,50 @@
+package codesAndStandards.springboot.userApp.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+import java.time.LocalDateTime;
+
+/**
+ * Per-document view and download totals. Written only by DocumentUsageService's
+ * periodic flush, never on the request path.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(
+        name = "DocumentUsageCounter",
+        indexes = {
+                @Index(name = "idx_documentusagecounter_views", columnList = "view_count"),
+                @Index(name = "idx_documentusagecounter_downloads", columnList = "download_count")
+        }
+)
+public class DocumentUsageCounter {
+
+    @Id
+    @Column(name = "document_id")
+    private Long documentId;
+
+    @OneToOne(fetch = FetchType.LAZY)
+    @MapsId
+    @JoinColumn(
+            name = "document_id",
+            referencedColumnName = "document_id",
+            foreignKey = @ForeignKey(name = "FK_DocumentUsageCounter_Document")
+    )
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private Document document;
+
+    @Column(name = "view_count", nullable = false)
+    private Long viewCount;
+
+    @Column(name = "download_count", nullable = false)
+    private Long downloadCount;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
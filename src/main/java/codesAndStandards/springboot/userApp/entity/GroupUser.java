@@ -20,6 +20,10 @@ import java.time.LocalDateTime;
                         name = "UQ_UserGroup",
                         columnNames = {"user_id", "groupId"}
                 )
+        },
+        indexes = {
+                // Group-side lookups (members of a group, per-group counts)
+                @Index(name = "idx_groupuser_group", columnList = "groupId, user_id")
         }
 )
 public class GroupUser {
@@ -20,6 +20,13 @@ import java.util.Set;
         uniqueConstraints = {
                 @UniqueConstraint(name = "UK_users_email", columnNames = "email"),
                 @UniqueConstraint(name = "UK_users_username", columnNames = "username")
+        },
+        indexes = {
+                // User list: prefix search and sort on names, role filter and counts
+                @Index(name = "idx_users_first_name", columnList = "first_name"),
+                @Index(name = "idx_users_last_name", columnList = "last_name"),
+                @Index(name = "idx_users_role", columnList = "role_id, username"),
+                @Index(name = "idx_users_created_at", columnList = "created_at")
         }
 )
 public class User {
@@ -0,0 +1,73 @@
+package codesAndStandards.springboot.userApp.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+import java.io.Serializable;
+
+/**
+ * Effective access: one row per (user, document) the user can reach through any group.
+ * Derived from GroupUser and AccessControlLogic; maintained by UserDocumentAccessService
+ * whenever either changes and reconciled by its rebuild job. Never edited directly.
+ *
+ * The primary key (user_id, document_id) serves per-user lookups; the document index serves
+ * the per-document maintenance statements.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@IdClass(UserDocumentAccess.Key.class)
+@Table(
+        name = "UserDocumentAccess",
+        indexes = {
+                @Index(name = "idx_userdocumentaccess_document", columnList = "document_id, user_id")
+        }
+)
+public class UserDocumentAccess {
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Id
+    @Column(name = "document_id")
+    private Long documentId;
+
+    // FK: User
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(
+            name = "user_id",
+            referencedColumnName = "user_id",
+            insertable = false,
+            updatable = false,
+            foreignKey = @ForeignKey(name = "FK_UserDocumentAccess_User")
+    )
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private User user;
+
+    // FK: Document
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(
+            name = "document_id",
+            referencedColumnName = "document_id",
+            insertable = false,
+            updatable = false,
+            foreignKey = @ForeignKey(name = "FK_UserDocumentAccess_Document")
+    )
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private Document document;
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @EqualsAndHashCode
+    public static class Key implements Serializable {
+        private Long userId;
+        private Long documentId;
+    }
+}
@@ -0,0 +1,44 @@
+package codesAndStandards.springboot.userApp.event;
+
+import lombok.Getter;
+
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * Published inside the transaction that changes which users or documents belong to a group,
+ * carrying exactly what was added and removed. Anything derived from group membership (access
+ * caches, access read models) can apply the delta instead of recomputing everything.
+ */
+@Getter
+public class GroupMembershipChangedEvent {
+
+    private final Long groupId;
+    private final Set<Long> addedUserIds;
+    private final Set<Long> removedUserIds;
+    private final Set<Long> addedDocumentIds;
+    private final Set<Long> removedDocumentIds;
+
+    public GroupMembershipChangedEvent(Long groupId,
+                                       Set<Long> addedUserIds, Set<Long> removedUserIds,
+                                       Set<Long> addedDocumentIds, Set<Long> removedDocumentIds) {
+        this.groupId = groupId;
+        this.addedUserIds = Collections.unmodifiableSet(addedUserIds);
+        this.removedUserIds = Collections.unmodifiableSet(removedUserIds);
+        this.addedDocumentIds = Collections.unmodifiableSet(addedDocumentIds);
+        this.removedDocumentIds = Collections.unmodifiableSet(removedDocumentIds);
+    }
+
+    public static GroupMembershipChangedEvent users(Long groupId, Set<Long> added, Set<Long> removed) {
+        return new GroupMembershipChangedEvent(groupId, added, removed, Set.of(), Set.of());
+    }
+
+    public static GroupMembershipChangedEvent documents(Long groupId, Set<Long> added, Set<Long> removed) {
+        return new GroupMembershipChangedEvent(groupId, Set.of(), Set.of(), added, removed);
+    }
+
+    public boolean isEmpty() {
+        return addedUserIds.isEmpty() && removedUserIds.isEmpty()
+                && addedDocumentIds.isEmpty() && removedDocumentIds.isEmpty();
+    }
+}
@@ -0,0 +1,17 @@
+package codesAndStandards.springboot.userApp.event;
+
+import lombok.Getter;
+
+/**
+ * Published inside the transaction that edits, deletes or changes the password or role of a user
+ * account. Anything cached per username (login credentials, access snapshots) drops its entry.
+ */
+@Getter
+public class UserAccountChangedEvent {
+
+    private final String username;
+
+    public UserAccountChangedEvent(String username) {
+        this.username = username;
+    }
+}
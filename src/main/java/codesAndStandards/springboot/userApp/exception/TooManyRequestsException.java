@@ -0,0 +1,19 @@
+package codesAndStandards.springboot.userApp.exception;
+
+/**
+ * Thrown when a bounded resource (e.g. the PDF worker pool) is saturated.
+ * Mapped to 429 Too Many Requests with a Retry-After header.
+ */
+public class TooManyRequestsException extends RuntimeException {
+
+    private final int retryAfterSeconds;
+
+    public TooManyRequestsException(String message, int retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public int getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
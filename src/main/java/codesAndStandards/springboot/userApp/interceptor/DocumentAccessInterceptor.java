@@ -0,0 +1,68 @@
+package codesAndStandards.springboot.userApp.interceptor;
+
+import codesAndStandards.springboot.userApp.service.DocumentAclCache;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.Map;
+
+/**
+ * Enforces group-based document access on the endpoints that serve document bytes (viewer,
+ * download, page images). Runs on every request, including each range request from the viewer,
+ * so it answers from DocumentAclCache instead of the database.
+ */
+@Component
+public class DocumentAccessInterceptor implements HandlerInterceptor {
+
+    @Autowired
+    private DocumentAclCache documentAclCache;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
+
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated()) {
+            return true; // Left to Spring Security (redirect to login)
+        }
+
+        // Admin can access all documents
+        boolean admin = authentication.getAuthorities().stream()
+                .anyMatch(a -> "Admin".equals(a.getAuthority()));
+        if (admin) {
+            return true;
+        }
+
+        Long documentId = documentId(request);
+        if (documentId == null) {
+            response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+            return false;
+        }
+
+        if (!documentAclCache.hasAccess(authentication.getName(), documentId)) {
+            response.setStatus(HttpServletResponse.SC_FORBIDDEN); // 403
+            return false;
+        }
+
+        return true;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Long documentId(HttpServletRequest request) {
+        Map<String, String> variables =
+                (Map<String, String>) request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+        if (variables == null || variables.get("id") == null) {
+            return null;
+        }
+        try {
+            return Long.valueOf(variables.get("id"));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
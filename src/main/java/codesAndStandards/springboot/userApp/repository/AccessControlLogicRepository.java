@@ -1,12 +1,16 @@
 package codesAndStandards.springboot.userApp.repository;
 
+import codesAndStandards.springboot.userApp.dto.DocumentInfoDTO;
 import codesAndStandards.springboot.userApp.entity.AccessControlLogic;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -66,6 +70,50 @@ public interface AccessControlLogicRepository extends JpaRepository<AccessContro
     @Query("DELETE FROM AccessControlLogic acl WHERE acl.document.id = :documentId AND acl.group.id = :groupId")
     void deleteByDocumentIdAndGroupId(@Param("documentId") Long documentId, @Param("groupId") Long groupId);
 
+    /**
+     * Remove several documents from a group in one statement
+     */
+    @Modifying
+    @Query("DELETE FROM AccessControlLogic acl WHERE acl.group.id = :groupId AND acl.document.id IN :documentIds")
+    int deleteByGroupIdAndDocumentIdIn(@Param("groupId") Long groupId,
+                                       @Param("documentIds") Collection<Long> documentIds);
+
+    /**
+     * Remove a document from several groups in one statement
+     */
+    @Modifying
+    @Query("DELETE FROM AccessControlLogic acl WHERE acl.document.id = :documentId AND acl.group.id IN :groupIds")
+    int deleteByDocumentIdAndGroupIdIn(@Param("documentId") Long documentId,
+                                       @Param("groupIds") Collection<Long> groupIds);
+
+    /**
+     * Add several documents to a group in one statement.
+     * Documents that do not exist or are already in the group are skipped.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO AccessControlLogic (document_id, groupId, created_by, created_at) " +
+            "SELECT d.document_id, :groupId, :createdBy, GETDATE() FROM Documents d " +
+            "WHERE d.document_id IN (:documentIds) AND NOT EXISTS (" +
+            "SELECT 1 FROM AccessControlLogic a WHERE a.document_id = d.document_id AND a.groupId = :groupId)",
+            nativeQuery = true)
+    int insertDocumentsIntoGroup(@Param("groupId") Long groupId,
+                                 @Param("documentIds") Collection<Long> documentIds,
+                                 @Param("createdBy") Long createdBy);
+
+    /**
+     * Add a document to several groups in one statement.
+     * Groups that do not exist or already contain the document are skipped.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO AccessControlLogic (document_id, groupId, created_by, created_at) " +
+            "SELECT :documentId, g.groupId, :createdBy, GETDATE() FROM Groups g " +
+            "WHERE g.groupId IN (:groupIds) AND NOT EXISTS (" +
+            "SELECT 1 FROM AccessControlLogic a WHERE a.document_id = :documentId AND a.groupId = g.groupId)",
+            nativeQuery = true)
+    int insertDocumentIntoGroups(@Param("documentId") Long documentId,
+                                 @Param("groupIds") Collection<Long> groupIds,
+                                 @Param("createdBy") Long createdBy);
+
     /**
      * Count documents in a group
      */
@@ -78,6 +126,27 @@ public interface AccessControlLogicRepository extends JpaRepository<AccessContro
     @Query("SELECT acl.document.id FROM AccessControlLogic acl WHERE acl.group.id = :groupId")
     List<Long> findDocumentIdsByGroupId(@Param("groupId") Long groupId);
 
+    /**
+     * One page of a group's documents as a narrow projection, optionally searched by title or code
+     */
+    @Query(value = "SELECT new codesAndStandards.springboot.userApp.dto.DocumentInfoDTO(d.id, d.title, d.productCode) " +
+            "FROM AccessControlLogic acl JOIN acl.document d WHERE acl.group.id = :groupId " +
+            "AND (:search IS NULL OR LOWER(d.title) LIKE LOWER(CONCAT('%', :search, '%')) " +
+            "OR LOWER(d.productCode) LIKE LOWER(CONCAT('%', :search, '%'))) " +
+            "ORDER BY d.title, d.id",
+            countQuery = "SELECT COUNT(acl) FROM AccessControlLogic acl JOIN acl.document d WHERE acl.group.id = :groupId " +
+                    "AND (:search IS NULL OR LOWER(d.title) LIKE LOWER(CONCAT('%', :search, '%')) " +
+                    "OR LOWER(d.productCode) LIKE LOWER(CONCAT('%', :search, '%')))")
+    Page<DocumentInfoDTO> findDocumentInfoByGroupId(@Param("groupId") Long groupId,
+                                                    @Param("search") String search,
+                                                    Pageable pageable);
+
+    /**
+     * Get group IDs a document belongs to
+     */
+    @Query("SELECT acl.group.id FROM AccessControlLogic acl WHERE acl.document.id = :documentId")
+    List<Long> findGroupIdsByDocumentId(@Param("documentId") Long documentId);
+
     /**
      * Check if user has access to document through any group
      */
@@ -90,6 +159,16 @@ public interface AccessControlLogicRepository extends JpaRepository<AccessContro
 //    @Query("SELECT acl FROM AccessControlLogic acl WHERE acl.document.id = :documentId")
 //    List<AccessControlLogic> findByDocumentId(@Param("documentId") int documentId);
 
+    /**
+     * Of the given document IDs, those the user can access through any group (one query per batch)
+     */
+    @Query("SELECT DISTINCT acl.document.id " +
+            "FROM AccessControlLogic acl " +
+            "JOIN GroupUser gu ON acl.group.id = gu.group.id " +
+            "WHERE gu.user.id = :userId AND acl.document.id IN :documentIds")
+    List<Long> findAccessibleDocumentIdsAmong(@Param("userId") Long userId,
+                                              @Param("documentIds") Collection<Long> documentIds);
+
     /**
      * Get all document IDs accessible by a user
      */
@@ -2,7 +2,7 @@ package codesAndStandards.springboot.userApp.repository;
 
 import codesAndStandards.springboot.userApp.entity.ActivityLog;
 import codesAndStandards.springboot.userApp.entity.User;
-import jakarta.transaction.Transactional;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
@@ -10,6 +10,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -19,24 +20,48 @@ public interface ActivityLogRepository extends JpaRepository<ActivityLog, Long>
     @Query("SELECT al FROM ActivityLog al LEFT JOIN FETCH al.user ORDER BY al.timestamp DESC")
     List<ActivityLog> findAllByOrderByTimestampDesc();
 
+    /**
+     * One keyset page of logs, newest first. Pass the smallest logId of the previous
+     * page as beforeId to continue; every filter is optional (null = not applied).
+     * Outcome is either 'SUCCESS' or 'FAILED' (any action containing FAIL).
+     */
+    @Query("SELECT al FROM ActivityLog al LEFT JOIN FETCH al.user u " +
+            "WHERE (:beforeId IS NULL OR al.logId < :beforeId) " +
+            "AND (:userId IS NULL OR u.id = :userId) " +
+            "AND (:action IS NULL OR al.action = :action) " +
+            "AND (:fromTime IS NULL OR al.timestamp >= :fromTime) " +
+            "AND (:toTime IS NULL OR al.timestamp < :toTime) " +
+            "AND (:outcome IS NULL " +
+            "     OR (:outcome = 'FAILED' AND al.action LIKE '%FAIL%') " +
+            "     OR (:outcome = 'SUCCESS' AND al.action NOT LIKE '%FAIL%')) " +
+            "ORDER BY al.logId DESC")
+    List<ActivityLog> findPage(@Param("beforeId") Long beforeId,
+                               @Param("userId") Long userId,
+                               @Param("action") String action,
+                               @Param("fromTime") LocalDateTime fromTime,
+                               @Param("toTime") LocalDateTime toTime,
+                               @Param("outcome") String outcome,
+                               Pageable pageable);
+
     // Get logs by user
     List<ActivityLog> findByUserOrderByTimestampDesc(User user);
 
-    // Count today's logs
-    // Count today's logs - FIXED QUERY
-    @Query("SELECT COUNT(al) FROM ActivityLog al WHERE al.timestamp >= :startOfDay AND al.timestamp < :endOfDay")
-    Long countTodayLogs(LocalDateTime startOfDay, LocalDateTime endOfDay);
+    /**
+     * Oldest expired rows first - one retention chunk
+     */
+    @Query("SELECT al FROM ActivityLog al LEFT JOIN FETCH al.user " +
+            "WHERE al.timestamp < :cutoff ORDER BY al.logId ASC")
+    List<ActivityLog> findExpiredChunk(@Param("cutoff") LocalDateTime cutoff, Pageable pageable);
 
+    /**
+     * Delete exactly the given rows (one retention chunk, at most 2000 ids).
+     * Callers go through ActivityLogRollupService so the rollups are adjusted in the same transaction.
+     */
     @Modifying
-    @Transactional
-    @Query("DELETE FROM ActivityLog a WHERE a.timestamp < :cutoffDate")
-    int deleteOldLogs(@Param("cutoffDate") LocalDateTime cutoffDate);
-
-    @Query("SELECT COUNT(a) FROM ActivityLog a WHERE a.action NOT LIKE '%_FAILED'")
-    Long countSuccessLogs();
+    @Query("DELETE FROM ActivityLog a WHERE a.logId IN :logIds")
+    int deleteLogsByIds(@Param("logIds") Collection<Long> logIds);
 
-    // Count failed logs (any action ending with '_FAILED')
-    @Query("SELECT COUNT(a) FROM ActivityLog a WHERE a.action LIKE '%_FAILED'")
-    Long countFailedLogs();
+    // How many of the given rows still exist - used to recover an interrupted purge chunk
+    long countByLogIdIn(Collection<Long> logIds);
 
 }
\ No newline at end of file
@@ -0,0 +1,118 @@
+package codesAndStandards.springboot.userApp.repository;
+
+import codesAndStandards.springboot.userApp.entity.ActivityLogRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface ActivityLogRollupRepository extends JpaRepository<ActivityLogRollup, Long> {
+
+    /**
+     * Add one event to a bucket, creating the bucket row if needed.
+     * HOLDLOCK makes the MERGE safe against concurrent first inserts.
+     */
+    @Modifying
+    @Query(value = "MERGE ActivityLogRollup WITH (HOLDLOCK) AS r " +
+            "USING (SELECT :granularity AS granularity, :bucketStart AS bucket_start, :action AS action, " +
+            "              :userId AS user_id, :outcome AS outcome) AS s " +
+            "ON r.granularity = s.granularity AND r.bucket_start = s.bucket_start AND r.action = s.action " +
+            "   AND r.user_id = s.user_id AND r.outcome = s.outcome " +
+            "WHEN MATCHED THEN UPDATE SET r.event_count = r.event_count + 1 " +
+            "WHEN NOT MATCHED THEN INSERT (granularity, bucket_start, action, user_id, outcome, event_count) " +
+            "     VALUES (s.granularity, s.bucket_start, s.action, s.user_id, s.outcome, 1);",
+            nativeQuery = true)
+    int increment(@Param("granularity") String granularity,
+                  @Param("bucketStart") LocalDateTime bucketStart,
+                  @Param("action") String action,
+                  @Param("userId") Long userId,
+                  @Param("outcome") String outcome);
+
+    /**
+     * Subtract the contribution of the given ActivityLog rows (the same ids that are then deleted)
+     * from the hour and day buckets. At most 2000 ids per call.
+     *
+     * The id list must appear only once: each occurrence of :logIds binds every id again, and
+     * SQL Server allows 2100 parameters per statement. CROSS APPLY produces both buckets of a row.
+     */
+    @Modifying
+    @Query(value = "UPDATE r SET r.event_count = r.event_count - s.cnt " +
+            "FROM ActivityLogRollup r JOIN ( " +
+            "   SELECT b.granularity, b.bucket_start, a.action, ISNULL(a.user_id, 0) AS user_id, COUNT_BIG(*) AS cnt " +
+            "   FROM ActivityLog a " +
+            "   CROSS APPLY (VALUES ('HOUR', DATEADD(hour, DATEDIFF(hour, 0, a.[timestamp]), 0)), " +
+            "                       ('DAY', DATEADD(day, DATEDIFF(day, 0, a.[timestamp]), 0))) b(granularity, bucket_start) " +
+            "   WHERE a.log_id IN (:logIds) " +
+            "   GROUP BY b.granularity, b.bucket_start, a.action, ISNULL(a.user_id, 0) " +
+            ") s ON r.granularity = s.granularity AND r.bucket_start = s.bucket_start " +
+            "   AND r.action = s.action AND r.user_id = s.user_id",
+            nativeQuery = true)
+    int subtractLogs(@Param("logIds") Collection<Long> logIds);
+
+    @Modifying
+    @Query("DELETE FROM ActivityLogRollup r WHERE r.eventCount <= 0")
+    int deleteEmptyBuckets();
+
+    /**
+     * Rebuild every bucket from the ActivityLog table (one-time backfill / repair)
+     */
+    @Modifying
+    @Query(value = "INSERT INTO ActivityLogRollup (granularity, bucket_start, action, user_id, outcome, event_count) " +
+            "SELECT 'HOUR', DATEADD(hour, DATEDIFF(hour, 0, a.[timestamp]), 0), a.action, ISNULL(a.user_id, 0), " +
+            "       CASE WHEN a.action LIKE '%FAIL%' THEN 'FAILED' ELSE 'SUCCESS' END, COUNT_BIG(*) " +
+            "FROM ActivityLog a " +
+            "GROUP BY DATEADD(hour, DATEDIFF(hour, 0, a.[timestamp]), 0), a.action, ISNULL(a.user_id, 0) " +
+            "UNION ALL " +
+            "SELECT 'DAY', DATEADD(day, DATEDIFF(day, 0, a.[timestamp]), 0), a.action, ISNULL(a.user_id, 0), " +
+            "       CASE WHEN a.action LIKE '%FAIL%' THEN 'FAILED' ELSE 'SUCCESS' END, COUNT_BIG(*) " +
+            "FROM ActivityLog a " +
+            "GROUP BY DATEADD(day, DATEDIFF(day, 0, a.[timestamp]), 0), a.action, ISNULL(a.user_id, 0)",
+            nativeQuery = true)
+    int rebuildFromLogs();
+
+    @Modifying
+    @Query("DELETE FROM ActivityLogRollup r")
+    int deleteAllBuckets();
+
+    /**
+     * Exclusive table lock on ActivityLog for the rest of the transaction, so a rebuild
+     * cannot race with events being written. Returns the row count.
+     */
+    @Query(value = "SELECT COUNT_BIG(*) FROM ActivityLog WITH (TABLOCKX, HOLDLOCK)", nativeQuery = true)
+    Long lockAndCountLogs();
+
+    /** Total events per action, summed over the day buckets */
+    @Query("SELECT r.action, SUM(r.eventCount) FROM ActivityLogRollup r " +
+            "WHERE r.granularity = 'DAY' GROUP BY r.action")
+    List<Object[]> sumByAction();
+
+    /** Total events for one outcome (SUCCESS / FAILED), summed over the day buckets */
+    @Query("SELECT COALESCE(SUM(r.eventCount), 0) FROM ActivityLogRollup r " +
+            "WHERE r.granularity = 'DAY' AND r.outcome = :outcome")
+    Long sumTotalsForOutcome(@Param("outcome") String outcome);
+
+    /** Total events in one bucket */
+    @Query("SELECT COALESCE(SUM(r.eventCount), 0) FROM ActivityLogRollup r " +
+            "WHERE r.granularity = :granularity AND r.bucketStart = :bucketStart")
+    Long sumForBucket(@Param("granularity") String granularity,
+                      @Param("bucketStart") LocalDateTime bucketStart);
+
+    /** Sum of the day buckets - equals the ActivityLog row count when rollups are consistent */
+    @Query("SELECT COALESCE(SUM(r.eventCount), 0) FROM ActivityLogRollup r WHERE r.granularity = 'DAY'")
+    Long sumTotals();
+
+    /**
+     * ActivityLog row count from the partition metadata - no table scan.
+     * Only a trigger for the startup check; the exact count is taken under lock.
+     */
+    @Query(value = "SELECT COALESCE(SUM(p.rows), 0) FROM sys.partitions p " +
+            "WHERE p.object_id = OBJECT_ID('ActivityLog') AND p.index_id IN (0, 1)",
+            nativeQuery = true)
+    Long approximateLogCount();
+}
@@ -0,0 +1,22 @@
+package codesAndStandards.springboot.userApp.repository;
+
+import codesAndStandards.springboot.userApp.entity.DocumentProfile;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface DocumentProfileRepository extends JpaRepository<DocumentProfile, Long> {
+
+    /**
+     * Documents without a profile, or whose profile was measured from a different file, in id order
+     */
+    @Query("SELECT d.id FROM Document d WHERE d.id > :afterId AND NOT EXISTS (" +
+            "SELECT 1 FROM DocumentProfile p WHERE p.documentId = d.id AND p.sourcePath = d.filePath) " +
+            "ORDER BY d.id")
+    List<Long> findDocumentIdsNeedingProfile(@Param("afterId") Long afterId, Pageable pageable);
+}
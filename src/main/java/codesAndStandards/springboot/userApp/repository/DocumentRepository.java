@@ -1,12 +1,16 @@
 package codesAndStandards.springboot.userApp.repository;
 
 import codesAndStandards.springboot.userApp.entity.Document;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface DocumentRepository extends JpaRepository<Document, Long> {
@@ -27,4 +31,41 @@ public interface DocumentRepository extends JpaRepository<Document, Long> {
     """)
     List<Document> findDocumentsAccessibleByUser(@Param("userId") Long userId);
 
+    /**
+     * Documents a user can access, from the UserDocumentAccess read model
+     */
+    @Query("SELECT d FROM Document d WHERE d.id IN " +
+            "(SELECT a.documentId FROM UserDocumentAccess a WHERE a.userId = :userId)")
+    List<Document> findDocumentsInUserAccess(@Param("userId") Long userId);
+
+    @Query("SELECT d.filePath FROM Document d WHERE d.id = :id")
+    Optional<String> findFilePathById(@Param("id") Long id);
+
+    @Query("SELECT d.webOptimizedPath FROM Document d WHERE d.id = :id")
+    Optional<String> findWebOptimizedPathById(@Param("id") Long id);
+
+    /**
+     * Documents still without a linearized copy, as (id, filePath) rows in id order
+     */
+    @Query("SELECT d.id, d.filePath FROM Document d WHERE d.webOptimizedPath IS NULL AND d.id > :afterId ORDER BY d.id")
+    List<Object[]> findWithoutWebOptimizedCopy(@Param("afterId") Long afterId, Pageable pageable);
+
+    /**
+     * Record the linearized copy, unless the document's file was replaced in the meantime
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE Document d SET d.webOptimizedPath = :webOptimizedPath WHERE d.id = :id AND d.filePath = :filePath")
+    int setWebOptimizedPath(@Param("id") Long id,
+                            @Param("filePath") String filePath,
+                            @Param("webOptimizedPath") String webOptimizedPath);
+
+    /**
+     * Store the page count measured at ingest unless one was entered by hand.
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE Document d SET d.noOfPages = :pages WHERE d.id = :id AND d.noOfPages IS NULL")
+    int fillMissingPageCount(@Param("id") Long id, @Param("pages") Integer pages);
+
 }
\ No newline at end of file
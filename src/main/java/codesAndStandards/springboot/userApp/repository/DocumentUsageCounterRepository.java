@@ -0,0 +1,51 @@
+package codesAndStandards.springboot.userApp.repository;
+
+import codesAndStandards.springboot.userApp.dto.DocumentPopularityDto;
+import codesAndStandards.springboot.userApp.entity.DocumentUsageCounter;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface DocumentUsageCounterRepository extends JpaRepository<DocumentUsageCounter, Long> {
+
+    /**
+     * Add flushed deltas to a document's counters, creating the row on first use.
+     * Documents deleted since the usage was recorded are skipped.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "MERGE DocumentUsageCounter WITH (HOLDLOCK) AS c " +
+            "USING (SELECT d.document_id FROM Documents d WHERE d.document_id = :documentId) AS s " +
+            "ON c.document_id = s.document_id " +
+            "WHEN MATCHED THEN UPDATE SET c.view_count = c.view_count + :views, " +
+            "     c.download_count = c.download_count + :downloads, c.updated_at = :now " +
+            "WHEN NOT MATCHED THEN INSERT (document_id, view_count, download_count, updated_at) " +
+            "     VALUES (s.document_id, :views, :downloads, :now);",
+            nativeQuery = true)
+    int addCounts(@Param("documentId") Long documentId,
+                  @Param("views") long views,
+                  @Param("downloads") long downloads,
+                  @Param("now") LocalDateTime now);
+
+    /** Most viewed documents */
+    @Query("SELECT new codesAndStandards.springboot.userApp.dto.DocumentPopularityDto(" +
+            "c.documentId, d.title, d.productCode, c.viewCount, c.downloadCount) " +
+            "FROM DocumentUsageCounter c JOIN c.document d " +
+            "ORDER BY c.viewCount DESC, c.documentId")
+    List<DocumentPopularityDto> findMostViewed(Pageable pageable);
+
+    /** Most downloaded documents */
+    @Query("SELECT new codesAndStandards.springboot.userApp.dto.DocumentPopularityDto(" +
+            "c.documentId, d.title, d.productCode, c.viewCount, c.downloadCount) " +
+            "FROM DocumentUsageCounter c JOIN c.document d " +
+            "ORDER BY c.downloadCount DESC, c.documentId")
+    List<DocumentPopularityDto> findMostDownloaded(Pageable pageable);
+}
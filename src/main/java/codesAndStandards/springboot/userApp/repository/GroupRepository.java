@@ -1,6 +1,9 @@
 package codesAndStandards.springboot.userApp.repository;
 
+import codesAndStandards.springboot.userApp.dto.GroupListDTO;
 import codesAndStandards.springboot.userApp.entity.Group;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -17,6 +20,12 @@ public interface GroupRepository extends JpaRepository<Group, Long> {
      */
     Optional<Group> findByGroupNameIgnoreCase(String groupName);
 
+    /**
+     * ID and name of every group (bulk user import resolves group names in memory)
+     */
+    @Query("SELECT g.id, g.groupName FROM Group g")
+    List<Object[]> findAllIdsAndNames();
+
     /**
      * Check if group name exists (case-insensitive)
      */
@@ -28,17 +37,6 @@ public interface GroupRepository extends JpaRepository<Group, Long> {
     @Query("SELECT g FROM Group g WHERE g.createdBy.id = :userId")
     List<Group> findByCreatedByUserId(@Param("userId") Long userId);
 
-    /**
-     * Get group with all associations eagerly loaded
-     */
-    @Query("SELECT g FROM Group g " +
-            "LEFT JOIN FETCH g.groupUsers gu " +
-            "LEFT JOIN FETCH gu.user " +
-            "LEFT JOIN FETCH g.groupDocument gd " +
-            "LEFT JOIN FETCH gd.document " +
-            "WHERE g.id = :id")
-    Optional<Group> findByIdWithAssociations(@Param("id") Long id);
-
     /**
      * Get all groups with counts
      */
@@ -67,4 +65,30 @@ public interface GroupRepository extends JpaRepository<Group, Long> {
             "JOIN g.groupUsers gu " +
             "WHERE gu.user.id = :userId")
     List<Group> findGroupsByUserId(@Param("userId") Long userId);
-}
\ No newline at end of file
+
+    // WHERE clause shared by the group list query and its count query
+    String GROUP_LIST_FILTER = "WHERE (:search IS NULL " +
+            "OR LOWER(g.groupName) LIKE LOWER(CONCAT('%', :search, '%')) " +
+            "OR LOWER(g.description) LIKE LOWER(CONCAT('%', :search, '%'))) " +
+            "AND (:documentId IS NULL OR EXISTS (SELECT 1 FROM AccessControlLogic a " +
+            "WHERE a.group.id = g.id AND a.document.id = :documentId)) " +
+            "AND (:userId IS NULL OR EXISTS (SELECT 1 FROM GroupUser m " +
+            "WHERE m.group.id = g.id AND m.user.id = :userId)) ";
+
+    /**
+     * Group list rows with document and user counts in one query, optionally filtered by a name or
+     * description search, by a document the groups contain, or by a user who is a member.
+     * The counts are correlated subqueries, so only the rows of the requested page are counted.
+     */
+    @Query(value = "SELECT new codesAndStandards.springboot.userApp.dto.GroupListDTO(" +
+            "g.id, g.groupName, g.description, COALESCE(u.username, 'Unknown'), g.createdAt, " +
+            "(SELECT CAST(COUNT(acl) AS Integer) FROM AccessControlLogic acl WHERE acl.group.id = g.id), " +
+            "(SELECT CAST(COUNT(gu) AS Integer) FROM GroupUser gu WHERE gu.group.id = g.id)) " +
+            "FROM Group g LEFT JOIN g.createdBy u " + GROUP_LIST_FILTER +
+            "ORDER BY g.groupName, g.id",
+            countQuery = "SELECT COUNT(g) FROM Group g " + GROUP_LIST_FILTER)
+    Page<GroupListDTO> findGroupList(@Param("search") String search,
+                                     @Param("documentId") Long documentId,
+                                     @Param("userId") Long userId,
+                                     Pageable pageable);
+}
@@ -1,13 +1,17 @@
 package codesAndStandards.springboot.userApp.repository;
 
+import codesAndStandards.springboot.userApp.dto.UserInfoDTO;
 import codesAndStandards.springboot.userApp.entity.GroupUser;
 import jakarta.transaction.Transactional;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -80,6 +84,52 @@ public interface GroupUserRepository extends JpaRepository<GroupUser, Long> {
     @Query("DELETE FROM GroupUser gu WHERE gu.user.id = :userId AND gu.group.id = :groupId")
     void deleteByUserIdAndGroupId(@Param("userId") Long userId, @Param("groupId") Long groupId);
 
+    /**
+     * Remove several users from a group in one statement
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM GroupUser gu WHERE gu.group.id = :groupId AND gu.user.id IN :userIds")
+    int deleteByGroupIdAndUserIdIn(@Param("groupId") Long groupId, @Param("userIds") Collection<Long> userIds);
+
+    /**
+     * Remove a user from several groups in one statement
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM GroupUser gu WHERE gu.user.id = :userId AND gu.group.id IN :groupIds")
+    int deleteByUserIdAndGroupIdIn(@Param("userId") Long userId, @Param("groupIds") Collection<Long> groupIds);
+
+    /**
+     * Add several users to a group in one statement.
+     * Users that do not exist or are already in the group are skipped.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO GroupUser (user_id, groupId, created_by, created_at) " +
+            "SELECT u.user_id, :groupId, :createdBy, GETDATE() FROM users u " +
+            "WHERE u.user_id IN (:userIds) AND NOT EXISTS (" +
+            "SELECT 1 FROM GroupUser g WHERE g.user_id = u.user_id AND g.groupId = :groupId)",
+            nativeQuery = true)
+    int insertUsersIntoGroup(@Param("groupId") Long groupId,
+                             @Param("userIds") Collection<Long> userIds,
+                             @Param("createdBy") Long createdBy);
+
+    /**
+     * Add a user to several groups in one statement.
+     * Groups that do not exist or already contain the user are skipped.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO GroupUser (user_id, groupId, created_by, created_at) " +
+            "SELECT :userId, g.groupId, :createdBy, GETDATE() FROM Groups g " +
+            "WHERE g.groupId IN (:groupIds) AND NOT EXISTS (" +
+            "SELECT 1 FROM GroupUser gu WHERE gu.user_id = :userId AND gu.groupId = g.groupId)",
+            nativeQuery = true)
+    int insertUserIntoGroups(@Param("userId") Long userId,
+                             @Param("groupIds") Collection<Long> groupIds,
+                             @Param("createdBy") Long createdBy);
+
     /**
      * Count users in a group
      */
@@ -91,4 +141,25 @@ public interface GroupUserRepository extends JpaRepository<GroupUser, Long> {
      */
     @Query("SELECT gu.user.id FROM GroupUser gu WHERE gu.group.id = :groupId")
     List<Long> findUserIdsByGroupId(@Param("groupId") Long groupId);
-}
\ No newline at end of file
+
+    /**
+     * One page of a group's members as a narrow projection, optionally searched by username or email
+     */
+    @Query(value = "SELECT new codesAndStandards.springboot.userApp.dto.UserInfoDTO(u.id, u.username, u.email, r.roleName) " +
+            "FROM GroupUser gu JOIN gu.user u LEFT JOIN u.role r WHERE gu.group.id = :groupId " +
+            "AND (:search IS NULL OR LOWER(u.username) LIKE LOWER(CONCAT('%', :search, '%')) " +
+            "OR LOWER(u.email) LIKE LOWER(CONCAT('%', :search, '%'))) " +
+            "ORDER BY u.username, u.id",
+            countQuery = "SELECT COUNT(gu) FROM GroupUser gu JOIN gu.user u WHERE gu.group.id = :groupId " +
+                    "AND (:search IS NULL OR LOWER(u.username) LIKE LOWER(CONCAT('%', :search, '%')) " +
+                    "OR LOWER(u.email) LIKE LOWER(CONCAT('%', :search, '%')))")
+    Page<UserInfoDTO> findMemberInfoByGroupId(@Param("groupId") Long groupId,
+                                              @Param("search") String search,
+                                              Pageable pageable);
+
+    /**
+     * Get group IDs a user belongs to
+     */
+    @Query("SELECT gu.group.id FROM GroupUser gu WHERE gu.user.id = :userId")
+    List<Long> findGroupIdsByUserId(@Param("userId") Long userId);
+}
@@ -0,0 +1,99 @@
+package codesAndStandards.springboot.userApp.repository;
+
+import codesAndStandards.springboot.userApp.entity.UserDocumentAccess;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * The maintenance statements are idempotent and set-based: inserts add only missing rows that
+ * some group grants, deletes remove only rows that no group grants any more.
+ */
+@Repository
+public interface UserDocumentAccessRepository extends JpaRepository<UserDocumentAccess, UserDocumentAccess.Key> {
+
+    // Row x is still granted by some group
+    String GRANTED = "EXISTS (SELECT 1 FROM GroupUser gu JOIN AccessControlLogic acl ON acl.groupId = gu.groupId " +
+            "WHERE gu.user_id = x.user_id AND acl.document_id = x.document_id)";
+
+    @Query("SELECT a.documentId FROM UserDocumentAccess a WHERE a.userId = :userId")
+    List<Long> findDocumentIdsByUserId(@Param("userId") Long userId);
+
+    @Query("SELECT a.documentId FROM UserDocumentAccess a WHERE a.userId = :userId AND a.documentId IN :documentIds")
+    List<Long> findDocumentIdsByUserIdAmong(@Param("userId") Long userId,
+                                            @Param("documentIds") Collection<Long> documentIds);
+
+    boolean existsByUserIdAndDocumentId(Long userId, Long documentId);
+
+    /**
+     * Users added to a group gain the group's documents
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO UserDocumentAccess (user_id, document_id) " +
+            "SELECT DISTINCT gu.user_id, acl.document_id FROM GroupUser gu " +
+            "JOIN AccessControlLogic acl ON acl.groupId = gu.groupId " +
+            "WHERE gu.groupId = :groupId AND gu.user_id IN (:userIds) AND NOT EXISTS (" +
+            "SELECT 1 FROM UserDocumentAccess x WHERE x.user_id = gu.user_id AND x.document_id = acl.document_id)",
+            nativeQuery = true)
+    int grantGroupToUsers(@Param("groupId") Long groupId, @Param("userIds") Collection<Long> userIds);
+
+    /**
+     * Documents added to a group become accessible to the group's members
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO UserDocumentAccess (user_id, document_id) " +
+            "SELECT DISTINCT gu.user_id, acl.document_id FROM AccessControlLogic acl " +
+            "JOIN GroupUser gu ON gu.groupId = acl.groupId " +
+            "WHERE acl.groupId = :groupId AND acl.document_id IN (:documentIds) AND gu.user_id IS NOT NULL " +
+            "AND NOT EXISTS (" +
+            "SELECT 1 FROM UserDocumentAccess x WHERE x.user_id = gu.user_id AND x.document_id = acl.document_id)",
+            nativeQuery = true)
+    int grantDocumentsToGroupMembers(@Param("groupId") Long groupId, @Param("documentIds") Collection<Long> documentIds);
+
+    /**
+     * Drop rows of these users that no group grants any more
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "DELETE x FROM UserDocumentAccess x WHERE x.user_id IN (:userIds) AND NOT " + GRANTED,
+            nativeQuery = true)
+    int revokeUngrantedForUsers(@Param("userIds") Collection<Long> userIds);
+
+    /**
+     * Drop rows of these documents that no group grants any more
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "DELETE x FROM UserDocumentAccess x WHERE x.document_id IN (:documentIds) AND NOT " + GRANTED,
+            nativeQuery = true)
+    int revokeUngrantedForDocuments(@Param("documentIds") Collection<Long> documentIds);
+
+    /**
+     * Reconcile: add every granted row that is missing
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO UserDocumentAccess (user_id, document_id) " +
+            "SELECT DISTINCT gu.user_id, acl.document_id FROM GroupUser gu " +
+            "JOIN AccessControlLogic acl ON acl.groupId = gu.groupId " +
+            "WHERE gu.user_id IS NOT NULL AND NOT EXISTS (" +
+            "SELECT 1 FROM UserDocumentAccess x WHERE x.user_id = gu.user_id AND x.document_id = acl.document_id)",
+            nativeQuery = true)
+    int insertAllMissing();
+
+    /**
+     * Reconcile: remove every row no group grants
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "DELETE x FROM UserDocumentAccess x WHERE NOT " + GRANTED, nativeQuery = true)
+    int deleteAllUngranted();
+}
@@ -1,11 +1,19 @@
 package codesAndStandards.springboot.userApp.repository;
 
+import codesAndStandards.springboot.userApp.dto.UserInfoDTO;
+import codesAndStandards.springboot.userApp.dto.UserListDTO;
 import codesAndStandards.springboot.userApp.entity.User;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -17,6 +25,56 @@ public interface  UserRepository extends JpaRepository<User, Long> {  //changed
     // Optional wrapper version if needed for null safety
     Optional<User> findOptionalByUsername(String username);
 
+    // ID only, for hot paths that must not load the user and its role
+    @Query("SELECT u.id FROM User u WHERE u.username = :username")
+    Optional<Long> findIdByUsername(@Param("username") String username);
+
+    // Login: username, encoded password and role name
+    @Query("SELECT u.username, u.password, r.roleName FROM User u JOIN u.role r WHERE u.username = :username")
+    List<Object[]> findCredentialsByUsername(@Param("username") String username);
+
+    // Re-hashed password from a login (BCrypt cost upgrade)
+    @Modifying
+    @Transactional
+    @Query("UPDATE User u SET u.password = :password WHERE u.username = :username")
+    int updatePasswordByUsername(@Param("username") String username, @Param("password") String password);
+
+    // Bulk import: every existing username and email, for uniqueness checks in memory
+    @Query("SELECT u.username, u.email FROM User u")
+    List<Object[]> findAllUsernamesAndEmails();
+
+    // Bulk import: IDs of users just inserted
+    @Query("SELECT u.id, u.username FROM User u WHERE u.username IN :usernames")
+    List<Object[]> findIdsByUsernameIn(@Param("usernames") Collection<String> usernames);
+
+    String USER_LIST_FILTER = "FROM User u JOIN u.role r " +
+            "WHERE (:roleName IS NULL OR r.roleName = :roleName) " +
+            "AND (:pattern IS NULL OR u.username LIKE :pattern ESCAPE '!' OR u.email LIKE :pattern ESCAPE '!' " +
+            "OR u.firstName LIKE :pattern ESCAPE '!' OR u.lastName LIKE :pattern ESCAPE '!')";
+
+    /**
+     * User admin list, one page. pattern is a LIKE pattern escaped with '!': a prefix pattern
+     * ('abc%') can seek the username, email and name indexes, a contains pattern scans them.
+     * Matching follows the column collation (case-insensitive by default on SQL Server).
+     */
+    @Query(value = "SELECT new codesAndStandards.springboot.userApp.dto.UserListDTO(" +
+            "u.id, u.username, u.firstName, u.lastName, u.email, r.id, r.roleName, u.createdAt) " +
+            USER_LIST_FILTER,
+            countQuery = "SELECT COUNT(u) " + USER_LIST_FILTER)
+    Page<UserListDTO> findUserList(@Param("pattern") String pattern,
+                                   @Param("roleName") String roleName,
+                                   Pageable pageable);
+
+    // Users per role (stat cards on the user admin page)
+    @Query("SELECT r.roleName, COUNT(u) FROM User u JOIN u.role r GROUP BY r.roleName")
+    List<Object[]> countUsersByRole();
+
+    // Every user as a slim projection (access control pickers)
+    @Query("SELECT new codesAndStandards.springboot.userApp.dto.UserInfoDTO(" +
+            "u.id, u.username, u.email, r.roleName, CONCAT(u.firstName, ' ', u.lastName)) " +
+            "FROM User u LEFT JOIN u.role r ORDER BY u.username")
+    List<UserInfoDTO> findAllUserInfo();
+
     // Check if username exists during registration
     boolean existsByUsername(String username);
 
@@ -0,0 +1,39 @@
+package codesAndStandards.springboot.userApp.security;
+
+import codesAndStandards.springboot.userApp.exception.TooManyRequestsException;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.web.authentication.SimpleUrlAuthenticationFailureHandler;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+
+/**
+ * Wrong credentials go back to the login page as before. A login rejected because the password
+ * hashing pool is saturated is answered with 429 and Retry-After instead, so the client knows to
+ * retry rather than to doubt the password.
+ */
+@Component
+public class CustomFailureHandler extends SimpleUrlAuthenticationFailureHandler {
+
+    public CustomFailureHandler() {
+        super("/login?error");
+    }
+
+    @Override
+    public void onAuthenticationFailure(HttpServletRequest request,
+                                        HttpServletResponse response,
+                                        AuthenticationException exception) throws IOException, ServletException {
+
+        if (exception.getCause() instanceof TooManyRequestsException busy) {
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(busy.getRetryAfterSeconds()));
+            response.sendError(HttpStatus.TOO_MANY_REQUESTS.value(), busy.getMessage());
+            return;
+        }
+        super.onAuthenticationFailure(request, response, exception);
+    }
+}
@@ -1,44 +1,133 @@
 package codesAndStandards.springboot.userApp.security;
 
-import codesAndStandards.springboot.userApp.entity.User;
+import codesAndStandards.springboot.userApp.event.UserAccountChangedEvent;
 import codesAndStandards.springboot.userApp.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
 
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Loads login credentials and the role authority. Warm users are answered from a bounded cache
+ * with a TTL. Entries are evicted when UserAccountChangedEvent commits, so edits, password and
+ * role changes and deletions apply to the next login without waiting for the TTL.
+ * Entries are keyed by the stored username in lower case: the database matches usernames
+ * case-insensitively, so a key taken from the login form would survive eviction.
+ * Also stores password hashes upgraded to the configured BCrypt cost at login.
+ */
 @Service
-public class CustomUserDetailsService implements UserDetailsService {
+public class CustomUserDetailsService implements UserDetailsService, UserDetailsPasswordService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CustomUserDetailsService.class);
 
     private final UserRepository userRepository;
 
+    @Value("${user-details.cache.ttl-seconds:600}")
+    private long ttlSeconds;
+
+    @Value("${user-details.cache.max-entries:5000}")
+    private int maxEntries;
+
+    private final Map<String, CachedUser> cache = new ConcurrentHashMap<>();
+    // Bumped on every eviction; a load that overlapped one is not cached
+    private final AtomicLong generation = new AtomicLong();
+
+    // Immutable copy of what a login needs; a new UserDetails is built from it every time,
+    // since Spring Security erases the password on the instance it authenticated
+    private static final class CachedUser {
+        final String username;
+        final String password;
+        final String roleName;
+        final long loadedAt;
+
+        CachedUser(String username, String password, String roleName, long loadedAt) {
+            this.username = username;
+            this.password = password;
+            this.roleName = roleName;
+            this.loadedAt = loadedAt;
+        }
+    }
+
     public CustomUserDetailsService(UserRepository userRepository) {
         this.userRepository = userRepository;
     }
 
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        User user = userRepository.findByUsername(username);
+        CachedUser user = cache.get(key(username));
+        if (user == null || System.nanoTime() - user.loadedAt >= TimeUnit.SECONDS.toNanos(ttlSeconds)) {
+            user = load(username);
+        }
 
-        if (user == null) {
+        // Create authority from role name
+        GrantedAuthority authority = new SimpleGrantedAuthority(user.roleName);
+
+        return org.springframework.security.core.userdetails.User
+                .withUsername(user.username)
+                .password(user.password)
+                .authorities(authority)
+                .build();
+    }
+
+    private CachedUser load(String username) {
+        long loadedGeneration = generation.get();
+
+        // Credentials and role name only, not the user's whole entity graph
+        List<Object[]> rows = userRepository.findCredentialsByUsername(username);
+        if (rows.isEmpty()) {
             throw new UsernameNotFoundException("Invalid username or password.");
         }
+        Object[] row = rows.get(0);
+        CachedUser user = new CachedUser((String) row[0], (String) row[1], (String) row[2], System.nanoTime());
+        logger.debug("Loaded user {} with role {}", username, user.roleName);
 
-        // Get role name from the Role entity and normalize it
-        String roleName = user.getRole().getRoleName();
+        if (cache.size() >= maxEntries) {
+            cache.clear();
+        }
+        if (generation.get() == loadedGeneration) {
+            cache.put(key(user.username), user);
+        }
+        return user;
+    }
 
-        System.out.println("User: " + username + " has role: " + roleName); // DEBUG LINE
+    private static String key(String username) {
+        return username == null ? "" : username.toLowerCase(Locale.ROOT);
+    }
 
-        // Create authority from role name
-        GrantedAuthority authority = new SimpleGrantedAuthority(roleName);
+    /**
+     * Called by Spring Security after a successful login whose stored hash uses a lower BCrypt
+     * cost than password-hash.bcrypt-strength, with the password re-hashed at the current cost
+     */
+    @Override
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        userRepository.updatePasswordByUsername(user.getUsername(), newPassword);
+        generation.incrementAndGet();
+        cache.remove(key(user.getUsername()));
+        logger.info("Upgraded password hash for user {}", user.getUsername());
 
-        return org.springframework.security.core.userdetails.User
-                .withUsername(user.getUsername())
-                .password(user.getPassword())
-                .authorities(authority)
+        return org.springframework.security.core.userdetails.User.withUserDetails(user)
+                .password(newPassword)
                 .build();
+    }
 
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onUserAccountChanged(UserAccountChangedEvent event) {
+        generation.incrementAndGet();
+        cache.remove(key(event.getUsername()));
     }
-}
\ No newline at end of file
+}
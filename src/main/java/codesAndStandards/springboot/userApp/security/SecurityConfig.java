@@ -8,8 +8,6 @@ import org.springframework.security.config.annotation.authentication.builders.Au
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
 
@@ -24,10 +22,12 @@ public class SecurityConfig {
     @Autowired
     private CustomSuccessHandler customSuccessHandler;
 
-    @Bean
-    public static PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
-    }
+    @Autowired
+    private CustomFailureHandler customFailureHandler;
+
+    // BCrypt on a bounded pool (see ThrottledPasswordEncoder)
+    @Autowired
+    private ThrottledPasswordEncoder passwordEncoder;
 
     @Bean
     public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
@@ -70,6 +70,9 @@ public class SecurityConfig {
                         // Access Groups API
                         .requestMatchers(HttpMethod.GET, "/api/access-groups/**")
                         .hasAnyAuthority("Admin", "Manager", "User")
+                        // Batch access check is a read, sent as POST only because of the id list
+                        .requestMatchers(HttpMethod.POST, "/api/access-groups/check-access/batch")
+                        .hasAnyAuthority("Admin", "Manager", "User")
                         .requestMatchers("/api/access-groups/**")
                         .hasAuthority("Admin")
 
@@ -82,6 +85,10 @@ public class SecurityConfig {
                         // Activity logs - Admin only
                         .requestMatchers("/activity-logs").hasAuthority("Admin")
 
+                        // Actuator - health is public, metrics Admin only
+                        .requestMatchers("/actuator/health").permitAll()
+                        .requestMatchers("/actuator/**").hasAuthority("Admin")
+
                         // Tags and Classifications management
                         .requestMatchers("/tags-management","/classifications-management").hasAnyAuthority("Admin","Manager")
                         .requestMatchers("/api/tags/**","/api/classifications/**").hasAnyAuthority("Admin","Manager")
@@ -109,6 +116,7 @@ public class SecurityConfig {
                         .loginPage("/login")
                         .loginProcessingUrl("/login")
                         .successHandler(customSuccessHandler)
+                        .failureHandler(customFailureHandler)
                         .permitAll()
                 )
                 .logout(logout -> logout
@@ -135,6 +143,6 @@ public class SecurityConfig {
     public void configureGlobal(AuthenticationManagerBuilder auth) throws Exception {
         auth
                 .userDetailsService(userDetailsService)
-                .passwordEncoder(passwordEncoder());
+                .passwordEncoder(passwordEncoder);
     }
 }
\ No newline at end of file
@@ -0,0 +1,174 @@
+package codesAndStandards.springboot.userApp.security;
+
+import codesAndStandards.springboot.userApp.exception.TooManyRequestsException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.authentication.AuthenticationServiceException;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * BCrypt with a bulkhead: hashing and verification run on a small dedicated pool, so a burst of
+ * logins or a scripted user import uses at most password-hash.threads cores and other requests
+ * keep theirs. Callers wait for their result. When the queue is full, the call is rejected at
+ * once with TooManyRequestsException; matches wraps it in AuthenticationServiceException so a
+ * login turns into a 429 (see CustomFailureHandler) rather than a 500.
+ *
+ * The cost factor comes from password-hash.bcrypt-strength. Hashes with a lower cost report
+ * upgradeEncoding, and Spring Security then re-hashes them on the next successful login
+ * (see CustomUserDetailsService.updatePassword).
+ */
+@Component
+public class ThrottledPasswordEncoder implements PasswordEncoder {
+
+    private static final Logger logger = LoggerFactory.getLogger(ThrottledPasswordEncoder.class);
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${password-hash.bcrypt-strength:10}")
+    private int strength;
+
+    @Value("${password-hash.threads:0}")
+    private int threads;
+
+    @Value("${password-hash.queue-capacity:200}")
+    private int queueCapacity;
+
+    @Value("${password-hash.retry-after-seconds:2}")
+    private int retryAfterSeconds;
+
+    private BCryptPasswordEncoder delegate;
+    private ThreadPoolExecutor executor;
+
+    private Timer waitTimer;
+    private Timer encodeTimer;
+    private Timer matchesTimer;
+    private Counter rejected;
+
+    public ThrottledPasswordEncoder(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    void start() {
+        delegate = new BCryptPasswordEncoder(strength);
+
+        int poolSize = threads > 0 ? threads : Math.max(2, Runtime.getRuntime().availableProcessors() / 2);
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)),
+                r -> {
+                    Thread t = new Thread(r, "password-hash-" + threadNumber.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+
+        waitTimer = meterRegistry.timer("password.hash.wait");
+        encodeTimer = meterRegistry.timer("password.hash", "operation", "encode");
+        matchesTimer = meterRegistry.timer("password.hash", "operation", "matches");
+        rejected = meterRegistry.counter("password.hash.rejected");
+        Gauge.builder("password.hash.queue.depth", executor, e -> e.getQueue().size()).register(meterRegistry);
+
+        logger.info("Password hashing pool started: {} threads, queue {}, BCrypt strength {}",
+                poolSize, queueCapacity, strength);
+    }
+
+    @PreDestroy
+    void stop() {
+        executor.shutdownNow();
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return await(submit(encodeTimer, () -> delegate.encode(rawPassword)));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        try {
+            return await(submit(matchesTimer, () -> delegate.matches(rawPassword, encodedPassword)));
+        } catch (TooManyRequestsException e) {
+            // During login only an AuthenticationException reaches CustomFailureHandler (429)
+            throw new AuthenticationServiceException(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+
+    /**
+     * Hash without waiting, for callers that create many users at once.
+     * Completes exceptionally with TooManyRequestsException if the pool is saturated.
+     */
+    public CompletableFuture<String> encodeAsync(CharSequence rawPassword) {
+        try {
+            return submit(encodeTimer, () -> delegate.encode(rawPassword));
+        } catch (TooManyRequestsException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private <T> CompletableFuture<T> submit(Timer timer, Callable<T> task) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        long queuedAt = System.nanoTime();
+        try {
+            executor.execute(() -> {
+                long startedAt = System.nanoTime();
+                waitTimer.record(startedAt - queuedAt, TimeUnit.NANOSECONDS);
+                try {
+                    result.complete(task.call());
+                } catch (Exception e) {
+                    result.completeExceptionally(e);
+                } finally {
+                    timer.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            throw rejection();
+        }
+        return result;
+    }
+
+    private TooManyRequestsException rejection() {
+        rejected.increment();
+        logger.warn("Password hashing pool saturated, rejecting request");
+        return new TooManyRequestsException("Server is busy, please retry shortly", retryAfterSeconds);
+    }
+
+    private static <T> T await(Future<T> future) {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException("Password hashing failed", cause);
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while hashing password", e);
+        }
+    }
+}
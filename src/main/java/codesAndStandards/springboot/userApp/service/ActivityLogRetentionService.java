@@ -0,0 +1,315 @@
+package codesAndStandards.springboot.userApp.service;
+
+import codesAndStandards.springboot.userApp.entity.ActivityLog;
+import codesAndStandards.springboot.userApp.repository.ActivityLogRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Activity log retention. Expired rows are removed oldest-first in small chunks,
+ * each in its own short transaction with a pause in between, so the purge never
+ * holds locks long enough to block login logging. Every chunk is appended to a
+ * gzip CSV archive (one file per day) before it is deleted.
+ *
+ * Archive and delete always cover exactly the same rows: a chunk is the lowest expired
+ * ids, and only those ids are deleted. Before a chunk is archived, its ids and the archive
+ * file lengths are written to a checkpoint file next to the archive. If the purge is
+ * interrupted, the next run checks whether the delete committed: if it did the archive is
+ * kept, otherwise the appended archive data is truncated away and the rows are archived
+ * again - so every row lands in the archive exactly once.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ActivityLogRetentionService {
+
+    private static final String CHECKPOINT_FILE = ".purge-checkpoint";
+    // Every statement that takes a chunk's ids binds them once; SQL Server allows 2100 parameters
+    static final int MAX_CHUNK_SIZE = 2000;
+    private static final String CSV_HEADER = "log_id,timestamp,user_id,username,action,details";
+    private static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
+
+    private final ActivityLogRepository activityLogRepository;
+    private final ActivityLogRollupService activityLogRollupService;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${activity-log.retention.days:90}")
+    private int retentionDays;
+
+    @Value("${activity-log.retention.chunk-size:2000}")
+    private int chunkSize;
+
+    @Value("${activity-log.retention.pause-ms:250}")
+    private long pauseMs;
+
+    @Value("${activity-log.archive.dir:archive/activity-logs}")
+    private String archiveDir;
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private final AtomicLong lastCheckpoint = new AtomicLong(0);
+    private final AtomicLong lastRunDeleted = new AtomicLong(0);
+
+    private Counter archivedRows;
+    private Counter deletedRows;
+    private Counter chunks;
+
+    @PostConstruct
+    void registerMetrics() {
+        archivedRows = meterRegistry.counter("activitylog.retention.archived.rows");
+        deletedRows = meterRegistry.counter("activitylog.retention.deleted.rows");
+        chunks = meterRegistry.counter("activitylog.retention.chunks");
+        Gauge.builder("activitylog.retention.running", running, r -> r.get() ? 1 : 0).register(meterRegistry);
+        Gauge.builder("activitylog.retention.checkpoint", lastCheckpoint, AtomicLong::get).register(meterRegistry);
+        Gauge.builder("activitylog.retention.last.run.deleted", lastRunDeleted, AtomicLong::get).register(meterRegistry);
+    }
+
+    /**
+     * Archive and delete every log row older than the retention window.
+     * Returns the number of rows deleted, or -1 if a purge is already running.
+     */
+    public long purgeExpiredLogs() {
+        if (!running.compareAndSet(false, true)) {
+            log.info("Activity log purge already running, skipping");
+            return -1;
+        }
+        long totalDeleted = 0;
+        try {
+            recoverInterruptedChunk();
+
+            LocalDateTime cutoff = LocalDateTime.now().minusDays(retentionDays);
+            int limit = Math.max(1, Math.min(chunkSize, MAX_CHUNK_SIZE));
+
+            while (true) {
+                List<ActivityLog> chunk = activityLogRepository.findExpiredChunk(cutoff, PageRequest.of(0, limit));
+                if (chunk.isEmpty()) {
+                    break;
+                }
+                List<Long> logIds = chunk.stream().map(ActivityLog::getLogId).collect(Collectors.toList());
+                Map<LocalDate, List<ActivityLog>> byDay = chunk.stream()
+                        .collect(Collectors.groupingBy(l -> l.getTimestamp().toLocalDate(), TreeMap::new, Collectors.toList()));
+
+                // Record what is about to happen, so an interruption can be rolled back or completed
+                Map<Path, Long> lengths = new LinkedHashMap<>();
+                for (LocalDate day : byDay.keySet()) {
+                    Path file = dayFile(day);
+                    lengths.put(file, Files.exists(file) ? Files.size(file) : 0L);
+                }
+                writeCheckpoint(new PurgeCheckpoint(logIds, lengths));
+
+                for (Map.Entry<LocalDate, List<ActivityLog>> entry : byDay.entrySet()) {
+                    appendToDayFile(dayFile(entry.getKey()), entry.getValue());
+                }
+                archivedRows.increment(chunk.size());
+
+                int deleted = activityLogRollupService.deleteLogs(logIds);
+                clearCheckpoint();
+                lastCheckpoint.set(logIds.get(logIds.size() - 1));
+
+                totalDeleted += deleted;
+                deletedRows.increment(deleted);
+                chunks.increment();
+
+                if (chunk.size() < limit) {
+                    break;
+                }
+                Thread.sleep(pauseMs);
+            }
+
+            if (totalDeleted > 0) {
+                log.info("Purged {} activity logs older than {}", totalDeleted, cutoff);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Activity log purge interrupted after {} rows", totalDeleted);
+        } catch (Exception e) {
+            log.error("Activity log purge stopped after {} rows: {}", totalDeleted, e.getMessage(), e);
+        } finally {
+            lastRunDeleted.set(totalDeleted);
+            running.set(false);
+        }
+        return totalDeleted;
+    }
+
+    // ================= ARCHIVE =================
+
+    private Path dayFile(LocalDate day) {
+        return Paths.get(archiveDir,
+                String.valueOf(day.getYear()),
+                String.format("%02d", day.getMonthValue()),
+                "activity-log-" + day + ".csv.gz");
+    }
+
+    /**
+     * Each append adds a new gzip member to the day's file; gzip readers treat
+     * concatenated members as one stream.
+     */
+    private void appendToDayFile(Path file, List<ActivityLog> logs) throws IOException {
+        Files.createDirectories(file.getParent());
+        boolean newFile = !Files.exists(file) || Files.size(file) == 0;
+
+        try (FileOutputStream fos = new FileOutputStream(file.toFile(), true)) {
+            GZIPOutputStream gzip = new GZIPOutputStream(fos);
+            BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(gzip, StandardCharsets.UTF_8));
+            if (newFile) {
+                writer.write(CSV_HEADER);
+                writer.newLine();
+            }
+            for (ActivityLog l : logs) {
+                writer.write(toCsvLine(l));
+                writer.newLine();
+            }
+            writer.flush();
+            gzip.finish();
+            fos.getFD().sync();
+        }
+    }
+
+    /** Cut a day file back to its length before an interrupted append (0 = the file was new) */
+    private static void truncate(Path file, long length) throws IOException {
+        if (!Files.exists(file)) {
+            return;
+        }
+        if (length == 0) {
+            Files.delete(file);
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            if (channel.size() > length) {
+                channel.truncate(length);
+                channel.force(true);
+            }
+        }
+    }
+
+    private String toCsvLine(ActivityLog l) {
+        return String.join(",",
+                String.valueOf(l.getLogId()),
+                l.getTimestamp().format(TIMESTAMP_FORMAT),
+                l.getUser() != null ? String.valueOf(l.getUser().getId()) : "",
+                csv(l.getUser() != null ? l.getUser().getUsername() : null),
+                csv(l.getAction()),
+                csv(l.getDetails()));
+    }
+
+    private static String csv(String value) {
+        if (value == null) {
+            return "";
+        }
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+
+    // ================= CHECKPOINT =================
+
+    /** The chunk being purged and each archive file's length before it was appended */
+    private record PurgeCheckpoint(List<Long> logIds, Map<Path, Long> archiveLengths) {
+    }
+
+    /**
+     * Finish a chunk left behind by an interrupted run. If none of its rows exist any more the
+     * delete committed and the archive is complete; otherwise the archive appends are undone and
+     * the rows are picked up again by the normal loop.
+     */
+    private void recoverInterruptedChunk() throws IOException {
+        PurgeCheckpoint pending = readCheckpoint();
+        if (pending == null) {
+            return;
+        }
+        long remaining = pending.logIds().isEmpty() ? 0 : activityLogRepository.countByLogIdIn(pending.logIds());
+        if (remaining == 0) {
+            log.info("Previous activity log purge chunk of {} rows had committed", pending.logIds().size());
+        } else {
+            log.info("Rolling back archive of interrupted purge chunk ({} of {} rows not deleted)",
+                    remaining, pending.logIds().size());
+            for (Map.Entry<Path, Long> entry : pending.archiveLengths().entrySet()) {
+                truncate(entry.getKey(), entry.getValue());
+            }
+        }
+        clearCheckpoint();
+    }
+
+    /**
+     * Format: first line is the comma-separated log ids, then one "length path" line per archive file
+     */
+    private PurgeCheckpoint readCheckpoint() {
+        Path file = Paths.get(archiveDir, CHECKPOINT_FILE);
+        try {
+            if (!Files.exists(file)) {
+                return null;
+            }
+            List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+            if (lines.isEmpty() || lines.get(0).isBlank()) {
+                return null;
+            }
+            List<Long> logIds = Arrays.stream(lines.get(0).split(","))
+                    .map(String::trim)
+                    .map(Long::parseLong)
+                    .collect(Collectors.toList());
+            Map<Path, Long> lengths = new LinkedHashMap<>();
+            for (String line : lines.subList(1, lines.size())) {
+                int space = line.indexOf(' ');
+                if (space > 0) {
+                    lengths.put(Paths.get(line.substring(space + 1)), Long.parseLong(line.substring(0, space)));
+                }
+            }
+            return new PurgeCheckpoint(logIds, lengths);
+        } catch (Exception e) {
+            log.warn("Ignoring unreadable purge checkpoint {}: {}", file, e.getMessage());
+        }
+        return null;
+    }
+
+    private void writeCheckpoint(PurgeCheckpoint checkpoint) throws IOException {
+        StringBuilder content = new StringBuilder(checkpoint.logIds().stream()
+                .map(String::valueOf)
+                .collect(Collectors.joining(",")));
+        for (Map.Entry<Path, Long> entry : checkpoint.archiveLengths().entrySet()) {
+            content.append('\n').append(entry.getValue()).append(' ').append(entry.getKey());
+        }
+
+        Path dir = Paths.get(archiveDir);
+        Files.createDirectories(dir);
+        Path tmp = dir.resolve(CHECKPOINT_FILE + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            channel.write(StandardCharsets.UTF_8.encode(content.toString()));
+            channel.force(true);
+        }
+        Files.move(tmp, dir.resolve(CHECKPOINT_FILE),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void clearCheckpoint() throws IOException {
+        Files.deleteIfExists(Paths.get(archiveDir, CHECKPOINT_FILE));
+    }
+}
@@ -0,0 +1,146 @@
+package codesAndStandards.springboot.userApp.service;
+
+import codesAndStandards.springboot.userApp.dto.ActivityLogStatsDto;
+import codesAndStandards.springboot.userApp.entity.ActivityLog;
+import codesAndStandards.springboot.userApp.entity.ActivityLogRollup;
+import codesAndStandards.springboot.userApp.repository.ActivityLogRepository;
+import codesAndStandards.springboot.userApp.repository.ActivityLogRollupRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Keeps the ActivityLogRollup buckets in step with the ActivityLog table.
+ * Every insert and delete of log rows goes through here so that the row and
+ * its bucket counts commit (or roll back) together.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ActivityLogRollupService {
+
+    private final ActivityLogRepository activityLogRepository;
+    private final ActivityLogRollupRepository rollupRepository;
+    private final PlatformTransactionManager transactionManager;
+
+    /**
+     * Save a log row and add it to its hour and day buckets in one transaction
+     */
+    @Transactional
+    public ActivityLog saveAndCount(ActivityLog activityLog) {
+        ActivityLog saved = activityLogRepository.save(activityLog);
+
+        LocalDateTime timestamp = saved.getTimestamp();
+        long userId = saved.getUser() != null ? saved.getUser().getId() : ActivityLogRollup.NO_USER;
+        String outcome = outcomeOf(saved.getAction());
+
+        rollupRepository.increment(ActivityLogRollup.HOUR, timestamp.truncatedTo(ChronoUnit.HOURS),
+                saved.getAction(), userId, outcome);
+        rollupRepository.increment(ActivityLogRollup.DAY, timestamp.toLocalDate().atStartOfDay(),
+                saved.getAction(), userId, outcome);
+        return saved;
+    }
+
+    /**
+     * Delete the given log rows and take them out of the buckets, all or nothing
+     */
+    @Transactional
+    public int deleteLogs(Collection<Long> logIds) {
+        rollupRepository.subtractLogs(logIds);
+        rollupRepository.deleteEmptyBuckets();
+        return activityLogRepository.deleteLogsByIds(logIds);
+    }
+
+    /**
+     * Dashboard counters summed from the day buckets
+     */
+    @Transactional(readOnly = true)
+    public ActivityLogStatsDto getStats() {
+        Map<String, Long> countsByAction = new TreeMap<>();
+        long total = 0;
+        long failed = 0;
+        for (Object[] row : rollupRepository.sumByAction()) {
+            String action = (String) row[0];
+            long count = ((Number) row[1]).longValue();
+            countsByAction.put(action, count);
+            total += count;
+            if (ActivityLogService.isFailureAction(action)) {
+                failed += count;
+            }
+        }
+
+        return ActivityLogStatsDto.builder()
+                .totalLogs(total)
+                .todayCount(getTodayCount())
+                .successCount(total - failed)
+                .failedCount(failed)
+                .downloadCount(countsByAction.getOrDefault(ActivityLogService.DOCUMENT_DOWNLOAD, 0L))
+                .countsByAction(countsByAction)
+                .build();
+    }
+
+    /** Events logged today, read from today's day bucket */
+    @Transactional(readOnly = true)
+    public long getTodayCount() {
+        Long today = rollupRepository.sumForBucket(ActivityLogRollup.DAY, LocalDate.now().atStartOfDay());
+        return today != null ? today : 0L;
+    }
+
+    /** Events with the given outcome since the first log row, summed from the day buckets */
+    @Transactional(readOnly = true)
+    public long countByOutcome(String outcome) {
+        Long count = rollupRepository.sumTotalsForOutcome(outcome);
+        return count != null ? count : 0L;
+    }
+
+    /**
+     * One-time backfill: on startup, if the day buckets do not add up to the log table
+     * (first deployment, or rows changed behind the application's back), rebuild them.
+     * The first check uses the partition row count so a healthy startup never scans ActivityLog.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillIfNeeded() {
+        try {
+            Long approximate = rollupRepository.approximateLogCount();
+            if (isConsistent(approximate != null ? approximate : 0L)) {
+                return;
+            }
+            new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                // Re-check under an exclusive lock so no event is written while we rebuild
+                Long lockedCount = rollupRepository.lockAndCountLogs();
+                if (isConsistent(lockedCount != null ? lockedCount : 0L)) {
+                    return;
+                }
+                log.info("Rebuilding activity log rollups from {} log rows", lockedCount);
+                rollupRepository.deleteAllBuckets();
+                int buckets = rollupRepository.rebuildFromLogs();
+                log.info("Activity log rollups rebuilt: {} buckets", buckets);
+            });
+        } catch (Exception e) {
+            log.error("Failed to backfill activity log rollups: {}", e.getMessage(), e);
+        }
+    }
+
+    private boolean isConsistent(long logCount) {
+        Long rolledUp = rollupRepository.sumTotals();
+        return rolledUp != null && rolledUp == logCount;
+    }
+
+    private static String outcomeOf(String action) {
+        return ActivityLogService.isFailureAction(action)
+                ? ActivityLogService.OUTCOME_FAILED
+                : ActivityLogService.OUTCOME_SUCCESS;
+    }
+}
@@ -1,18 +1,20 @@
 package codesAndStandards.springboot.userApp.service;
 
+import codesAndStandards.springboot.userApp.dto.ActivityLogFilter;
+import codesAndStandards.springboot.userApp.dto.ActivityLogPage;
+import codesAndStandards.springboot.userApp.dto.ActivityLogStatsDto;
 import codesAndStandards.springboot.userApp.entity.ActivityLog;
 import codesAndStandards.springboot.userApp.entity.User;
 import codesAndStandards.springboot.userApp.repository.ActivityLogRepository;
 import codesAndStandards.springboot.userApp.repository.UserRepository;
-import jakarta.transaction.Transactional;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
-import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.LocalTime;
 import java.util.List;
+import java.util.TreeMap;
 
 @Service
 public class ActivityLogService {
@@ -23,6 +25,12 @@ public class ActivityLogService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private ActivityLogRollupService activityLogRollupService;
+
+    @Autowired
+    private ActivityLogRetentionService activityLogRetentionService;
+
     // Action constants
     public static final String LOGIN = "LOGIN";
     public static final String LOGIN_FAILED = "LOGIN_FAILED";
@@ -64,13 +72,27 @@ public class ActivityLogService {
     public static final String BULK_DOCUMENT_UPLOADED = "BULK_DOCUMENT_UPLOADED";
     public static final String BULK_DOCUMENT_UPLOAD_FAIL = "BULK_DOCUMENT_UPLOAD_FAIL";
 
+    public static final String BULK_USER_IMPORTED = "BULK_USER_IMPORTED";
+    public static final String BULK_USER_IMPORT_FAIL = "BULK_USER_IMPORT_FAIL";
+
+    public static final String OUTCOME_SUCCESS = "SUCCESS";
+    public static final String OUTCOME_FAILED = "FAILED";
+
+    public static final int DEFAULT_PAGE_SIZE = 100;
+    public static final int MAX_PAGE_SIZE = 500;
+
+    /** Failure actions end with _FAILED or _FAIL */
+    public static boolean isFailureAction(String action) {
+        return action != null && action.contains("FAIL");
+    }
+
     /**
      * Simple method to log activity
      */
     public void log(User user, String action, String details) {
         try {
             ActivityLog log = new ActivityLog(user, action, details);
-            activityLogRepository.save(log);
+            activityLogRollupService.saveAndCount(log);
         } catch (Exception e) {
             // Silent fail - logging shouldn't break the app
             System.err.println("Failed to log activity: " + e.getMessage());
@@ -100,6 +122,54 @@ public class ActivityLogService {
         return activityLogRepository.findAllByOrderByTimestampDesc();
     }
 
+    /**
+     * One page of logs (newest first) matching the filter, starting after the given cursor.
+     * Reads one extra row to find out whether an older page exists.
+     */
+    public ActivityLogPage getLogsPage(ActivityLogFilter filter, Long beforeId, int size) {
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        ActivityLogFilter f = filter != null ? filter : new ActivityLogFilter();
+
+        Long userId = null;
+        if (f.getUsername() != null && !f.getUsername().isBlank()) {
+            User user = userRepository.findByUsername(f.getUsername().trim());
+            if (user == null) {
+                return new ActivityLogPage(List.of(), false, null);
+            }
+            userId = user.getId();
+        }
+
+        String action = (f.getAction() != null && !f.getAction().isBlank()) ? f.getAction().trim() : null;
+        String outcome = null;
+        if (OUTCOME_SUCCESS.equalsIgnoreCase(f.getOutcome())) {
+            outcome = OUTCOME_SUCCESS;
+        } else if (OUTCOME_FAILED.equalsIgnoreCase(f.getOutcome())) {
+            outcome = OUTCOME_FAILED;
+        }
+        LocalDateTime fromTime = f.getFromDate() != null ? f.getFromDate().atStartOfDay() : null;
+        LocalDateTime toTime = f.getToDate() != null ? f.getToDate().plusDays(1).atStartOfDay() : null;
+
+        List<ActivityLog> rows = activityLogRepository.findPage(
+                beforeId, userId, action, fromTime, toTime, outcome, PageRequest.of(0, pageSize + 1));
+
+        boolean hasMore = rows.size() > pageSize;
+        List<ActivityLog> logs = hasMore ? rows.subList(0, pageSize) : rows;
+        Long nextBeforeId = hasMore ? logs.get(logs.size() - 1).getLogId() : null;
+        return new ActivityLogPage(logs, hasMore, nextBeforeId);
+    }
+
+    /**
+     * Dashboard counters, served from the rollup buckets
+     */
+    public ActivityLogStatsDto getDashboardStats() {
+        try {
+            return activityLogRollupService.getStats();
+        } catch (Exception e) {
+            System.err.println("Failed to load activity log stats: " + e.getMessage());
+            return ActivityLogStatsDto.builder().countsByAction(new TreeMap<>()).build();
+        }
+    }
+
     /**
      * Get user's logs
      */
@@ -112,55 +182,28 @@ public class ActivityLogService {
     }
 
     /**
-     * Get today's count - FIXED METHOD
+     * Get today's count
      */
     public Long getTodayCount() {
-        try {
-            LocalDateTime startOfDay = LocalDate.now().atStartOfDay();
-            LocalDateTime endOfDay = LocalDate.now().atTime(LocalTime.MAX);
-            return activityLogRepository.countTodayLogs(startOfDay, endOfDay);
-        } catch (Exception e) {
-            System.err.println("Failed to get today's count: " + e.getMessage());
-            return 0L;
-        }
+        return activityLogRollupService.getTodayCount();
     }
 
     /** Count all successful actions */
     public Long countSuccessLogs() {
-        try {
-            return activityLogRepository.countSuccessLogs();
-        } catch (Exception e) {
-            System.err.println("Failed to count success logs: " + e.getMessage());
-            return 0L;
-        }
+        return activityLogRollupService.countByOutcome(OUTCOME_SUCCESS);
     }
 
     /** Count all failed actions */
     public Long countFailedLogs() {
-        try {
-            return activityLogRepository.countFailedLogs();
-        } catch (Exception e) {
-            System.err.println("Failed to count failed logs: " + e.getMessage());
-            return 0L;
-        }
+        return activityLogRollupService.countByOutcome(OUTCOME_FAILED);
     }
 
     /**
-     * 🧹 Automatically delete old logs (older than 90 days)
-     * Runs daily at 2 AM
+     * 🧹 Automatically archive and delete old logs (older than the retention window, 90 days by default)
+     * Runs daily at 2 AM, in small chunks - see ActivityLogRetentionService
      */
-    @Scheduled(cron = "0 0 2 * * ?") // runs every day at 2 AM
-//    @Scheduled(cron = "0 * * * * ?") // runs every 1 minute
-    @Transactional
+    @Scheduled(cron = "${activity-log.retention.cron:0 0 2 * * ?}")
     public void deleteOldLogs() {
-        try {
-            LocalDateTime cutoffDate = LocalDateTime.now().minusDays(90); // 90 days retention
-            int deletedCount = activityLogRepository.deleteOldLogs(cutoffDate);
-            if (deletedCount > 0) {
-                System.out.println("🧹 Deleted " + deletedCount + " old activity logs before " + cutoffDate);
-            }
-        } catch (Exception e) {
-            System.err.println("Failed to delete old logs: " + e.getMessage());
-        }
+        activityLogRetentionService.purgeExpiredLogs();
     }
 }
\ No newline at end of file
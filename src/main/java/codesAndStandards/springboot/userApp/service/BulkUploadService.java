@@ -14,6 +14,7 @@ import codesAndStandards.springboot.userApp.repository.ClassificationRepository;
 import codesAndStandards.springboot.userApp.repository.UserRepository;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.pdfbox.io.MemoryUsageSetting;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.poi.ss.usermodel.*;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
@@ -60,6 +61,18 @@ public class BulkUploadService {
     @Autowired
     private ClassificationRepository classificationRepository;
 
+    @Autowired
+    private PdfWorkPool pdfWorkPool;
+
+    @Autowired
+    private RenditionService renditionService;
+
+    @Autowired
+    private LinearizationService linearizationService;
+
+    @Autowired
+    private DocumentProfileService documentProfileService;
+
     @Value("${file.network-base-path:}")
     private String networkBasePath; // e.g., \\172.16.20.241\DEV-FileServer\USERDATA
 
@@ -429,7 +442,7 @@ public class BulkUploadService {
 
             if (pdfFile != null) {
                 uploadDocument(pdfFile, metadata);
-                result.addSuccess(filename, metadata.getTitle());
+                result.addSuccess(filename);
             } else {
                 result.addFailure(filename, "PDF file not found");
             }
@@ -833,6 +846,9 @@ public class BulkUploadService {
 
         // 6. SAVE DOCUMENT FIRST (to get ID for relationships)
         document = documentRepository.save(document);
+        renditionService.warmThumbnail(document.getId(), document.getFilePath());
+        linearizationService.requestLinearization(document.getId());
+        documentProfileService.requestProfile(document.getId());
 
         // 7. HANDLE TAGS (after document is saved)
         if (metadata.getTags() != null && !metadata.getTags().isEmpty()) {
@@ -896,11 +912,19 @@ public class BulkUploadService {
 
     /**
      * Detect page count from PDF file
+     * Parsing runs on the bounded PDF worker pool; a saturated pool surfaces as an IOException
+     * here, and callers already treat that as "page count unknown".
      */
     private Integer detectPageCount(MultipartFile file) throws IOException {
-        try (InputStream inputStream = file.getInputStream();
-             PDDocument document = PDDocument.load(inputStream)) {
-            return document.getNumberOfPages();
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        String username = authentication != null ? authentication.getName() : null;
+        try {
+            return pdfWorkPool.call(username, () -> {
+                try (InputStream inputStream = file.getInputStream();
+                     PDDocument document = PDDocument.load(inputStream, MemoryUsageSetting.setupTempFileOnly())) {
+                    return document.getNumberOfPages();
+                }
+            });
         } catch (Exception e) {
             throw new IOException("Failed to detect page count: " + e.getMessage(), e);
         }
@@ -0,0 +1,700 @@
+package codesAndStandards.springboot.userApp.service;
+
+import codesAndStandards.springboot.userApp.dto.BulkUserImportReport;
+import codesAndStandards.springboot.userApp.entity.Role;
+import codesAndStandards.springboot.userApp.event.GroupMembershipChangedEvent;
+import codesAndStandards.springboot.userApp.exception.TooManyRequestsException;
+import codesAndStandards.springboot.userApp.repository.GroupRepository;
+import codesAndStandards.springboot.userApp.repository.RoleRepository;
+import codesAndStandards.springboot.userApp.repository.UserRepository;
+import codesAndStandards.springboot.userApp.security.ThrottledPasswordEncoder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+import org.xml.sax.InputSource;
+import org.xml.sax.XMLReader;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.Pattern;
+
+/**
+ * Creates users from a CSV or .xlsx file as a background job.
+ *
+ * Columns (header row, any order): First Name, Last Name, Username, Email, Password, Role and an
+ * optional Groups column with group names separated by ';'. The file is read row by row (the
+ * workbook through POI's streaming SAX reader), first only to count the rows against
+ * user-import.max-rows, so a file that is too large is rejected before anything is written.
+ * Rows are checked against usernames, emails,
+ * roles and groups loaded once at the start. Passwords are hashed on the password pool, and
+ * users and their GroupUser rows are inserted with JDBC batches, one transaction per batch. If a
+ * batch fails (e.g. a user was created meanwhile), its rows are retried one by one so each row
+ * gets its own outcome in the report.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class BulkUserImportService {
+
+    private static final Pattern EMAIL = Pattern.compile("^[^@\\s]+@[^@\\s]+\\.[^@\\s]+$");
+
+    private static final String COL_FIRST_NAME = "firstname";
+    private static final String COL_LAST_NAME = "lastname";
+    private static final String COL_USERNAME = "username";
+    private static final String COL_EMAIL = "email";
+    private static final String COL_PASSWORD = "password";
+    private static final String COL_ROLE = "role";
+    private static final String COL_GROUPS = "groups";
+    private static final List<String> REQUIRED_COLUMNS =
+            List.of(COL_FIRST_NAME, COL_LAST_NAME, COL_USERNAME, COL_EMAIL, COL_PASSWORD, COL_ROLE);
+
+    private static final String INSERT_USER = "INSERT INTO users " +
+            "(first_name, last_name, username, password, email, role_id, created_at, created_by) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_GROUP_USER =
+            "INSERT INTO GroupUser (user_id, groupId, created_by, created_at) VALUES (?, ?, ?, ?)";
+
+    private final UserRepository userRepository;
+    private final RoleRepository roleRepository;
+    private final GroupRepository groupRepository;
+    private final ThrottledPasswordEncoder passwordEncoder;
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ActivityLogService activityLogService;
+
+    @Value("${user-import.batch-size:500}")
+    private int batchSize;
+
+    @Value("${user-import.max-rows:10000}")
+    private int maxRows;
+
+    // Passwords hashed at a time; leaves room in the password pool's queue for logins
+    @Value("${user-import.hash-window:64}")
+    private int hashWindow;
+
+    @Value("${user-import.job-retention-minutes:60}")
+    private long jobRetentionMinutes;
+
+    private ExecutorService executor;
+    private final Map<String, ImportJob> jobs = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void init() {
+        // One import at a time; each one is already parallel where it matters (hashing)
+        executor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "user-import-worker");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @PreDestroy
+    void stop() {
+        executor.shutdownNow();
+    }
+
+    // ===== Jobs =====
+
+    /**
+     * Store the upload and queue the import. Returns the job ID to poll.
+     */
+    public String startImport(MultipartFile file, String requestedBy) throws IOException {
+        if (file == null || file.isEmpty()) {
+            throw new IllegalArgumentException("No file uploaded");
+        }
+        String fileName = file.getOriginalFilename() != null ? file.getOriginalFilename() : "users";
+        String lower = fileName.toLowerCase(Locale.ROOT);
+        boolean excel = lower.endsWith(".xlsx");
+        if (!excel && !lower.endsWith(".csv")) {
+            throw new IllegalArgumentException("Only .csv and .xlsx files are supported");
+        }
+
+        Path upload = Files.createTempFile("user-import-", excel ? ".xlsx" : ".csv");
+        file.transferTo(upload);
+
+        Long createdBy = userRepository.findIdByUsername(requestedBy).orElse(null);
+        ImportJob job = new ImportJob(UUID.randomUUID().toString(), fileName);
+        jobs.put(job.id, job);
+
+        executor.execute(() -> run(job, upload, excel, requestedBy, createdBy));
+        log.info("Queued user import {} ({}) for {}", job.id, fileName, requestedBy);
+        return job.id;
+    }
+
+    public BulkUserImportReport getReport(String jobId) {
+        ImportJob job = jobs.get(jobId);
+        if (job == null) {
+            throw new IllegalArgumentException("Import job not found: " + jobId);
+        }
+        return job.toReport();
+    }
+
+    @Scheduled(fixedDelayString = "${user-import.cleanup-interval-ms:600000}")
+    public void purgeFinishedJobs() {
+        LocalDateTime cutoff = LocalDateTime.now().minusMinutes(jobRetentionMinutes);
+        jobs.values().removeIf(job -> job.isFinishedBefore(cutoff));
+    }
+
+    private void run(ImportJob job, Path upload, boolean excel, String requestedBy, Long createdBy) {
+        job.start();
+        try {
+            read(upload, excel, new RowCounter());
+
+            Importer importer = new Importer(job, createdBy);
+            read(upload, excel, importer);
+            importer.finish();
+            job.complete();
+
+            activityLogService.logByUsername(requestedBy, ActivityLogService.BULK_USER_IMPORTED,
+                    "Imported " + job.created + " users from " + job.fileName + " (" + job.failed + " rows failed)");
+            log.info("User import {} finished: {} created, {} failed", job.id, job.created, job.failed);
+
+        } catch (Exception e) {
+            job.fail(e.getMessage());
+            activityLogService.logByUsername(requestedBy, ActivityLogService.BULK_USER_IMPORT_FAIL,
+                    "User import from " + job.fileName + " failed: " + e.getMessage());
+            log.error("User import {} failed", job.id, e);
+        } finally {
+            try {
+                Files.deleteIfExists(upload);
+            } catch (IOException e) {
+                log.warn("Could not delete upload {}: {}", upload, e.getMessage());
+            }
+        }
+    }
+
+    // ===== Reading =====
+
+    /**
+     * Receives the file's rows in order, the header first; row numbers are 1-based
+     */
+    private interface RowHandler {
+        void row(int rowNumber, List<String> cells);
+    }
+
+    private void read(Path upload, boolean excel, RowHandler handler) throws Exception {
+        if (excel) {
+            readWorkbook(upload, handler);
+        } else {
+            readCsv(upload, handler);
+        }
+    }
+
+    private void readCsv(Path upload, RowHandler handler) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(upload, StandardCharsets.UTF_8)) {
+            String line;
+            int rowNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                rowNumber++;
+                if (rowNumber == 1 && line.startsWith("\uFEFF")) {
+                    line = line.substring(1); // BOM written by Excel
+                }
+                handler.row(rowNumber, parseCsvLine(line));
+            }
+        }
+    }
+
+    /**
+     * One CSV record: comma separated, fields may be quoted with "" as an escaped quote.
+     * Quoted line breaks are not supported.
+     */
+    static List<String> parseCsvLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private void readWorkbook(Path upload, RowHandler handler) throws Exception {
+        try (OPCPackage pkg = OPCPackage.open(upload.toFile(), PackageAccess.READ)) {
+            XSSFReader reader = new XSSFReader(pkg);
+            ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(pkg);
+            XSSFReader.SheetIterator sheets = (XSSFReader.SheetIterator) reader.getSheetsData();
+            if (!sheets.hasNext()) {
+                throw new IllegalArgumentException("The workbook has no sheets");
+            }
+
+            // First sheet only, streamed: rows are handed over as they are parsed
+            try (InputStream sheet = sheets.next()) {
+                XMLReader parser = XMLHelper.newXMLReader();
+                parser.setContentHandler(new XSSFSheetXMLHandler(reader.getStylesTable(), null, strings,
+                        new SheetRows(handler), new DataFormatter(), false));
+                parser.parse(new InputSource(sheet));
+            }
+        }
+    }
+
+    private static final class SheetRows implements XSSFSheetXMLHandler.SheetContentsHandler {
+
+        private final RowHandler handler;
+        private final List<String> cells = new ArrayList<>();
+        private int nextColumn;
+
+        SheetRows(RowHandler handler) {
+            this.handler = handler;
+        }
+
+        @Override
+        public void startRow(int rowNum) {
+            cells.clear();
+            nextColumn = 0;
+        }
+
+        @Override
+        public void endRow(int rowNum) {
+            handler.row(rowNum + 1, new ArrayList<>(cells));
+        }
+
+        @Override
+        public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+            int column = cellReference != null ? new CellReference(cellReference).getCol() : nextColumn;
+            // Blank cells are not reported, so pad up to this one
+            while (cells.size() < column) {
+                cells.add("");
+            }
+            cells.add(formattedValue);
+            nextColumn = column + 1;
+        }
+    }
+
+    private static boolean isBlank(List<String> cells) {
+        return cells.stream().allMatch(c -> c == null || c.isBlank());
+    }
+
+    /**
+     * First pass: stops as soon as the file has more than user-import.max-rows users
+     */
+    private final class RowCounter implements RowHandler {
+
+        private boolean headerRead;
+        private int dataRows;
+
+        @Override
+        public void row(int rowNumber, List<String> cells) {
+            if (!headerRead) {
+                headerRead = true;
+                return;
+            }
+            if (!isBlank(cells) && ++dataRows > maxRows) {
+                throw new IllegalArgumentException("The file has more than " + maxRows + " users");
+            }
+        }
+    }
+
+    // ===== Importing =====
+
+    private static final class ImportRow {
+        final int rowNumber;
+        final String firstName;
+        final String lastName;
+        final String username;
+        final String email;
+        final String password;
+        final Long roleId;
+        final Set<Long> groupIds;
+        String encodedPassword;
+
+        ImportRow(int rowNumber, String firstName, String lastName, String username, String email,
+                  String password, Long roleId, Set<Long> groupIds) {
+            this.rowNumber = rowNumber;
+            this.firstName = firstName;
+            this.lastName = lastName;
+            this.username = username;
+            this.email = email;
+            this.password = password;
+            this.roleId = roleId;
+            this.groupIds = groupIds;
+        }
+    }
+
+    /**
+     * Validates rows as they are read and writes them in batches
+     */
+    private final class Importer implements RowHandler {
+
+        private final ImportJob job;
+        private final Long createdBy;
+
+        private final Set<String> existingUsernames = new HashSet<>();
+        private final Set<String> existingEmails = new HashSet<>();
+        private final Map<String, Integer> usernamesInFile = new HashMap<>();
+        private final Map<String, Integer> emailsInFile = new HashMap<>();
+        private final Map<String, Long> roleIds = new HashMap<>();
+        private final Map<String, Long> groupIds = new HashMap<>();
+
+        private Map<String, Integer> columns;
+        private final List<ImportRow> batch = new ArrayList<>();
+
+        Importer(ImportJob job, Long createdBy) {
+            this.job = job;
+            this.createdBy = createdBy;
+
+            for (Object[] row : userRepository.findAllUsernamesAndEmails()) {
+                existingUsernames.add(key((String) row[0]));
+                existingEmails.add(key((String) row[1]));
+            }
+            for (Role role : roleRepository.findAll()) {
+                roleIds.put(key(role.getRoleName()), role.getId());
+            }
+            for (Object[] row : groupRepository.findAllIdsAndNames()) {
+                groupIds.put(key((String) row[1]), (Long) row[0]);
+            }
+        }
+
+        @Override
+        public void row(int rowNumber, List<String> cells) {
+            if (columns == null) {
+                columns = readHeader(cells);
+                return;
+            }
+            if (isBlank(cells)) {
+                return;
+            }
+
+            String username = cell(cells, COL_USERNAME);
+            String error = validate(rowNumber, cells, username);
+            if (error != null) {
+                job.addFailed(rowNumber, username, error);
+                return;
+            }
+
+            batch.add(new ImportRow(rowNumber,
+                    cell(cells, COL_FIRST_NAME),
+                    cell(cells, COL_LAST_NAME),
+                    username,
+                    cell(cells, COL_EMAIL),
+                    cell(cells, COL_PASSWORD),
+                    roleIds.get(key(cell(cells, COL_ROLE))),
+                    resolveGroups(cell(cells, COL_GROUPS))));
+            if (batch.size() >= batchSize) {
+                flush();
+            }
+        }
+
+        void finish() {
+            if (columns == null) {
+                throw new IllegalArgumentException("The file is empty");
+            }
+            flush();
+        }
+
+        private Map<String, Integer> readHeader(List<String> cells) {
+            Map<String, Integer> header = new HashMap<>();
+            for (int i = 0; i < cells.size(); i++) {
+                String name = cells.get(i) == null ? "" : cells.get(i).replaceAll("[\\s_]", "").toLowerCase(Locale.ROOT);
+                header.putIfAbsent(name, i);
+            }
+            List<String> missing = REQUIRED_COLUMNS.stream().filter(c -> !header.containsKey(c)).toList();
+            if (!missing.isEmpty()) {
+                throw new IllegalArgumentException("Missing columns: " + String.join(", ", missing));
+            }
+            return header;
+        }
+
+        private String cell(List<String> cells, String column) {
+            Integer index = columns.get(column);
+            if (index == null || index >= cells.size() || cells.get(index) == null) {
+                return "";
+            }
+            return cells.get(index).trim();
+        }
+
+        private String validate(int rowNumber, List<String> cells, String username) {
+            for (String column : REQUIRED_COLUMNS) {
+                if (cell(cells, column).isEmpty()) {
+                    return "Missing " + column;
+                }
+            }
+            String email = cell(cells, COL_EMAIL);
+            if (!EMAIL.matcher(email).matches()) {
+                return "Invalid email: " + email;
+            }
+            if (existingUsernames.contains(key(username))) {
+                return "Username already exists";
+            }
+            if (existingEmails.contains(key(email))) {
+                return "Email already exists";
+            }
+            Integer previousRow = usernamesInFile.get(key(username));
+            if (previousRow != null) {
+                return "Username repeats row " + previousRow;
+            }
+            previousRow = emailsInFile.get(key(email));
+            if (previousRow != null) {
+                return "Email repeats row " + previousRow;
+            }
+            String role = cell(cells, COL_ROLE);
+            if (!roleIds.containsKey(key(role))) {
+                return "Unknown role: " + role;
+            }
+            for (String group : splitGroups(cell(cells, COL_GROUPS))) {
+                if (!groupIds.containsKey(key(group))) {
+                    return "Unknown group: " + group;
+                }
+            }
+            // Claimed only by valid rows: a later row may still use the name of a rejected one
+            usernamesInFile.put(key(username), rowNumber);
+            emailsInFile.put(key(email), rowNumber);
+            return null;
+        }
+
+        private Set<Long> resolveGroups(String value) {
+            Set<Long> ids = new LinkedHashSet<>();
+            for (String group : splitGroups(value)) {
+                ids.add(groupIds.get(key(group)));
+            }
+            return ids;
+        }
+
+        private void flush() {
+            if (batch.isEmpty()) {
+                return;
+            }
+            List<ImportRow> rows = hashPasswords(new ArrayList<>(batch));
+            batch.clear();
+            if (rows.isEmpty()) {
+                return;
+            }
+
+            try {
+                Map<String, Long> ids = insert(rows, createdBy);
+                for (ImportRow row : rows) {
+                    job.addCreated(row.rowNumber, row.username, ids.get(key(row.username)));
+                }
+            } catch (DataAccessException e) {
+                log.warn("User import {}: batch of {} rows failed ({}), retrying row by row",
+                        job.id, rows.size(), e.getMostSpecificCause().getMessage());
+                for (ImportRow row : rows) {
+                    try {
+                        Map<String, Long> ids = insert(List.of(row), createdBy);
+                        job.addCreated(row.rowNumber, row.username, ids.get(key(row.username)));
+                    } catch (DataAccessException rowError) {
+                        job.addFailed(row.rowNumber, row.username, rowError.getMostSpecificCause().getMessage());
+                    }
+                }
+            }
+        }
+
+        /**
+         * Hash the batch's passwords in windows on the password pool; rows whose hash could not be
+         * computed are reported as failed and dropped
+         */
+        private List<ImportRow> hashPasswords(List<ImportRow> rows) {
+            List<ImportRow> hashed = new ArrayList<>(rows.size());
+            for (int from = 0; from < rows.size(); from += Math.max(1, hashWindow)) {
+                List<ImportRow> window = rows.subList(from, Math.min(rows.size(), from + Math.max(1, hashWindow)));
+                List<CompletableFuture<String>> futures = new ArrayList<>(window.size());
+                for (ImportRow row : window) {
+                    futures.add(passwordEncoder.encodeAsync(row.password));
+                }
+                for (int i = 0; i < window.size(); i++) {
+                    ImportRow row = window.get(i);
+                    try {
+                        row.encodedPassword = futures.get(i).join();
+                        hashed.add(row);
+                    } catch (CompletionException e) {
+                        String reason = e.getCause() instanceof TooManyRequestsException
+                                ? "Server busy, password not hashed; import this row again"
+                                : "Password could not be hashed";
+                        job.addFailed(row.rowNumber, row.username, reason);
+                    }
+                }
+            }
+            return hashed;
+        }
+    }
+
+    /**
+     * Insert users and their group memberships in one transaction; returns username (lower case) -> ID
+     */
+    private Map<String, Long> insert(List<ImportRow> rows, Long createdBy) {
+        return new TransactionTemplate(transactionManager).execute(status -> {
+            Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+
+            jdbcTemplate.batchUpdate(INSERT_USER, rows, rows.size(), (ps, row) -> {
+                ps.setString(1, row.firstName);
+                ps.setString(2, row.lastName);
+                ps.setString(3, row.username);
+                ps.setString(4, row.encodedPassword);
+                ps.setString(5, row.email);
+                ps.setLong(6, row.roleId);
+                ps.setTimestamp(7, now);
+                setNullableLong(ps, 8, createdBy);
+            });
+
+            Map<String, Long> ids = new HashMap<>();
+            for (Object[] row : userRepository.findIdsByUsernameIn(rows.stream().map(r -> r.username).toList())) {
+                ids.put(key((String) row[1]), (Long) row[0]);
+            }
+
+            List<Long[]> memberships = new ArrayList<>();
+            Map<Long, Set<Long>> addedByGroup = new LinkedHashMap<>();
+            for (ImportRow row : rows) {
+                Long userId = ids.get(key(row.username));
+                for (Long groupId : row.groupIds) {
+                    memberships.add(new Long[]{userId, groupId});
+                    addedByGroup.computeIfAbsent(groupId, g -> new LinkedHashSet<>()).add(userId);
+                }
+            }
+            if (!memberships.isEmpty()) {
+                jdbcTemplate.batchUpdate(INSERT_GROUP_USER, memberships, memberships.size(), (ps, m) -> {
+                    ps.setLong(1, m[0]);
+                    ps.setLong(2, m[1]);
+                    setNullableLong(ps, 3, createdBy);
+                    ps.setTimestamp(4, now);
+                });
+            }
+            // Same delta events as GroupService, so access read models pick up the new members
+            addedByGroup.forEach((groupId, userIds) ->
+                    eventPublisher.publishEvent(GroupMembershipChangedEvent.users(groupId, userIds, Set.of())));
+            return ids;
+        });
+    }
+
+    private static void setNullableLong(PreparedStatement ps, int index, Long value) throws SQLException {
+        if (value != null) {
+            ps.setLong(index, value);
+        } else {
+            ps.setNull(index, Types.BIGINT);
+        }
+    }
+
+    private static List<String> splitGroups(String value) {
+        List<String> groups = new ArrayList<>();
+        if (value == null) {
+            return groups;
+        }
+        for (String part : value.split(";")) {
+            if (!part.isBlank()) {
+                groups.add(part.trim());
+            }
+        }
+        return groups;
+    }
+
+    private static String key(String value) {
+        return value == null ? "" : value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    // ===== Job state =====
+
+    private static final class ImportJob {
+
+        final String id;
+        final String fileName;
+        private String status = BulkUserImportReport.QUEUED;
+        private String error;
+        private LocalDateTime startedAt;
+        private LocalDateTime finishedAt;
+        private final List<BulkUserImportReport.RowResult> rows = new ArrayList<>();
+        int created;
+        int failed;
+
+        ImportJob(String id, String fileName) {
+            this.id = id;
+            this.fileName = fileName;
+        }
+
+        synchronized void start() {
+            status = BulkUserImportReport.RUNNING;
+            startedAt = LocalDateTime.now();
+        }
+
+        synchronized void complete() {
+            status = BulkUserImportReport.COMPLETED;
+            finishedAt = LocalDateTime.now();
+        }
+
+        synchronized void fail(String message) {
+            status = BulkUserImportReport.FAILED;
+            error = message;
+            finishedAt = LocalDateTime.now();
+        }
+
+        synchronized void addCreated(int rowNumber, String username, Long userId) {
+            rows.add(new BulkUserImportReport.RowResult(rowNumber, username, true, userId, "Created"));
+            created++;
+        }
+
+        synchronized void addFailed(int rowNumber, String username, String message) {
+            rows.add(new BulkUserImportReport.RowResult(rowNumber, username, false, null, message));
+            failed++;
+        }
+
+        synchronized boolean isFinishedBefore(LocalDateTime cutoff) {
+            return finishedAt != null && finishedAt.isBefore(cutoff);
+        }
+
+        synchronized BulkUserImportReport toReport() {
+            List<BulkUserImportReport.RowResult> sorted = new ArrayList<>(rows);
+            sorted.sort((a, b) -> Integer.compare(a.getRowNumber(), b.getRowNumber()));
+            return new BulkUserImportReport(id, fileName, status, error, rows.size(), created, failed,
+                    startedAt, finishedAt, sorted);
+        }
+    }
+}
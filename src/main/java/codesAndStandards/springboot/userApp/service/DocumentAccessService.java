@@ -2,17 +2,23 @@ package codesAndStandards.springboot.userApp.service;
 
 import codesAndStandards.springboot.userApp.entity.Document;
 import codesAndStandards.springboot.userApp.entity.User;
-import codesAndStandards.springboot.userApp.repository.AccessControlLogicRepository;
 import codesAndStandards.springboot.userApp.repository.DocumentRepository;
 import codesAndStandards.springboot.userApp.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
@@ -22,7 +28,10 @@ public class DocumentAccessService {
 
     private final DocumentRepository documentRepository;
     private final UserRepository userRepository;
-    private final AccessControlLogicRepository accessControlLogicRepository;
+    private final UserDocumentAccessService userDocumentAccessService;
+
+    @Value("${access-check.max-documents:5000}")
+    private int maxBatchDocuments;
 
     /**
      * Get all documents accessible by current user based on their role and group membership
@@ -49,21 +58,9 @@ public class DocumentAccessService {
         }
 
         // Manager and other roles - return documents from their groups
-        List<Long> accessibleDocIds = accessControlLogicRepository
-                .findAccessibleDocumentIdsByUserId(currentUser.getId());
-
-
-
+        List<Document> documents = userDocumentAccessService.findAccessibleDocuments(currentUser.getId());
         log.info("User {} has access to {} documents through groups",
-                currentUser.getUsername(), accessibleDocIds.size());
-
-        if (accessibleDocIds.isEmpty()) {
-            log.info("User {} has no group access - returning empty list", currentUser.getUsername());
-            return List.of();
-        }
-
-        List<Document> documents = documentRepository.findAllById(accessibleDocIds);
-        log.info("Returning {} accessible documents", documents.size());
+                currentUser.getUsername(), documents.size());
 
         return documents;
     }
@@ -84,18 +81,8 @@ public class DocumentAccessService {
             return documentRepository.findAll();
         }
 
-        // Get accessible document IDs from groups
-        List<Long> accessibleDocIds = accessControlLogicRepository
-                .findAccessibleDocumentIdsByUserId(userId);
-//                .stream()
-//                .map(Long::intValue)
-//                .collect(Collectors.toList());
-
-        if (accessibleDocIds.isEmpty()) {
-            return List.of();
-        }
-
-        return documentRepository.findAllById(accessibleDocIds);
+        // Get accessible documents from groups
+        return userDocumentAccessService.findAccessibleDocuments(userId);
     }
 
     /**
@@ -117,7 +104,7 @@ public class DocumentAccessService {
         }
 
         // Check if user has access through groups
-        return accessControlLogicRepository.hasUserAccessToDocument(currentUser.getId(), documentId);
+        return userDocumentAccessService.hasAccess(currentUser.getId(), documentId);
     }
 
     /**
@@ -136,7 +123,7 @@ public class DocumentAccessService {
         }
 
         // Check if user has access through groups
-        return accessControlLogicRepository.hasUserAccessToDocument(userId, documentId);
+        return userDocumentAccessService.hasAccess(userId, documentId);
     }
 
     /**
@@ -160,7 +147,7 @@ public class DocumentAccessService {
         }
 
         // Get accessible document IDs from groups
-        return accessControlLogicRepository.findAccessibleDocumentIdsByUserId(currentUser.getId());
+        return userDocumentAccessService.findAccessibleDocumentIds(currentUser.getId());
 //                .stream()
 //                .map(Long::intValue)
 //                .collect(Collectors.toList());
@@ -185,8 +172,8 @@ public class DocumentAccessService {
         }
 
         // Get accessible document IDs
-        List<Long> accessibleDocIds = accessControlLogicRepository
-                .findAccessibleDocumentIdsByUserId(currentUser.getId());
+        Set<Long> accessibleDocIds = new HashSet<>(
+                userDocumentAccessService.findAccessibleDocumentIds(currentUser.getId()));
 //                .stream()
 //                .map(Long::intValue)
 //                .collect(Collectors.toList());
@@ -198,6 +185,63 @@ public class DocumentAccessService {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Keep only the document IDs the current user may access (one query, for batch operations)
+     */
+    @Transactional(readOnly = true)
+    public Set<Long> filterAccessibleIds(Collection<Long> documentIds) {
+        User currentUser = getCurrentUser();
+
+        if (currentUser == null || documentIds == null || documentIds.isEmpty()) {
+            return Set.of();
+        }
+
+        String role = currentUser.getRole() != null ? currentUser.getRole().getRoleName() : "Viewer";
+
+        // Admin can see all documents
+        if ("Admin".equals(role)) {
+            return new LinkedHashSet<>(documentIds);
+        }
+
+        Set<Long> accessibleDocIds = userDocumentAccessService.findAccessibleAmong(currentUser.getId(), documentIds);
+
+        return documentIds.stream()
+                .filter(accessibleDocIds::contains)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+
+    /**
+     * Check a user's access to many documents at once: one user lookup and one indexed query
+     * per 2000 IDs. The result has an entry for every requested ID, in request order.
+     */
+    @Transactional(readOnly = true)
+    public Map<Long, Boolean> checkAccess(Long userId, Collection<Long> documentIds) {
+        if (documentIds == null || documentIds.isEmpty()) {
+            return Map.of();
+        }
+        Set<Long> requested = new LinkedHashSet<>(documentIds);
+        requested.remove(null);
+        if (requested.size() > maxBatchDocuments) {
+            throw new IllegalArgumentException("At most " + maxBatchDocuments + " documents can be checked at once");
+        }
+
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new RuntimeException("User not found"));
+
+        String role = user.getRole() != null ? user.getRole().getRoleName() : "Viewer";
+
+        Map<Long, Boolean> access = new LinkedHashMap<>();
+        // Admin has access to all documents
+        if ("Admin".equals(role)) {
+            requested.forEach(id -> access.put(id, true));
+            return access;
+        }
+
+        Set<Long> accessible = userDocumentAccessService.findAccessibleAmong(userId, requested);
+        requested.forEach(id -> access.put(id, accessible.contains(id)));
+        return access;
+    }
+
     /**
      * Get current authenticated user
      */
@@ -0,0 +1,112 @@
+package codesAndStandards.springboot.userApp.service;
+
+import codesAndStandards.springboot.userApp.event.GroupMembershipChangedEvent;
+import codesAndStandards.springboot.userApp.event.UserAccountChangedEvent;
+import codesAndStandards.springboot.userApp.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory snapshot of which documents each signed-in user can reach through groups, for the
+ * document byte endpoints: an access check is a map lookup and a binary search, with no query.
+ *
+ * Snapshots are versioned. Every committed group membership change bumps the version, so each
+ * user's snapshot is reloaded (one indexed query) on their next request. A snapshot loaded while
+ * a change was committing carries the older version and is discarded. The TTL only covers
+ * changes made outside the application.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DocumentAclCache {
+
+    private final UserRepository userRepository;
+    private final UserDocumentAccessService userDocumentAccessService;
+
+    @Value("${document-acl.ttl-seconds:300}")
+    private long ttlSeconds;
+
+    @Value("${document-acl.max-users:10000}")
+    private int maxUsers;
+
+    private final AtomicLong version = new AtomicLong();
+    private final Map<String, Snapshot> snapshots = new ConcurrentHashMap<>();
+
+    private static final class Snapshot {
+        final long version;
+        final long loadedAt;
+        final long[] documentIds;   // sorted
+
+        Snapshot(long version, long loadedAt, long[] documentIds) {
+            this.version = version;
+            this.loadedAt = loadedAt;
+            this.documentIds = documentIds;
+        }
+    }
+
+    /**
+     * Whether a non-admin user can access a document through their groups
+     */
+    public boolean hasAccess(String username, Long documentId) {
+        if (username == null || documentId == null) {
+            return false;
+        }
+        Snapshot snapshot = snapshots.get(username);
+        if (snapshot == null || !isCurrent(snapshot)) {
+            snapshot = load(username);
+        }
+        return Arrays.binarySearch(snapshot.documentIds, documentId) >= 0;
+    }
+
+    private boolean isCurrent(Snapshot snapshot) {
+        return snapshot.version == version.get()
+                && System.nanoTime() - snapshot.loadedAt < TimeUnit.SECONDS.toNanos(ttlSeconds);
+    }
+
+    private Snapshot load(String username) {
+        // Read the version before the data: a change committing meanwhile makes this snapshot stale
+        long loadedVersion = version.get();
+        long loadedAt = System.nanoTime();
+
+        long[] documentIds = userRepository.findIdByUsername(username)
+                .map(userDocumentAccessService::findAccessibleDocumentIds)
+                .map(DocumentAclCache::toSortedArray)
+                .orElse(new long[0]);
+
+        Snapshot snapshot = new Snapshot(loadedVersion, loadedAt, documentIds);
+        if (snapshots.size() >= maxUsers) {
+            snapshots.clear();
+        }
+        snapshots.put(username, snapshot);
+        return snapshot;
+    }
+
+    private static long[] toSortedArray(List<Long> ids) {
+        long[] array = ids.stream().mapToLong(Long::longValue).toArray();
+        Arrays.sort(array);
+        return array;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onMembershipChanged(GroupMembershipChangedEvent event) {
+        long newVersion = version.incrementAndGet();
+        log.debug("Group {} changed, document ACL snapshots now at version {}", event.getGroupId(), newVersion);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onUserAccountChanged(UserAccountChangedEvent event) {
+        // A renamed or deleted user must not keep the snapshot of another account's ID
+        snapshots.remove(event.getUsername());
+    }
+}
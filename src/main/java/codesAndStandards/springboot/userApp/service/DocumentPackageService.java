@@ -0,0 +1,278 @@
+package codesAndStandards.springboot.userApp.service;
+
+import codesAndStandards.springboot.userApp.entity.Document;
+import codesAndStandards.springboot.userApp.exception.TooManyRequestsException;
+import codesAndStandards.springboot.userApp.repository.DocumentRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Multi-document download: watermarks the selected documents in parallel on the PDF pool and
+ * streams them into one ZIP in the order they finish.
+ *
+ * Each document is watermarked into a file (the watermarked-download cache when enabled, a temp
+ * file otherwise) and copied into the archive, so memory use does not grow with package size.
+ * At most as many documents as the user's pool share are in flight at once. Temp files are
+ * deleted once copied, and also when the download is abandoned - including files produced by
+ * tasks that finish after the package was given up on.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DocumentPackageService {
+
+    private static final int MAX_BUSY_RETRIES = 3;
+
+    private final DocumentRepository documentRepository;
+    private final DocumentAccessService documentAccessService;
+    private final NetworkFileService networkFileService;
+    private final WatermarkService watermarkService;
+    private final WatermarkedFileCache watermarkedFileCache;
+    private final PdfWorkPool pdfWorkPool;
+
+    @Value("${document-package.max-documents:100}")
+    private int maxDocuments;
+
+    /**
+     * State shared between one package download and its watermark tasks.
+     */
+    private static class PackageRun {
+        final BlockingQueue<Integer> finished = new LinkedBlockingQueue<>();
+        // Temp files (cache disabled) produced and not yet copied into the archive
+        final Set<Path> tempFiles = ConcurrentHashMap.newKeySet();
+        final AtomicBoolean abandoned = new AtomicBoolean();
+    }
+
+    /**
+     * Result of a package download, for activity logging.
+     */
+    public static class PackageResult {
+        private final List<String> included = new ArrayList<>();
+        private final List<String> failed = new ArrayList<>();
+
+        public List<String> getIncluded() {
+            return included;
+        }
+
+        public List<String> getFailed() {
+            return failed;
+        }
+    }
+
+    /**
+     * Documents of the request the current user may download, in request order.
+     * Throws IllegalArgumentException if nothing is left or the package is too large.
+     */
+    public List<Document> resolveDocuments(Collection<Long> documentIds) {
+        if (documentIds == null || documentIds.isEmpty()) {
+            throw new IllegalArgumentException("No documents selected");
+        }
+        if (documentIds.size() > maxDocuments) {
+            throw new IllegalArgumentException("A package can contain at most " + maxDocuments + " documents");
+        }
+
+        // Access is checked once for the whole selection
+        Set<Long> accessible = documentAccessService.filterAccessibleIds(documentIds);
+        Map<Long, Document> byId = new HashMap<>();
+        for (Document document : documentRepository.findAllById(accessible)) {
+            byId.put(document.getId(), document);
+        }
+
+        List<Document> documents = new ArrayList<>();
+        for (Long id : accessible) {
+            Document document = byId.get(id);
+            if (document != null) {
+                documents.add(document);
+            }
+        }
+        if (documents.isEmpty()) {
+            throw new IllegalArgumentException("None of the selected documents are available to you");
+        }
+        return documents;
+    }
+
+    /**
+     * Watermark the documents and write them into a ZIP on the output. The first submission is
+     * made before anything is written, so a saturated pool still surfaces as TooManyRequestsException
+     * while the caller can answer 429. Later failures are listed in an ERRORS.txt entry instead.
+     */
+    public PackageResult writePackage(List<Document> documents, String username, OutputStream output) throws Exception {
+        PackageResult result = new PackageResult();
+        int window = Math.max(1, pdfWorkPool.getMaxPerUser());
+        PackageRun run = new PackageRun();
+        Map<Integer, Future<Path>> inFlight = new HashMap<>();
+        Set<String> entryNames = new HashSet<>();
+        int next = 0;
+
+        // Fail fast before the response is committed
+        inFlight.put(next, submit(documents.get(next), next, username, run));
+        next++;
+
+        try (ZipOutputStream zip = new ZipOutputStream(output)) {
+            // PDFs are already compressed; deflating them again costs CPU for almost nothing
+            zip.setLevel(Deflater.BEST_SPEED);
+
+            while (next < documents.size() || !inFlight.isEmpty()) {
+                next = fillWindow(documents, next, window, username, inFlight, run, result);
+                if (inFlight.isEmpty()) {
+                    continue;
+                }
+
+                int index = run.finished.take();
+                Document document = documents.get(index);
+                Future<Path> future = inFlight.remove(index);
+                try {
+                    Path file = future.get();
+                    try {
+                        zip.putNextEntry(new ZipEntry(entryName(document, entryNames)));
+                        Files.copy(file, zip);
+                        zip.closeEntry();
+                        result.included.add(document.getTitle());
+                    } finally {
+                        if (run.tempFiles.remove(file)) {
+                            Files.deleteIfExists(file);
+                        }
+                    }
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    log.warn("Could not add document {} to package: {}", document.getId(), cause.getMessage());
+                    result.failed.add(document.getTitle() + " - " + cause.getMessage());
+                }
+            }
+
+            if (!result.failed.isEmpty()) {
+                zip.putNextEntry(new ZipEntry("ERRORS.txt"));
+                zip.write(("The following documents could not be included:\r\n"
+                        + String.join("\r\n", result.failed) + "\r\n").getBytes(StandardCharsets.UTF_8));
+                zip.closeEntry();
+            }
+            zip.finish();
+        } finally {
+            // Client went away mid-stream: don't leave work for documents nobody will receive.
+            // Tasks that still finish see the flag and delete their own output; anything they
+            // registered before the flag was set is deleted here.
+            run.abandoned.set(true);
+            inFlight.values().forEach(f -> f.cancel(true));
+            for (Path file : run.tempFiles) {
+                deleteQuietly(file);
+            }
+        }
+        return result;
+    }
+
+    private int fillWindow(List<Document> documents, int next, int window, String username,
+                           Map<Integer, Future<Path>> inFlight, PackageRun run,
+                           PackageResult result) throws InterruptedException {
+        int busyRetries = 0;
+        while (next < documents.size() && inFlight.size() < window) {
+            try {
+                inFlight.put(next, submit(documents.get(next), next, username, run));
+                next++;
+                busyRetries = 0;
+            } catch (TooManyRequestsException e) {
+                if (!inFlight.isEmpty()) {
+                    // Our own work is still running; try again once something finishes
+                    break;
+                }
+                if (++busyRetries > MAX_BUSY_RETRIES) {
+                    result.failed.add(documents.get(next).getTitle() + " - server busy");
+                    next++;
+                    busyRetries = 0;
+                    continue;
+                }
+                TimeUnit.SECONDS.sleep(e.getRetryAfterSeconds());
+            }
+        }
+        return next;
+    }
+
+    private Future<Path> submit(Document document, int index, String username, PackageRun run) {
+        return pdfWorkPool.submit(username, () -> {
+            try {
+                if (run.abandoned.get()) {
+                    throw new IllegalStateException("Package download was abandoned");
+                }
+                Path file = watermark(document, username);
+                if (!watermarkedFileCache.isEnabled()) {
+                    run.tempFiles.add(file);
+                    if (run.abandoned.get()) {
+                        run.tempFiles.remove(file);
+                        deleteQuietly(file);
+                    }
+                }
+                return file;
+            } finally {
+                run.finished.add(index);
+            }
+        });
+    }
+
+    private Path watermark(Document document, String username) throws Exception {
+        String filePath = document.getFilePath();
+        WatermarkedFileCache.ContentWriter writer = out -> {
+            try (InputStream originalPdf = networkFileService.openFileStream(filePath)) {
+                watermarkService.writeWatermarkedPdf(originalPdf, username, out);
+            }
+        };
+
+        if (watermarkedFileCache.isEnabled()) {
+            Path cached = watermarkedFileCache.get(document.getId(), username, filePath);
+            return cached != null ? cached : watermarkedFileCache.put(document.getId(), username, filePath, writer);
+        }
+
+        Path temp = Files.createTempFile("package-", ".pdf");
+        try (OutputStream out = Files.newOutputStream(temp)) {
+            writer.writeTo(out);
+        } catch (Exception e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        return temp;
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (Exception e) {
+            log.warn("Could not delete package temp file {}: {}", file, e.getMessage());
+        }
+    }
+
+    private String entryName(Document document, Set<String> used) {
+        String base = document.getProductCode() != null && !document.getProductCode().isBlank()
+                ? document.getProductCode() + " - " + document.getTitle()
+                : document.getTitle();
+        base = base.replaceAll("[\\\\/:*?\"<>|]", "_").trim();
+
+        String name = base + ".pdf";
+        for (int n = 2; !used.add(name); n++) {
+            name = base + " (" + n + ").pdf";
+        }
+        return name;
+    }
+}
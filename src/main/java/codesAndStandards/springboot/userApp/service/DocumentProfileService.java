@@ -0,0 +1,346 @@
+package codesAndStandards.springboot.userApp.service;
+
+import codesAndStandards.springboot.userApp.dto.DocumentPagesDto;
+import codesAndStandards.springboot.userApp.entity.DocumentProfile;
+import codesAndStandards.springboot.userApp.repository.DocumentProfileRepository;
+import codesAndStandards.springboot.userApp.repository.DocumentRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.encryption.AccessPermission;
+import org.apache.pdfbox.pdmodel.encryption.InvalidPasswordException;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One-time analysis of each document's PDF at ingest: page count and sizes, encryption and
+ * permissions, linearization, text layer, byte size and content hash, stored in DocumentProfile.
+ * The viewer, watermarking and indexing read the profile instead of reopening the file.
+ *
+ * Analysis runs on a single background worker after the upload has committed; a periodic
+ * backfill covers existing documents, documents whose file was replaced, and anything that did
+ * not fit in the queue.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DocumentProfileService {
+
+    private static final int HEADER_SCAN_BYTES = 1024;
+
+    private final DocumentProfileRepository profileRepository;
+    private final DocumentRepository documentRepository;
+    private final NetworkFileService networkFileService;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${document-profile.text-sample-pages:3}")
+    private int textSamplePages;
+
+    @Value("${document-profile.queue-capacity:500}")
+    private int queueCapacity;
+
+    private ThreadPoolExecutor executor;
+
+    // Queued or running, so the backfill does not submit a document twice
+    private final Set<Long> pending = ConcurrentHashMap.newKeySet();
+    // Failed during this run; retried after a restart rather than every backfill
+    private final Set<Long> failed = ConcurrentHashMap.newKeySet();
+
+    @PostConstruct
+    void init() {
+        executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)),
+                r -> {
+                    Thread t = new Thread(r, "document-profile-worker");
+                    t.setDaemon(true);
+                    return t;
+                });
+    }
+
+    @PreDestroy
+    void stop() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Queue a document for analysis once the current transaction (if any) has committed.
+     */
+    public void requestProfile(Long documentId) {
+        if (documentId == null) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    enqueue(documentId);
+                }
+            });
+        } else {
+            enqueue(documentId);
+        }
+    }
+
+    /**
+     * The profile of a document, if one was measured from its current file.
+     */
+    public Optional<DocumentProfile> findCurrent(Long documentId, String filePath) {
+        return profileRepository.findById(documentId)
+                .filter(profile -> profile.getSourcePath().equals(filePath));
+    }
+
+    /**
+     * Analyze documents that have no profile for their current file.
+     */
+    @Scheduled(initialDelayString = "${document-profile.backfill-initial-delay-ms:60000}",
+            fixedDelayString = "${document-profile.backfill-interval-ms:900000}")
+    public void backfill() {
+        long afterId = 0;
+        int queued = 0;
+        while (executor.getQueue().remainingCapacity() > 0) {
+            List<Long> ids = profileRepository.findDocumentIdsNeedingProfile(afterId, PageRequest.of(0, 100));
+            if (ids.isEmpty()) {
+                break;
+            }
+            for (Long documentId : ids) {
+                afterId = documentId;
+                if (!failed.contains(documentId) && !pending.contains(documentId) && enqueue(documentId)) {
+                    queued++;
+                }
+            }
+        }
+        if (queued > 0) {
+            log.info("Queued {} documents for profiling", queued);
+        }
+    }
+
+    // ===== Page sizes =====
+
+    /**
+     * Run-length encode page sizes: "612x792*120;842x595*3".
+     */
+    public static String encodePageSizes(List<DocumentPagesDto.PageSize> sizes) {
+        StringBuilder encoded = new StringBuilder();
+        int i = 0;
+        while (i < sizes.size()) {
+            DocumentPagesDto.PageSize size = sizes.get(i);
+            int run = 1;
+            while (i + run < sizes.size() && sizes.get(i + run).equals(size)) {
+                run++;
+            }
+            if (encoded.length() > 0) {
+                encoded.append(';');
+            }
+            encoded.append(format(size.getWidth())).append('x').append(format(size.getHeight())).append('*').append(run);
+            i += run;
+        }
+        return encoded.toString();
+    }
+
+    public static List<DocumentPagesDto.PageSize> decodePageSizes(String encoded) {
+        List<DocumentPagesDto.PageSize> sizes = new ArrayList<>();
+        if (encoded == null || encoded.isEmpty()) {
+            return sizes;
+        }
+        for (String part : encoded.split(";")) {
+            int x = part.indexOf('x');
+            int star = part.indexOf('*');
+            DocumentPagesDto.PageSize size = new DocumentPagesDto.PageSize(
+                    Float.parseFloat(part.substring(0, x)), Float.parseFloat(part.substring(x + 1, star)));
+            int run = Integer.parseInt(part.substring(star + 1));
+            for (int n = 0; n < run; n++) {
+                sizes.add(size);
+            }
+        }
+        return sizes;
+    }
+
+    private static String format(float value) {
+        float rounded = Math.round(value * 100) / 100f;
+        return rounded == (long) rounded ? String.valueOf((long) rounded) : String.valueOf(rounded);
+    }
+
+    // ===== Analysis =====
+
+    private boolean enqueue(Long documentId) {
+        if (!pending.add(documentId)) {
+            return true;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    analyze(documentId);
+                } finally {
+                    pending.remove(documentId);
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            // Queue full: the backfill will pick it up later
+            pending.remove(documentId);
+            return false;
+        }
+    }
+
+    private void analyze(Long documentId) {
+        String filePath = documentRepository.findFilePathById(documentId).orElse(null);
+        if (filePath == null) {
+            return;
+        }
+
+        long started = System.currentTimeMillis();
+        Path copy = null;
+        try {
+            DocumentProfile profile = new DocumentProfile();
+            profile.setSourcePath(filePath);
+
+            // One pass over the share: local copy for PDFBox, hashed on the way through
+            copy = Files.createTempFile("profile-", ".pdf");
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            try (InputStream in = new DigestInputStream(networkFileService.openFileStream(filePath), digest)) {
+                Files.copy(in, copy, java.nio.file.StandardCopyOption.REPLACE_EXISTING);
+            }
+            profile.setContentHash(HexFormat.of().formatHex(digest.digest()));
+            profile.setByteSize(Files.size(copy));
+            profile.setLinearized(isLinearized(copy));
+
+            long lastModified = networkFileService.getLastModified(filePath);
+            if (lastModified > 0) {
+                profile.setFileLastModified(LocalDateTime.ofInstant(Instant.ofEpochMilli(lastModified), ZoneId.systemDefault()));
+            }
+
+            measurePdf(copy, profile);
+            profile.setAnalyzedAt(LocalDateTime.now());
+
+            save(documentId, profile);
+            log.info("Profiled document {} in {} ms: {} pages, {} bytes, encrypted={}, text={}",
+                    documentId, System.currentTimeMillis() - started, profile.getPageCount(),
+                    profile.getByteSize(), profile.getEncrypted(), profile.getHasTextLayer());
+
+        } catch (Exception e) {
+            failed.add(documentId);
+            log.warn("Could not profile document {}: {}", documentId, e.getMessage());
+        } finally {
+            if (copy != null) {
+                try {
+                    Files.deleteIfExists(copy);
+                } catch (IOException e) {
+                    log.warn("Could not delete temp file {}: {}", copy, e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void measurePdf(Path file, DocumentProfile profile) throws IOException {
+        try (PDDocument document = PDDocument.load(file.toFile(), MemoryUsageSetting.setupTempFileOnly())) {
+            profile.setPasswordRequired(false);
+            profile.setPdfVersion(document.getVersion());
+            profile.setEncrypted(document.isEncrypted());
+            profile.setPermissions(document.isEncrypted() ? document.getEncryption().getPermissions() : -1);
+
+            AccessPermission permission = document.getCurrentAccessPermission();
+            profile.setCanPrint(permission.canPrint());
+            profile.setCanExtract(permission.canExtractContent());
+
+            List<DocumentPagesDto.PageSize> sizes = new ArrayList<>();
+            for (PDPage page : document.getPages()) {
+                PDRectangle box = page.getCropBox();
+                boolean rotated = page.getRotation() % 180 != 0;
+                sizes.add(rotated
+                        ? new DocumentPagesDto.PageSize(box.getHeight(), box.getWidth())
+                        : new DocumentPagesDto.PageSize(box.getWidth(), box.getHeight()));
+            }
+            profile.setPageCount(sizes.size());
+            profile.setPageSizes(encodePageSizes(sizes));
+
+            // A scanned standard has no text on its first pages either
+            PDFTextStripper stripper = new PDFTextStripper();
+            stripper.setStartPage(1);
+            stripper.setEndPage(Math.min(textSamplePages, sizes.size()));
+            profile.setHasTextLayer(!stripper.getText(document).isBlank());
+
+        } catch (InvalidPasswordException e) {
+            profile.setPasswordRequired(true);
+            profile.setEncrypted(true);
+        }
+    }
+
+    /**
+     * A linearized file announces itself in a dictionary at the very start of the file.
+     */
+    private boolean isLinearized(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            String header = new String(in.readNBytes(HEADER_SCAN_BYTES), StandardCharsets.ISO_8859_1);
+            return header.contains("/Linearized");
+        }
+    }
+
+    private void save(Long documentId, DocumentProfile measured) {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            // The file may have been replaced while we were reading it
+            String currentPath = documentRepository.findFilePathById(documentId).orElse(null);
+            if (!measured.getSourcePath().equals(currentPath)) {
+                return;
+            }
+
+            DocumentProfile profile = profileRepository.findById(documentId).orElseGet(() -> {
+                DocumentProfile created = new DocumentProfile();
+                created.setDocument(documentRepository.getReferenceById(documentId));
+                return created;
+            });
+            profile.setSourcePath(measured.getSourcePath());
+            profile.setContentHash(measured.getContentHash());
+            profile.setByteSize(measured.getByteSize());
+            profile.setPdfVersion(measured.getPdfVersion());
+            profile.setPageCount(measured.getPageCount());
+            profile.setEncrypted(measured.getEncrypted());
+            profile.setPasswordRequired(measured.getPasswordRequired());
+            profile.setPermissions(measured.getPermissions());
+            profile.setCanPrint(measured.getCanPrint());
+            profile.setCanExtract(measured.getCanExtract());
+            profile.setLinearized(measured.getLinearized());
+            profile.setHasTextLayer(measured.getHasTextLayer());
+            profile.setPageSizes(measured.getPageSizes());
+            profile.setFileLastModified(measured.getFileLastModified());
+            profile.setAnalyzedAt(measured.getAnalyzedAt());
+            profileRepository.save(profile);
+
+            if (measured.getPageCount() != null) {
+                documentRepository.fillMissingPageCount(documentId, measured.getPageCount());
+            }
+        });
+    }
+}
@@ -0,0 +1,141 @@
+package codesAndStandards.springboot.userApp.service;
+
+import codesAndStandards.springboot.userApp.dto.DocumentPopularityDto;
+import codesAndStandards.springboot.userApp.repository.DocumentUsageCounterRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Document view / download counters. Requests only bump an in-memory LongAdder
+ * (no DB write); the totals are added to DocumentUsageCounter on a schedule and
+ * on shutdown. A flush drains each adder with sumThenReset, which takes every cell's value
+ * with an atomic swap, so a concurrent increment lands in this flush or the next one.
+ * Adders stay in the map (one per document touched since startup) so the hot path never
+ * takes a lock.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DocumentUsageService {
+
+    public static final String METRIC_VIEWS = "views";
+    public static final String METRIC_DOWNLOADS = "downloads";
+    public static final int MAX_LIMIT = 100;
+
+    private final DocumentUsageCounterRepository counterRepository;
+
+    private final ConcurrentHashMap<Long, LongAdder> pendingViews = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, LongAdder> pendingDownloads = new ConcurrentHashMap<>();
+
+    /** Record a viewer open */
+    public void recordView(Long documentId) {
+        increment(pendingViews, documentId);
+    }
+
+    /** Record a successful download */
+    public void recordDownload(Long documentId) {
+        increment(pendingDownloads, documentId);
+    }
+
+    /**
+     * Move the accumulated deltas into the counters table.
+     * A delta that fails to write is added back and retried on the next flush.
+     */
+    @Scheduled(fixedDelayString = "${document-usage.flush-interval-ms:60000}")
+    public void flush() {
+        Set<Long> documentIds = new HashSet<>(pendingViews.keySet());
+        documentIds.addAll(pendingDownloads.keySet());
+        if (documentIds.isEmpty()) {
+            return;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        int flushed = 0;
+        for (Long documentId : documentIds) {
+            long views = drain(pendingViews, documentId);
+            long downloads = drain(pendingDownloads, documentId);
+            if (views == 0 && downloads == 0) {
+                continue;
+            }
+            try {
+                counterRepository.addCounts(documentId, views, downloads, now);
+                flushed++;
+            } catch (Exception e) {
+                log.warn("Failed to flush usage counters for document {}: {}", documentId, e.getMessage());
+                restore(pendingViews, documentId, views);
+                restore(pendingDownloads, documentId, downloads);
+            }
+        }
+        if (flushed > 0) {
+            log.debug("Flushed usage counters for {} documents", flushed);
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    /**
+     * Most viewed or most downloaded documents, including counts not yet flushed
+     */
+    public List<DocumentPopularityDto> getMostPopular(String metric, int limit) {
+        int size = Math.max(1, Math.min(limit, MAX_LIMIT));
+        boolean byDownloads = METRIC_DOWNLOADS.equalsIgnoreCase(metric);
+
+        List<DocumentPopularityDto> rows = new ArrayList<>(byDownloads
+                ? counterRepository.findMostDownloaded(PageRequest.of(0, size))
+                : counterRepository.findMostViewed(PageRequest.of(0, size)));
+
+        for (DocumentPopularityDto row : rows) {
+            row.setViewCount(row.getViewCount() + pending(pendingViews, row.getDocumentId()));
+            row.setDownloadCount(row.getDownloadCount() + pending(pendingDownloads, row.getDocumentId()));
+        }
+        rows.sort(byDownloads
+                ? Comparator.comparing(DocumentPopularityDto::getDownloadCount).reversed()
+                : Comparator.comparing(DocumentPopularityDto::getViewCount).reversed());
+        return rows;
+    }
+
+    private static void increment(ConcurrentHashMap<Long, LongAdder> counters, Long documentId) {
+        if (documentId != null) {
+            adderFor(counters, documentId).increment();
+        }
+    }
+
+    // Plain get first: computeIfAbsent may lock the bin even when the key is present
+    private static LongAdder adderFor(ConcurrentHashMap<Long, LongAdder> counters, Long documentId) {
+        LongAdder adder = counters.get(documentId);
+        return adder != null ? adder : counters.computeIfAbsent(documentId, id -> new LongAdder());
+    }
+
+    /** Take a document's count since the last flush */
+    private static long drain(ConcurrentHashMap<Long, LongAdder> counters, Long documentId) {
+        LongAdder adder = counters.get(documentId);
+        return adder != null ? adder.sumThenReset() : 0L;
+    }
+
+    private static void restore(ConcurrentHashMap<Long, LongAdder> counters, Long documentId, long delta) {
+        if (delta > 0) {
+            adderFor(counters, documentId).add(delta);
+        }
+    }
+
+    private static long pending(ConcurrentHashMap<Long, LongAdder> counters, Long documentId) {
+        LongAdder adder = counters.get(documentId);
+        return adder != null ? adder.sum() : 0L;
+    }
+}
@@ -2,9 +2,14 @@ package codesAndStandards.springboot.userApp.service;
 
 import codesAndStandards.springboot.userApp.dto.*;
 import codesAndStandards.springboot.userApp.entity.*;
+import codesAndStandards.springboot.userApp.event.GroupMembershipChangedEvent;
 import codesAndStandards.springboot.userApp.repository.*;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
@@ -12,7 +17,12 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Service
@@ -20,11 +30,17 @@ import java.util.stream.Collectors;
 @Slf4j
 public class GroupService {
 
+    // SQL Server accepts at most 2100 parameters per statement
+    private static final int MAX_IDS_PER_STATEMENT = 2000;
+    private static final int MAX_GROUP_PAGE_SIZE = 200;
+
     private final GroupRepository groupRepository;
     private final codesAndStandards.springboot.userApp.repository.GroupUserRepository groupUserRepository;
     private final codesAndStandards.springboot.userApp.repository.AccessControlLogicRepository accessControlLogicRepository;
     private final DocumentRepository documentRepository;
     private final UserRepository userRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final UserDocumentAccessService userDocumentAccessService;
 
     /**
      * Get all groups with counts
@@ -32,11 +48,24 @@ public class GroupService {
     @Transactional(readOnly = true)
     public List<GroupListDTO> getAllGroups() {
         log.info("Fetching all groups");
-        List<Group> groups = groupRepository.findAllWithCreator();
+        return groupRepository.findGroupList(null, null, null, Pageable.unpaged()).getContent();
+    }
 
-        return groups.stream()
-                .map(this::convertToListDTO)
-                .collect(Collectors.toList());
+    /**
+     * One page of the group list, with counts, optionally filtered by name or description
+     */
+    @Transactional(readOnly = true)
+    public GroupListPage getGroupsPage(String search, int page, int size) {
+        Page<GroupListDTO> result = groupRepository.findGroupList(searchTerm(search), null, null,
+                contentPageRequest(page, size));
+
+        return GroupListPage.builder()
+                .groups(result.getContent())
+                .page(result.getNumber())
+                .size(result.getSize())
+                .totalCount(result.getTotalElements())
+                .hasMore(result.hasNext())
+                .build();
     }
 
     /**
@@ -46,12 +75,32 @@ public class GroupService {
     public GroupResponseDTO getGroupById(Long id) {
         log.info("Fetching group with ID: {}", id);
 
-        Group group = groupRepository.findByIdWithAssociations(id)
+        Group group = groupRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Group not found with ID: " + id));
 
         return convertToResponseDTO(group);
     }
 
+    /**
+     * One page of a group's documents
+     */
+    @Transactional(readOnly = true)
+    public GroupContentPage<DocumentInfoDTO> getGroupDocuments(Long groupId, String search, int page, int size) {
+        requireGroup(groupId);
+        return toContentPage(accessControlLogicRepository.findDocumentInfoByGroupId(
+                groupId, searchTerm(search), contentPageRequest(page, size)));
+    }
+
+    /**
+     * One page of a group's members
+     */
+    @Transactional(readOnly = true)
+    public GroupContentPage<UserInfoDTO> getGroupMembers(Long groupId, String search, int page, int size) {
+        requireGroup(groupId);
+        return toContentPage(groupUserRepository.findMemberInfoByGroupId(
+                groupId, searchTerm(search), contentPageRequest(page, size)));
+    }
+
     /**
      * Create new group
      */
@@ -85,15 +134,9 @@ public class GroupService {
         Group savedGroup = groupRepository.save(group);
         log.info("Group created with ID: {}", savedGroup.getId());
 
-        // Add documents to group
-        if (requestDTO.getDocumentIds() != null && !requestDTO.getDocumentIds().isEmpty()) {
-            addDocumentsToGroup(savedGroup, requestDTO.getDocumentIds(), currentUser);
-        }
-
-        // Add users to group
-        if (requestDTO.getUserIds() != null && !requestDTO.getUserIds().isEmpty()) {
-            addUsersToGroup(savedGroup, requestDTO.getUserIds(), currentUser);
-        }
+        // Add documents and users to group
+        syncGroupDocuments(savedGroup.getId(), requestDTO.getDocumentIds());
+        syncGroupUsers(savedGroup.getId(), requestDTO.getUserIds());
 
         log.info("Group created successfully with ID: {}", savedGroup.getId());
         return getGroupById(savedGroup.getId());
@@ -125,9 +168,6 @@ public class GroupService {
         Group group = groupRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Group not found with ID: " + id));
 
-        // Get current user
-        User currentUser = getCurrentUser();
-
         // Validate and update group name if changed
         if (requestDTO.getGroupName() != null && !requestDTO.getGroupName().trim().isEmpty()) {
             String newGroupName = requestDTO.getGroupName().trim();
@@ -149,11 +189,9 @@ public class GroupService {
         // Save group
         groupRepository.save(group);
 
-        // Update documents
-        updateGroupDocuments(group, requestDTO.getDocumentIds(), currentUser);
-
-        // Update users
-        updateGroupUsers(group, requestDTO.getUserIds(), currentUser);
+        // Update documents and users: only what changed is written
+        syncGroupDocuments(id, requestDTO.getDocumentIds());
+        syncGroupUsers(id, requestDTO.getUserIds());
 
         log.info("Group updated successfully");
         return getGroupById(id);
@@ -169,6 +207,11 @@ public class GroupService {
         Group group = groupRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Group not found with ID: " + id));
 
+        // Everything derived from this group's membership goes with it
+        eventPublisher.publishEvent(new GroupMembershipChangedEvent(id,
+                Set.of(), new HashSet<>(groupUserRepository.findUserIdsByGroupId(id)),
+                Set.of(), new HashSet<>(accessControlLogicRepository.findDocumentIdsByGroupId(id))));
+
         // Delete all associated GroupUser records
         groupUserRepository.deleteByGroupId(id);
 
@@ -187,11 +230,7 @@ public class GroupService {
     public List<GroupListDTO> getGroupsByDocumentId(Long documentId) {
         log.info("Fetching groups for document ID: {}", documentId);
 
-        List<Group> groups = groupRepository.findGroupsByDocumentId(documentId);
-
-        return groups.stream()
-                .map(this::convertToListDTO)
-                .collect(Collectors.toList());
+        return groupRepository.findGroupList(null, documentId, null, Pageable.unpaged()).getContent();
     }
 
     /**
@@ -201,11 +240,7 @@ public class GroupService {
     public List<GroupListDTO> getGroupsByUserId(Long userId) {
         log.info("Fetching groups for user ID: {}", userId);
 
-        List<Group> groups = groupRepository.findGroupsByUserId(userId);
-
-        return groups.stream()
-                .map(this::convertToListDTO)
-                .collect(Collectors.toList());
+        return groupRepository.findGroupList(null, null, userId, Pageable.unpaged()).getContent();
     }
 
     /**
@@ -215,7 +250,7 @@ public class GroupService {
     public AccessCheckDTO checkUserAccessToDocument(Long userId, Long documentId) {
         log.debug("Checking access for user {} to document {}", userId, documentId);
 
-        boolean hasAccess = accessControlLogicRepository.hasUserAccessToDocument(userId, documentId);
+        boolean hasAccess = userDocumentAccessService.hasAccess(userId, documentId);
 
         // Get group names that provide access
         List<String> groupNames = List.of();
@@ -245,7 +280,7 @@ public class GroupService {
     @Transactional(readOnly = true)
     public List<Long> getAccessibleDocumentIds(Long userId) {
         log.info("Fetching accessible documents for user ID: {}", userId);
-        return accessControlLogicRepository.findAccessibleDocumentIdsByUserId(userId);
+        return userDocumentAccessService.findAccessibleDocumentIds(userId);
     }
 
     /**
@@ -276,6 +311,7 @@ public class GroupService {
                 .build();
 
         accessControlLogicRepository.save(acl);
+        eventPublisher.publishEvent(GroupMembershipChangedEvent.documents(groupId, Set.of(documentId), Set.of()));
         log.info("Document added to group successfully");
     }
 
@@ -286,6 +322,7 @@ public class GroupService {
     public void removeDocumentFromGroup(Long groupId, Long documentId) {
         log.info("Removing document {} from group {}", documentId, groupId);
         accessControlLogicRepository.deleteByDocumentIdAndGroupId(documentId, groupId);
+        eventPublisher.publishEvent(GroupMembershipChangedEvent.documents(groupId, Set.of(), Set.of(documentId)));
         log.info("Document removed from group successfully");
     }
 
@@ -317,6 +354,7 @@ public class GroupService {
                 .build();
 
         groupUserRepository.save(groupUser);
+        eventPublisher.publishEvent(GroupMembershipChangedEvent.users(groupId, Set.of(userId), Set.of()));
         log.info("User added to group successfully");
     }
 
@@ -327,112 +365,125 @@ public class GroupService {
     public void removeUserFromGroup(Long groupId, Long userId) {
         log.info("Removing user {} from group {}", userId, groupId);
         groupUserRepository.deleteByUserIdAndGroupId(userId, groupId);
+        eventPublisher.publishEvent(GroupMembershipChangedEvent.users(groupId, Set.of(), Set.of(userId)));
         log.info("User removed from group successfully");
     }
 
-    // Helper methods
+    // ===== Membership deltas =====
+    // Each sync compares the current set with the desired one and writes only the difference,
+    // as set-based statements, then publishes the delta for anything derived from membership.
 
+    /**
+     * Make a group contain exactly the given documents
+     */
     @Transactional
-    public void addDocumentsToGroup(Group group, List<Long> documentIds, User currentUser) {
-
-        // Convert Long → Integer
-        List<Long> docIdsAsInt = documentIds.stream()
-//                .map(Long::intValue)
-                .collect(Collectors.toList());
-
-        List<Document> documents = documentRepository.findAllById(docIdsAsInt);
-
-        for (Document document : documents) {
-            if (!accessControlLogicRepository.existsByDocumentIdAndGroupId(document.getId(), group.getId())) {
-                AccessControlLogic acl = AccessControlLogic.builder()
-                        .document(document)
-                        .group(group)
-                        .createdBy(currentUser)
-                        .createdAt(LocalDateTime.now())
-                        .build();
-                accessControlLogicRepository.save(acl);
-            }
-        }
-        log.info("Added {} documents to group", documents.size());
+    public void syncGroupDocuments(Long groupId, Collection<Long> documentIds) {
+        Set<Long> current = new HashSet<>(accessControlLogicRepository.findDocumentIdsByGroupId(groupId));
+        Set<Long> desired = toSet(documentIds);
+        Set<Long> added = difference(desired, current);
+        Set<Long> removed = difference(current, desired);
+        Long createdBy = getCurrentUserId();
+
+        forEachChunk(removed, chunk -> accessControlLogicRepository.deleteByGroupIdAndDocumentIdIn(groupId, chunk));
+        forEachChunk(added, chunk -> accessControlLogicRepository.insertDocumentsIntoGroup(groupId, chunk, createdBy));
+
+        publish(GroupMembershipChangedEvent.documents(groupId, added, removed));
+        log.info("Group {} documents: {} added, {} removed", groupId, added.size(), removed.size());
     }
 
-    private void addUsersToGroup(Group group, List<Long> userIds, User currentUser) {
-        List<User> users = userRepository.findAllById(userIds);
+    /**
+     * Make a group contain exactly the given users
+     */
+    @Transactional
+    public void syncGroupUsers(Long groupId, Collection<Long> userIds) {
+        Set<Long> current = new HashSet<>(groupUserRepository.findUserIdsByGroupId(groupId));
+        Set<Long> desired = toSet(userIds);
+        Set<Long> added = difference(desired, current);
+        Set<Long> removed = difference(current, desired);
+        Long createdBy = getCurrentUserId();
+
+        forEachChunk(removed, chunk -> groupUserRepository.deleteByGroupIdAndUserIdIn(groupId, chunk));
+        forEachChunk(added, chunk -> groupUserRepository.insertUsersIntoGroup(groupId, chunk, createdBy));
+
+        publish(GroupMembershipChangedEvent.users(groupId, added, removed));
+        log.info("Group {} users: {} added, {} removed", groupId, added.size(), removed.size());
+    }
 
-        for (User user : users) {
-            if (!groupUserRepository.existsByUserIdAndGroupId(user.getId(), group.getId())) {
-                GroupUser groupUser = GroupUser.builder()
-                        .user(user)
-                        .group(group)
-                        .createdBy(currentUser)
-                        .createdAt(LocalDateTime.now())
-                        .build();
-                groupUserRepository.save(groupUser);
-            }
-        }
-        log.info("Added {} users to group", users.size());
+    /**
+     * Make a document belong to exactly the given groups
+     */
+    @Transactional
+    public void syncDocumentGroups(Long documentId, Collection<Long> groupIds) {
+        Set<Long> current = new HashSet<>(accessControlLogicRepository.findGroupIdsByDocumentId(documentId));
+        Set<Long> desired = toSet(groupIds);
+        Set<Long> added = difference(desired, current);
+        Set<Long> removed = difference(current, desired);
+        Long createdBy = getCurrentUserId();
+
+        forEachChunk(removed, chunk -> accessControlLogicRepository.deleteByDocumentIdAndGroupIdIn(documentId, chunk));
+        forEachChunk(added, chunk -> accessControlLogicRepository.insertDocumentIntoGroups(documentId, chunk, createdBy));
+
+        added.forEach(groupId -> publish(GroupMembershipChangedEvent.documents(groupId, Set.of(documentId), Set.of())));
+        removed.forEach(groupId -> publish(GroupMembershipChangedEvent.documents(groupId, Set.of(), Set.of(documentId))));
+        log.info("Document {} groups: {} added, {} removed", documentId, added.size(), removed.size());
     }
 
-    private void updateGroupDocuments(Group group, List<Long> documentIds, User currentUser) {
-        // Delete existing documents
-        accessControlLogicRepository.deleteByGroupId(group.getId());
+    /**
+     * Make a user belong to exactly the given groups, or with keepExisting only add the missing ones
+     */
+    @Transactional
+    public void syncUserGroups(Long userId, Collection<Long> groupIds, boolean keepExisting) {
+        Set<Long> current = new HashSet<>(groupUserRepository.findGroupIdsByUserId(userId));
+        Set<Long> desired = toSet(groupIds);
+        Set<Long> added = difference(desired, current);
+        Set<Long> removed = keepExisting ? Set.of() : difference(current, desired);
+        Long createdBy = getCurrentUserId();
+
+        forEachChunk(removed, chunk -> groupUserRepository.deleteByUserIdAndGroupIdIn(userId, chunk));
+        forEachChunk(added, chunk -> groupUserRepository.insertUserIntoGroups(userId, chunk, createdBy));
+
+        added.forEach(groupId -> publish(GroupMembershipChangedEvent.users(groupId, Set.of(userId), Set.of())));
+        removed.forEach(groupId -> publish(GroupMembershipChangedEvent.users(groupId, Set.of(), Set.of(userId))));
+        log.info("User {} groups: {} added, {} removed", userId, added.size(), removed.size());
+    }
 
-        // Add new documents
-        if (documentIds != null && !documentIds.isEmpty()) {
-            addDocumentsToGroup(group, documentIds, currentUser);
+    private void publish(GroupMembershipChangedEvent event) {
+        if (!event.isEmpty()) {
+            eventPublisher.publishEvent(event);
         }
     }
 
-    private void updateGroupUsers(Group group, List<Long> userIds, User currentUser) {
-        // Delete existing users
-        groupUserRepository.deleteByGroupId(group.getId());
-
-        // Add new users
-        if (userIds != null && !userIds.isEmpty()) {
-            addUsersToGroup(group, userIds, currentUser);
+    private static Set<Long> toSet(Collection<Long> ids) {
+        Set<Long> set = new LinkedHashSet<>();
+        if (ids != null) {
+            for (Long id : ids) {
+                if (id != null) {
+                    set.add(id);
+                }
+            }
         }
+        return set;
     }
 
-    private GroupListDTO convertToListDTO(Group group) {
-        long documentCount = accessControlLogicRepository.countByGroupId(group.getId());
-        long userCount = groupUserRepository.countByGroupId(group.getId());
+    private static Set<Long> difference(Set<Long> left, Set<Long> right) {
+        Set<Long> result = new LinkedHashSet<>(left);
+        result.removeAll(right);
+        return result;
+    }
 
-        return GroupListDTO.builder()
-                .id(group.getId())
-                .groupName(group.getGroupName())
-                .description(group.getDescription())
-                .createdByUsername(group.getCreatedBy() != null ? group.getCreatedBy().getUsername() : "Unknown")
-                .createdAt(group.getCreatedAt())
-                .documentCount((int) documentCount)
-                .userCount((int) userCount)
-                .build();
+    private static void forEachChunk(Set<Long> ids, Consumer<List<Long>> statement) {
+        List<Long> list = new ArrayList<>(ids);
+        for (int from = 0; from < list.size(); from += MAX_IDS_PER_STATEMENT) {
+            statement.accept(list.subList(from, Math.min(list.size(), from + MAX_IDS_PER_STATEMENT)));
+        }
     }
 
     private GroupResponseDTO convertToResponseDTO(Group group) {
 
+        // IDs only: member and document details are paged through their own endpoints
         List<Long> documentIds = accessControlLogicRepository.findDocumentIdsByGroupId(group.getId());
         List<Long> userIds = groupUserRepository.findUserIdsByGroupId(group.getId());
 
-        // Document details (removed getDocumentCode + getCategory)
-        List<DocumentInfoDTO> documents = group.getGroupDocument().stream()
-                .map(acl -> DocumentInfoDTO.builder()
-                        .id(acl.getDocument().getId())
-                        .title(acl.getDocument().getTitle())
-                        // Removed fields that do not exist
-                        .build())
-                .collect(Collectors.toList());
-
-        // User details (fixed role + removed department)
-        List<UserInfoDTO> users = group.getGroupUsers().stream()
-                .map(gu -> UserInfoDTO.builder()
-                        .id(gu.getUser().getId())
-                        .username(gu.getUser().getUsername())
-                        .email(gu.getUser().getEmail())
-                        .role(gu.getUser().getRole() != null ? gu.getUser().getRole().toString() : null)
-                        .department(null) // removed getDepartment()
-                        .build())
-                .collect(Collectors.toList());
-
         return GroupResponseDTO.builder()
                 .id(group.getId())
                 .groupName(group.getGroupName())
@@ -444,11 +495,42 @@ public class GroupService {
                 .userCount(userIds.size())
                 .documentIds(documentIds)
                 .userIds(userIds)
-                .documents(documents)
-                .users(users)
                 .build();
     }
 
+    private void requireGroup(Long groupId) {
+        if (!groupRepository.existsById(groupId)) {
+            throw new RuntimeException("Group not found with ID: " + groupId);
+        }
+    }
+
+    private static String searchTerm(String search) {
+        return search == null || search.isBlank() ? null : search.trim();
+    }
+
+    private static PageRequest contentPageRequest(int page, int size) {
+        return PageRequest.of(Math.max(0, page), Math.max(1, Math.min(size, MAX_GROUP_PAGE_SIZE)));
+    }
+
+    private static <T> GroupContentPage<T> toContentPage(Page<T> result) {
+        return GroupContentPage.<T>builder()
+                .items(result.getContent())
+                .page(result.getNumber())
+                .size(result.getSize())
+                .totalCount(result.getTotalElements())
+                .hasMore(result.hasNext())
+                .build();
+    }
+
+    private Long getCurrentUserId() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated()) {
+            return null;
+        }
+        User user = userRepository.findByUsername(authentication.getName());
+        return user != null ? user.getId() : null;
+    }
+
     private User getCurrentUser() {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         if (authentication != null && authentication.isAuthenticated()) {
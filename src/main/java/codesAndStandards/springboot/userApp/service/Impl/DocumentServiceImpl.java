@@ -8,6 +8,11 @@ import codesAndStandards.springboot.userApp.repository.UserRepository;
 import codesAndStandards.springboot.userApp.repository.AccessControlLogicRepository;
 import codesAndStandards.springboot.userApp.service.DocumentService;
 import codesAndStandards.springboot.userApp.service.GroupService;
+import codesAndStandards.springboot.userApp.service.DocumentProfileService;
+import codesAndStandards.springboot.userApp.service.UserDocumentAccessService;
+import codesAndStandards.springboot.userApp.service.LinearizationService;
+import codesAndStandards.springboot.userApp.service.RenditionService;
+import codesAndStandards.springboot.userApp.service.WatermarkedFileCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
@@ -34,6 +39,11 @@ public class DocumentServiceImpl implements DocumentService {
     private final StoredProcedureRepository storedProcedureRepository;
     private final GroupService groupService;
     private final AccessControlLogicRepository accessControlLogicRepository;
+    private final WatermarkedFileCache watermarkedFileCache;
+    private final RenditionService renditionService;
+    private final LinearizationService linearizationService;
+    private final DocumentProfileService documentProfileService;
+    private final UserDocumentAccessService userDocumentAccessService;
 
     @Value("${file.upload-dir}")
     private String uploadDir;
@@ -42,12 +52,22 @@ public class DocumentServiceImpl implements DocumentService {
                                UserRepository userRepository,
                                StoredProcedureRepository storedProcedureRepository,
                                GroupService groupService,
-                               AccessControlLogicRepository accessControlLogicRepository) {
+                               AccessControlLogicRepository accessControlLogicRepository,
+                               WatermarkedFileCache watermarkedFileCache,
+                               RenditionService renditionService,
+                               LinearizationService linearizationService,
+                               DocumentProfileService documentProfileService,
+                               UserDocumentAccessService userDocumentAccessService) {
         this.documentRepository = documentRepository;
         this.userRepository = userRepository;
         this.storedProcedureRepository = storedProcedureRepository;
         this.groupService = groupService;
         this.accessControlLogicRepository = accessControlLogicRepository;
+        this.watermarkedFileCache = watermarkedFileCache;
+        this.renditionService = renditionService;
+        this.linearizationService = linearizationService;
+        this.documentProfileService = documentProfileService;
+        this.userDocumentAccessService = userDocumentAccessService;
     }
 
     // ✅ UPDATED: Added groupIds parameter
@@ -116,6 +136,9 @@ public class DocumentServiceImpl implements DocumentService {
         }
 
         logger.info("✅ Document uploaded successfully. ID = {}", documentId);
+        renditionService.warmThumbnail(documentId, filePath.toString());
+        linearizationService.requestLinearization(documentId);
+        documentProfileService.requestProfile(documentId);
 
         // ✅ Link uploaded document to selected groups (if any)
         if (groupIds != null && !groupIds.trim().isEmpty()) {
@@ -125,20 +148,9 @@ public class DocumentServiceImpl implements DocumentService {
                     .map(Long::valueOf)
                     .collect(Collectors.toList());
 
-            if (!groupIdList.isEmpty()) {
-                for (Long groupId : groupIdList) {
-                    try {
-                        // Uses existing access-control logic; it already checks duplicates
-                        groupService.addDocumentToGroup(groupId, documentId);
-                        logger.info("✅ Linked document {} to group {}", documentId, groupId);
-                    } catch (Exception e) {
-                        logger.error("❌ Failed to link document {} to group {}: {}",
-                                documentId, groupId, e.getMessage());
-                        // Continue with other groups even if one fails
-                    }
-                }
-                logger.info("✅ Successfully linked document {} to {} groups", documentId, groupIdList.size());
-            }
+            // One statement for all groups; groups that no longer exist are skipped
+            groupService.syncDocumentGroups(documentId, groupIdList);
+            logger.info("✅ Linked document {} to {} groups", documentId, groupIdList.size());
         } else {
             logger.info("ℹ️ No groups selected for document {}", documentId);
         }
@@ -174,6 +186,13 @@ public class DocumentServiceImpl implements DocumentService {
                 .orElseThrow(() -> new RuntimeException("Document not found with id: " + id));
 
         if (documentDto.getFilePath() != null && !documentDto.getFilePath().isEmpty()) {
+            if (!documentDto.getFilePath().equals(document.getFilePath())) {
+                // The linearized copy belongs to the old file
+                linearizationService.deleteCopy(document.getWebOptimizedPath());
+                document.setWebOptimizedPath(null);
+                linearizationService.requestLinearization(id);
+                documentProfileService.requestProfile(id);
+            }
             document.setFilePath(documentDto.getFilePath());
         }
 
@@ -218,39 +237,19 @@ public class DocumentServiceImpl implements DocumentService {
 
         logger.info("✅ Document metadata updated successfully: {}", id);
 
-        // ✅ NEW: Update group associations
-        // First, remove all existing group associations for this document
-        try {
-            accessControlLogicRepository.deleteByDocumentId(id);
-            logger.info("✅ Removed existing group associations for document {}", id);
-        } catch (Exception e) {
-            logger.warn("⚠️ No existing group associations to remove for document {}: {}", id, e.getMessage());
-        }
+        // Cached watermarked copies were made from the previous file / title
+        watermarkedFileCache.invalidateDocument(id);
 
-        // Then, add new group associations
-        if (groupIds != null && !groupIds.trim().isEmpty()) {
-            List<Long> groupIdList = Arrays.stream(groupIds.split(","))
-                    .map(String::trim)
-                    .filter(s -> !s.isEmpty())
-                    .map(Long::valueOf)
-                    .collect(Collectors.toList());
+        // ✅ NEW: Update group associations
+        // Only links that changed are deleted or inserted
+        List<Long> groupIdList = groupIds == null ? List.of() : Arrays.stream(groupIds.split(","))
+                .map(String::trim)
+                .filter(s -> !s.isEmpty())
+                .map(Long::valueOf)
+                .collect(Collectors.toList());
 
-            if (!groupIdList.isEmpty()) {
-                for (Long groupId : groupIdList) {
-                    try {
-                        groupService.addDocumentToGroup(groupId, id);
-                        logger.info("✅ Linked document {} to group {}", id, groupId);
-                    } catch (Exception e) {
-                        logger.error("❌ Failed to link document {} to group {}: {}",
-                                id, groupId, e.getMessage());
-                        // Continue with other groups even if one fails
-                    }
-                }
-                logger.info("✅ Successfully updated group associations for document {}", id);
-            }
-        } else {
-            logger.info("ℹ️ No groups selected for document {} (all associations removed)", id);
-        }
+        groupService.syncDocumentGroups(id, groupIdList);
+        logger.info("✅ Updated group associations for document {} ({} groups)", id, groupIdList.size());
     }
     //groupname sdor docuemnts- Lochan
     public String getGroupNamesForDocument(Long documentId) {
@@ -294,6 +293,7 @@ public class DocumentServiceImpl implements DocumentService {
     public void deleteDocument(Long id) {
         logger.info("Deleting document ID: {}", id);
 
+        String webOptimizedPath = documentRepository.findWebOptimizedPathById(id).orElse(null);
         Map<String, Object> result = storedProcedureRepository.deleteDocument(id);
         Boolean deleted = (Boolean) result.get("deleted");
         String filePath = (String) result.get("filePath");
@@ -302,6 +302,10 @@ public class DocumentServiceImpl implements DocumentService {
             throw new RuntimeException("Failed to delete document");
         }
 
+        watermarkedFileCache.invalidateDocument(id);
+        renditionService.invalidateDocument(id);
+        linearizationService.deleteCopy(webOptimizedPath);
+
         if (filePath != null && !filePath.isEmpty()) {
             try {
                 Files.deleteIfExists(Paths.get(filePath));
@@ -363,7 +367,7 @@ public class DocumentServiceImpl implements DocumentService {
 
     @Override
     public List<DocumentDto> findDocumentsAccessibleByUser(Long userId) {
-        List<Document> docs = documentRepository.findDocumentsAccessibleByUser(userId);
+        List<Document> docs = userDocumentAccessService.findAccessibleDocuments(userId);
         return docs.stream()
                 .map(this::convertToDto)
                 .collect(Collectors.toList());
@@ -2,15 +2,23 @@ package codesAndStandards.springboot.userApp.service.Impl;
 
 import codesAndStandards.springboot.userApp.dto.GroupListDTO;
 import codesAndStandards.springboot.userApp.dto.UserDto;
+import codesAndStandards.springboot.userApp.dto.UserListDTO;
+import codesAndStandards.springboot.userApp.dto.UserListPage;
 import codesAndStandards.springboot.userApp.entity.Group;
 import codesAndStandards.springboot.userApp.entity.GroupUser;
 import codesAndStandards.springboot.userApp.entity.Role;
 import codesAndStandards.springboot.userApp.entity.User;
-import codesAndStandards.springboot.userApp.repository.GroupRepository;
+import codesAndStandards.springboot.userApp.event.UserAccountChangedEvent;
 import codesAndStandards.springboot.userApp.repository.GroupUserRepository;
 import codesAndStandards.springboot.userApp.repository.RoleRepository;
 import codesAndStandards.springboot.userApp.repository.UserRepository;
+import codesAndStandards.springboot.userApp.service.GroupService;
 import codesAndStandards.springboot.userApp.service.UserService;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
@@ -26,7 +34,9 @@ import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 import org.slf4j.Logger;
@@ -37,11 +47,23 @@ public class UserServiceImpl implements UserService {
 
     private static final Logger logger = LoggerFactory.getLogger(UserServiceImpl.class);
 
+    private static final int MAX_USER_PAGE_SIZE = 200;
+
+    // Sort keys accepted from the client -> entity paths
+    private static final Map<String, String> USER_SORT_PROPERTIES = Map.of(
+            "username", "username",
+            "firstName", "firstName",
+            "lastName", "lastName",
+            "email", "email",
+            "role", "role.roleName",
+            "createdAt", "createdAt");
+
     private final UserRepository userRepository;
     private final RoleRepository roleRepository;
     private final PasswordEncoder passwordEncoder;
     private final GroupUserRepository groupUserRepository;
-    private final GroupRepository groupRepository;
+    private final GroupService groupService;
+    private final ApplicationEventPublisher eventPublisher;
 
     @PersistenceContext
     private EntityManager entityManager;
@@ -50,12 +72,14 @@ public class UserServiceImpl implements UserService {
                            RoleRepository roleRepository,
                            PasswordEncoder passwordEncoder,
                            GroupUserRepository groupUserRepository,
-                           GroupRepository groupRepository) {
+                           GroupService groupService,
+                           ApplicationEventPublisher eventPublisher) {
         this.userRepository = userRepository;
         this.roleRepository = roleRepository;
         this.passwordEncoder = passwordEncoder;
         this.groupUserRepository = groupUserRepository;
-        this.groupRepository = groupRepository;
+        this.groupService = groupService;
+        this.eventPublisher = eventPublisher;
     }
 
     // =====================================================
@@ -130,19 +154,9 @@ public class UserServiceImpl implements UserService {
             // 4. Save Group Mappings
             // =============================
 
-            // Remove old groups (in case of update)
-            groupUserRepository.deleteByUserId(userId);
-            logger.info("Old group mappings removed for userId: {}", userId);
-
-            // Insert new groups
-            if (userDto.getGroupIds() != null && !userDto.getGroupIds().isEmpty()) {
-                for (Long groupId : userDto.getGroupIds()) {
-                    groupUserRepository.insertUserGroup(userId, groupId, createdById);
-                    logger.info("Added groupId {} for userId {}", groupId, userId);
-                }
-            } else {
-                logger.info("No groupIds provided for this user.");
-            }
+            // Replace group mappings (in case of update); only changes are written
+            groupService.syncUserGroups(userId, userDto.getGroupIds(), false);
+            logger.info("Group mappings saved for userId: {}", userId);
 
             logger.info("User and group mapping saved successfully.");
 
@@ -183,6 +197,7 @@ public class UserServiceImpl implements UserService {
             storedProcedure.setParameter(6, userDto.getRoleId());
 
             storedProcedure.execute();
+            eventPublisher.publishEvent(new UserAccountChangedEvent(username));
             logger.info("User updated by admin successfully: {}", username);
 
         } catch (Exception e) {
@@ -216,6 +231,7 @@ public class UserServiceImpl implements UserService {
                             ? passwordEncoder.encode(userDto.getPassword()) : null);
 
             storedProcedure.execute();
+            eventPublisher.publishEvent(new UserAccountChangedEvent(username));
             logger.info("User profile updated successfully: {}", username);
 
         } catch (Exception e) {
@@ -239,6 +255,7 @@ public class UserServiceImpl implements UserService {
             storedProcedure.setParameter(1, username);
 
             storedProcedure.execute();
+            eventPublisher.publishEvent(new UserAccountChangedEvent(username));
             logger.info("User deleted successfully: {}", username);
 
         } catch (Exception e) {
@@ -355,7 +372,10 @@ public class UserServiceImpl implements UserService {
     }
 
     @Override
+    @Transactional
     public void deleteUserById(Long userId) {
+        userRepository.findById(userId)
+                .ifPresent(user -> eventPublisher.publishEvent(new UserAccountChangedEvent(user.getUsername())));
         userRepository.deleteById(userId);
     }
 
@@ -423,9 +443,11 @@ public class UserServiceImpl implements UserService {
 
 
     @Override
+    @Transactional
     public void editUser(UserDto updatedUserDto, Long userId) {
         User existingUser = userRepository.findById(userId)
                 .orElseThrow(() -> new EntityNotFoundException("User not found"));
+        String previousUsername = existingUser.getUsername();
 
         existingUser.setFirstName(updatedUserDto.getFirstName());
         existingUser.setLastName(updatedUserDto.getLastName());
@@ -445,6 +467,7 @@ public class UserServiceImpl implements UserService {
         existingUser.setRole(role);
 
         userRepository.save(existingUser);
+        eventPublisher.publishEvent(new UserAccountChangedEvent(previousUsername));
     }
 
     @Override
@@ -454,6 +477,49 @@ public class UserServiceImpl implements UserService {
                 .collect(Collectors.toList());
     }
 
+    @Override
+    public UserListPage getUsersPage(String search, boolean contains, String roleName,
+                                     int page, int size, String sort, String direction) {
+        Sort.Direction dir = "desc".equalsIgnoreCase(direction) ? Sort.Direction.DESC : Sort.Direction.ASC;
+        String property = USER_SORT_PROPERTIES.getOrDefault(sort, "username");
+        // ID as tie-breaker, so pages never overlap
+        Pageable pageable = PageRequest.of(Math.max(0, page), Math.max(1, Math.min(size, MAX_USER_PAGE_SIZE)),
+                Sort.by(dir, property).and(Sort.by("id")));
+
+        String role = roleName == null || roleName.isBlank() || "all".equalsIgnoreCase(roleName) ? null : roleName.trim();
+        Page<UserListDTO> result = userRepository.findUserList(likePattern(search, contains), role, pageable);
+
+        return UserListPage.builder()
+                .users(result.getContent())
+                .page(result.getNumber())
+                .size(result.getSize())
+                .totalCount(result.getTotalElements())
+                .hasMore(result.hasNext())
+                .build();
+    }
+
+    @Override
+    public Map<String, Long> countUsersByRole() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (Object[] row : userRepository.countUsersByRole()) {
+            counts.put((String) row[0], (Long) row[1]);
+        }
+        return counts;
+    }
+
+    // LIKE pattern with '!' as escape character, or null for no search
+    static String likePattern(String search, boolean contains) {
+        if (search == null || search.isBlank()) {
+            return null;
+        }
+        String escaped = search.trim()
+                .replace("!", "!!")
+                .replace("%", "!%")
+                .replace("_", "!_")
+                .replace("[", "![");
+        return (contains ? "%" : "") + escaped + "%";
+    }
+
     private UserDto mapToUserDto(User user) {
         UserDto dto = new UserDto();
         dto.setId(user.getId());
@@ -525,34 +591,14 @@ public class UserServiceImpl implements UserService {
             return;
         }
 
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new RuntimeException("User not found with ID: " + userId));
-
-        // Get current logged-in user for audit
-        User currentUser = getCurrentUser();
-        Long createdById = currentUser != null ? currentUser.getId() : null;
+        if (!userRepository.existsById(userId)) {
+            throw new RuntimeException("User not found with ID: " + userId);
+        }
 
         logger.info("Assigning {} groups to user ID: {}", groupIds.size(), userId);
 
-        for (Long groupId : groupIds) {
-            try {
-                // Verify group exists
-                Group group = groupRepository.findById(groupId)
-                        .orElseThrow(() -> new RuntimeException("Group not found with ID: " + groupId));
-
-                // Check if association already exists
-                if (!groupUserRepository.existsByUserIdAndGroupId(userId, groupId)) {
-                    // Use native query to insert
-                    groupUserRepository.insertUserGroup(userId, groupId, createdById);
-                    logger.info("✅ Assigned user {} to group {} ({})", userId, groupId, group.getGroupName());
-                } else {
-                    logger.info("ℹ️ User {} already in group {} ({})", userId, groupId, group.getGroupName());
-                }
-            } catch (Exception e) {
-                logger.error("❌ Failed to assign user {} to group {}: {}", userId, groupId, e.getMessage());
-                // Continue with other groups even if one fails
-            }
-        }
+        // Missing memberships only, in one statement; groups that do not exist are skipped
+        groupService.syncUserGroups(userId, groupIds, true);
 
         logger.info("✅ Group assignment completed for user ID: {}", userId);
     }
@@ -565,16 +611,8 @@ public class UserServiceImpl implements UserService {
         logger.info("🔄 Updating group associations for user ID: {}", userId);
 
         try {
-            // Delete existing associations
-            groupUserRepository.deleteByUserId(userId);
-            logger.info("🗑️ Deleted existing group associations for user ID: {}", userId);
-
-            // Add new associations
-            if (groupIds != null && !groupIds.isEmpty()) {
-                saveUserGroupAssociations(userId, groupIds);
-            } else {
-                logger.info("ℹ️ No groups selected for user ID: {}", userId);
-            }
+            // Only memberships that changed are deleted or inserted
+            groupService.syncUserGroups(userId, groupIds, false);
         } catch (Exception e) {
             logger.error("❌ Error updating group associations for user {}: {}", userId, e.getMessage(), e);
             throw new RuntimeException("Failed to update group associations: " + e.getMessage());
@@ -0,0 +1,275 @@
+package codesAndStandards.springboot.userApp.service;
+
+import codesAndStandards.springboot.userApp.repository.DocumentRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ingest stage that writes a linearized ("fast web view") copy of each document, with object
+ * streams and a compressed xref, for the viewer. pdf.js can then draw page 1 after fetching
+ * only the first part of the file via range requests. Downloads keep using the original.
+ *
+ * PDFBox cannot write linearized files, so the copy is produced by qpdf, which must be installed
+ * and configured (linearize.enabled / linearize.qpdf-path). Documents uploaded while the queue
+ * was full, or before the feature was enabled, are picked up by the periodic backfill.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class LinearizationService {
+
+    private final DocumentRepository documentRepository;
+    private final NetworkFileService networkFileService;
+
+    @Value("${linearize.enabled:false}")
+    private boolean enabled;
+
+    @Value("${linearize.qpdf-path:qpdf}")
+    private String qpdfPath;
+
+    @Value("${linearize.output-dir:web-optimized}")
+    private String outputDir;
+
+    @Value("${linearize.timeout-seconds:300}")
+    private long timeoutSeconds;
+
+    @Value("${linearize.queue-capacity:500}")
+    private int queueCapacity;
+
+    private ThreadPoolExecutor executor;
+    private Path directory;
+
+    // Queued or running, so the backfill does not submit a document twice
+    private final Set<Long> pending = ConcurrentHashMap.newKeySet();
+    // Failed during this run; retried after a restart rather than every backfill
+    private final Set<Long> failed = ConcurrentHashMap.newKeySet();
+
+    @PostConstruct
+    void init() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        directory = Paths.get(outputDir).toAbsolutePath();
+        Files.createDirectories(directory);
+
+        // One worker: qpdf is a separate process, and ingest is never latency sensitive
+        executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)),
+                r -> {
+                    Thread t = new Thread(r, "linearize-worker");
+                    t.setDaemon(true);
+                    return t;
+                });
+        log.info("Linearized copies enabled: {} -> {}", qpdfPath, directory);
+    }
+
+    @PreDestroy
+    void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Queue a document for linearization once the current transaction (if any) has committed.
+     */
+    public void requestLinearization(Long documentId) {
+        if (!enabled || documentId == null) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    enqueue(documentId);
+                }
+            });
+        } else {
+            enqueue(documentId);
+        }
+    }
+
+    /**
+     * The linearized copy to serve for a document, or null to serve the original.
+     */
+    public Path getWebOptimizedCopy(Long documentId) {
+        if (!enabled) {
+            return null;
+        }
+        String webOptimizedPath = documentRepository.findWebOptimizedPathById(documentId).orElse(null);
+        if (webOptimizedPath == null) {
+            return null;
+        }
+        Path copy = Paths.get(webOptimizedPath);
+        return Files.isReadable(copy) ? copy : null;
+    }
+
+    /**
+     * Remove a linearized copy that no longer belongs to a document (file replaced or document
+     * deleted), once the current transaction (if any) has committed.
+     */
+    public void deleteCopy(String webOptimizedPath) {
+        if (webOptimizedPath == null || webOptimizedPath.isEmpty()) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    deleteFile(webOptimizedPath);
+                }
+            });
+        } else {
+            deleteFile(webOptimizedPath);
+        }
+    }
+
+    private void deleteFile(String webOptimizedPath) {
+        try {
+            Files.deleteIfExists(Paths.get(webOptimizedPath));
+        } catch (IOException e) {
+            log.warn("Could not delete linearized copy {}: {}", webOptimizedPath, e.getMessage());
+        }
+    }
+
+    /**
+     * Queue documents that do not have a linearized copy yet.
+     */
+    @Scheduled(initialDelayString = "${linearize.backfill-initial-delay-ms:60000}",
+            fixedDelayString = "${linearize.backfill-interval-ms:900000}")
+    public void backfill() {
+        if (!enabled) {
+            return;
+        }
+        long afterId = 0;
+        int queued = 0;
+        while (executor.getQueue().remainingCapacity() > 0) {
+            List<Object[]> rows = documentRepository.findWithoutWebOptimizedCopy(afterId, PageRequest.of(0, 100));
+            if (rows.isEmpty()) {
+                break;
+            }
+            for (Object[] row : rows) {
+                Long documentId = (Long) row[0];
+                afterId = documentId;
+                if (!failed.contains(documentId) && !pending.contains(documentId) && enqueue(documentId)) {
+                    queued++;
+                }
+            }
+        }
+        if (queued > 0) {
+            log.info("Queued {} documents for linearization", queued);
+        }
+    }
+
+    private boolean enqueue(Long documentId) {
+        if (!pending.add(documentId)) {
+            return true;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    linearize(documentId);
+                } finally {
+                    pending.remove(documentId);
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            // Queue full: the backfill will pick it up later
+            pending.remove(documentId);
+            return false;
+        }
+    }
+
+    private void linearize(Long documentId) {
+        String filePath = documentRepository.findFilePathById(documentId).orElse(null);
+        if (filePath == null) {
+            return;
+        }
+
+        long started = System.currentTimeMillis();
+        Path input = null;
+        Path output = directory.resolve(documentId + "-" + UUID.randomUUID() + ".pdf");
+        try {
+            input = Files.createTempFile(directory, "source-", ".tmp");
+            try (InputStream in = networkFileService.openFileStream(filePath)) {
+                Files.copy(in, input, StandardCopyOption.REPLACE_EXISTING);
+            }
+
+            runQpdf(input, output);
+
+            if (documentRepository.setWebOptimizedPath(documentId, filePath, output.toString()) == 0) {
+                // File replaced or document deleted while we were working
+                Files.deleteIfExists(output);
+                return;
+            }
+            log.info("Linearized document {} in {} ms ({} -> {} bytes)", documentId,
+                    System.currentTimeMillis() - started, Files.size(input), Files.size(output));
+
+        } catch (Exception e) {
+            failed.add(documentId);
+            log.warn("Could not linearize document {}: {}", documentId, e.getMessage());
+            deleteFile(output.toString());
+        } finally {
+            if (input != null) {
+                deleteFile(input.toString());
+            }
+        }
+    }
+
+    private void runQpdf(Path input, Path output) throws IOException, InterruptedException {
+        Path messages = Files.createTempFile(directory, "qpdf-", ".tmp");
+        try {
+            Process process = new ProcessBuilder(qpdfPath,
+                    "--linearize",
+                    "--object-streams=generate",
+                    "--compress-streams=y",
+                    input.toString(),
+                    output.toString())
+                    .redirectErrorStream(true)
+                    .redirectOutput(messages.toFile())
+                    .start();
+
+            if (!process.waitFor(timeoutSeconds, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+                throw new IOException("qpdf timed out after " + timeoutSeconds + " s");
+            }
+            // 0 = success, 3 = success with warnings (qpdf repaired something in the input)
+            int exitCode = process.exitValue();
+            if (exitCode != 0 && exitCode != 3) {
+                throw new IOException("qpdf exited with " + exitCode + ": "
+                        + Files.readString(messages, StandardCharsets.UTF_8).trim());
+            }
+        } finally {
+            Files.deleteIfExists(messages);
+        }
+    }
+}
@@ -56,6 +56,23 @@ public class NetworkFileService {
         }
     }
 
+    // ================= OPEN FILE STREAM =================
+    /**
+     * Open a file on the share for streaming reads, without buffering it in memory.
+     * The caller must close the returned stream.
+     */
+    public InputStream openFileStream(String filePath) throws Exception {
+        logger.info("Opening file stream from network: {}", filePath);
+        String smbPath = convertToSmbUrl(filePath);
+
+        try {
+            return new SmbFile(smbPath, getAuthContext()).getInputStream();
+        } catch (Exception e) {
+            logger.error("Error opening SMB file: {}", e.getMessage(), e);
+            throw new Exception("Failed to read SMB file: " + e.getMessage(), e);
+        }
+    }
+
     // ================= STORE FILE =================
     public String storeFile(MultipartFile file) throws Exception {
         if (file == null || file.isEmpty()) {
@@ -224,6 +241,20 @@ public class NetworkFileService {
         }
     }
 
+    // ================= LAST MODIFIED =================
+    /**
+     * Last-modified time of a file on the share in epoch millis, or 0 if unknown.
+     */
+    public long getLastModified(String filePath) {
+        try {
+            String smbPath = convertToSmbUrl(filePath);
+            return new SmbFile(smbPath, getAuthContext()).lastModified();
+        } catch (Exception e) {
+            logger.error("Error reading last-modified time: {}", e.getMessage());
+            return 0L;
+        }
+    }
+
     // ================= TEST CONNECTION =================
     public boolean testConnection() {
         try {
@@ -0,0 +1,195 @@
+package codesAndStandards.springboot.userApp.service;
+
+import codesAndStandards.springboot.userApp.exception.TooManyRequestsException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bulkhead for CPU-heavy PDF work (watermarking, page counting, rendering).
+ *
+ * A fixed number of worker threads with a bounded queue: when the queue is full, or one
+ * user already has their share of work admitted, the request is rejected at once with
+ * 429 + Retry-After instead of tying up another Tomcat thread. Logins and metadata pages
+ * keep their threads no matter how many large PDFs are being processed.
+ *
+ * call() does park the calling Tomcat thread in future.get() until its task finishes. That
+ * is the intended bound, not a leak: only admitted work waits, and admitted work is capped
+ * at threads + queue-capacity (22 on a 4-core box with the defaults), far below Tomcat's
+ * 200 request threads. Keep threads + queue-capacity well under server.tomcat.threads.max
+ * when tuning; everything past that is turned away with 429 rather than queued on Tomcat.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PdfWorkPool {
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${pdf.pool.threads:0}")
+    private int threads;
+
+    @Value("${pdf.pool.queue-capacity:20}")
+    private int queueCapacity;
+
+    @Value("${pdf.pool.max-per-user:2}")
+    private int maxPerUser;
+
+    @Value("${pdf.pool.retry-after-seconds:5}")
+    private int retryAfterSeconds;
+
+    private ThreadPoolExecutor executor;
+    private final ConcurrentHashMap<String, AtomicInteger> admittedPerUser = new ConcurrentHashMap<>();
+
+    private Timer waitTimer;
+    private Timer runTimer;
+    private Counter rejectedPoolFull;
+    private Counter rejectedUserLimit;
+
+    @PostConstruct
+    void start() {
+        int poolSize = threads > 0 ? threads : Math.max(2, Runtime.getRuntime().availableProcessors() / 2);
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)),
+                r -> {
+                    Thread t = new Thread(r, "pdf-work-" + threadNumber.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+
+        waitTimer = meterRegistry.timer("pdf.pool.wait");
+        runTimer = meterRegistry.timer("pdf.pool.run");
+        rejectedPoolFull = meterRegistry.counter("pdf.pool.rejected", "reason", "pool-full");
+        rejectedUserLimit = meterRegistry.counter("pdf.pool.rejected", "reason", "user-limit");
+        Gauge.builder("pdf.pool.queue.depth", executor, e -> e.getQueue().size()).register(meterRegistry);
+        Gauge.builder("pdf.pool.active", executor, ThreadPoolExecutor::getActiveCount).register(meterRegistry);
+
+        log.info("PDF worker pool started: {} threads, queue {}, {} per user", poolSize, queueCapacity, maxPerUser);
+    }
+
+    @PreDestroy
+    void stop() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Run the task on the PDF pool and wait for its result.
+     * The calling thread blocks for the task's queue wait plus run time (see class comment
+     * for why that is bounded). Throws TooManyRequestsException without waiting if the work
+     * cannot be admitted.
+     */
+    public <T> T call(String user, Callable<T> task) throws Exception {
+        Future<T> future = submit(user, task);
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            throw e;
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw e;
+        }
+    }
+
+    /**
+     * Admit the task to the PDF pool without waiting for it.
+     * Throws TooManyRequestsException if the user or the pool is at its limit.
+     */
+    public <T> Future<T> submit(String user, Callable<T> task) {
+        String owner = user != null ? user : "anonymous";
+        AtomicInteger admitted = admittedPerUser.computeIfAbsent(owner, u -> new AtomicInteger());
+        if (admitted.incrementAndGet() > maxPerUser) {
+            admitted.decrementAndGet();
+            rejectedUserLimit.increment();
+            throw new TooManyRequestsException(
+                    "Too many document operations in progress for this user, please retry shortly", retryAfterSeconds);
+        }
+
+        AtomicBoolean released = new AtomicBoolean();
+        Runnable release = () -> {
+            if (released.compareAndSet(false, true)) {
+                admitted.decrementAndGet();
+            }
+        };
+        AtomicBoolean started = new AtomicBoolean();
+        long queuedAt = System.nanoTime();
+        AdmittedTask<T> future = new AdmittedTask<>(() -> {
+            started.set(true);
+            long startedAt = System.nanoTime();
+            waitTimer.record(startedAt - queuedAt, TimeUnit.NANOSECONDS);
+            try {
+                return task.call();
+            } finally {
+                runTimer.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+                release.run();
+            }
+        }, started, release);
+
+        try {
+            executor.execute(future);
+            return future;
+        } catch (RejectedExecutionException e) {
+            release.run();
+            rejectedPoolFull.increment();
+            log.warn("PDF worker pool saturated, rejecting work for {}", owner);
+            throw new TooManyRequestsException("Server is busy processing documents, please retry shortly", retryAfterSeconds);
+        }
+    }
+
+    /**
+     * A cancelled FutureTask never runs its callable, so a task cancelled while still queued
+     * releases its user's slot from done(). Once started, the callable's finally releases it,
+     * and only after the work has actually stopped. The release itself runs at most once.
+     */
+    private static final class AdmittedTask<T> extends FutureTask<T> {
+
+        private final AtomicBoolean started;
+        private final Runnable release;
+
+        AdmittedTask(Callable<T> callable, AtomicBoolean started, Runnable release) {
+            super(callable);
+            this.started = started;
+            this.release = release;
+        }
+
+        @Override
+        protected void done() {
+            if (!started.get()) {
+                release.run();
+            }
+        }
+    }
+
+    public int getMaxPerUser() {
+        return maxPerUser;
+    }
+
+    public int getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
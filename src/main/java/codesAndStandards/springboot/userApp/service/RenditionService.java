@@ -0,0 +1,536 @@
+package codesAndStandards.springboot.userApp.service;
+
+import codesAndStandards.springboot.userApp.dto.DocumentPagesDto;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.rendering.ImageType;
+import org.apache.pdfbox.rendering.PDFRenderer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Page images of documents: first-page thumbnails for the library, low-resolution page
+ * previews, and full pages at a fixed set of zoom levels for the rasterized viewer.
+ *
+ * Rendered with PDFBox on the PDF worker pool and kept in a disk cache that survives restarts,
+ * with least-recently-used eviction once the byte budget is exceeded. The source PDF is copied
+ * from the share into a separate "sources" directory once, so rendering further pages does not
+ * re-read the whole file over SMB. Source copies have their own budget, so a large source never
+ * flushes the page images, and a copy is pinned (never evicted) while a page is being rendered
+ * from it. Only renders of the same document wait for its copy to arrive.
+ *
+ * File names carry the document id and a fingerprint of its source file path, so replacing the
+ * file produces new renditions and the old ones age out.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class RenditionService {
+
+    public static final String FORMAT = "jpg";
+
+    /** Zoom levels (percent of 72 dpi) offered by the page endpoint; requests snap to the nearest */
+    public static final List<Integer> PAGE_SCALES = List.of(50, 75, 100, 125, 150, 200, 300);
+
+    // Background work (ingest warm-up, page prefetch) shares one pool owner, so it is capped at
+    // the per-user limit and can never crowd out interactive requests
+    private static final String BACKGROUND_OWNER = "rendition-background";
+    private static final int MAX_CACHED_LAYOUTS = 500;
+
+    private final NetworkFileService networkFileService;
+    private final PdfWorkPool pdfWorkPool;
+    private final MeterRegistry meterRegistry;
+    private final DocumentProfileService documentProfileService;
+
+    @Value("${rendition.cache.dir:cache/renditions}")
+    private String cacheDir;
+
+    @Value("${rendition.cache.max-bytes:536870912}")
+    private long maxBytes;
+
+    @Value("${rendition.thumbnail-width:240}")
+    private int thumbnailWidth;
+
+    @Value("${rendition.preview-width:900}")
+    private int previewWidth;
+
+    @Value("${rendition.prefetch-pages:1}")
+    private int prefetchPages;
+
+    @Value("${rendition.source-cache.max-bytes:2147483648}")
+    private long maxSourceBytes;
+
+    // Access-ordered index of the files on disk (path -> size). Guarded by "this".
+    private final LinkedHashMap<Path, Long> index = new LinkedHashMap<>(256, 0.75f, true);
+    private long totalBytes;
+
+    // Page sizes per document version, small enough to keep in memory
+    private final Map<String, List<DocumentPagesDto.PageSize>> layouts = Collections.synchronizedMap(
+            new LinkedHashMap<>(64, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, List<DocumentPagesDto.PageSize>> eldest) {
+                    return size() > MAX_CACHED_LAYOUTS;
+                }
+            });
+
+    // Local source copies (path -> size), access-ordered, and how many renders are using each.
+    // Guarded by sourceLock.
+    private final Object sourceLock = new Object();
+    private final LinkedHashMap<Path, Long> sourceIndex = new LinkedHashMap<>(64, 0.75f, true);
+    private final Map<Path, Integer> sourcePins = new HashMap<>();
+    private long sourceBytes;
+
+    // Fetch in progress per source copy, so concurrent renders of one document copy it only once
+    private final ConcurrentHashMap<Path, CompletableFuture<Path>> sourceFetches = new ConcurrentHashMap<>();
+
+    private Path directory;
+    private Path sourceDirectory;
+    private Counter hits;
+    private Counter misses;
+
+    /**
+     * How a page is sized: to a fixed pixel width, or by a zoom factor.
+     */
+    private static final class Size {
+        final String suffix;
+        final int width;
+        final int scalePercent;
+
+        private Size(String suffix, int width, int scalePercent) {
+            this.suffix = suffix;
+            this.width = width;
+            this.scalePercent = scalePercent;
+        }
+
+        static Size width(int width) {
+            return new Size("w" + width, width, 0);
+        }
+
+        static Size scale(int scalePercent) {
+            return new Size("s" + scalePercent, 0, scalePercent);
+        }
+
+        float scaleFor(PDRectangle box) {
+            return width > 0 ? width / Math.max(1f, box.getWidth()) : scalePercent / 100f;
+        }
+    }
+
+    @FunctionalInterface
+    private interface DocumentTask<T> {
+        T apply(PDDocument document) throws Exception;
+    }
+
+    @PostConstruct
+    void init() throws IOException {
+        directory = Paths.get(cacheDir).toAbsolutePath();
+        sourceDirectory = directory.resolve("sources");
+        Files.createDirectories(sourceDirectory);
+
+        // Rebuild the indexes from disk, oldest first so LRU order roughly survives a restart
+        List<Path> files = listCacheFiles(directory);
+        synchronized (this) {
+            for (Path file : files) {
+                long size = Files.size(file);
+                index.put(file, size);
+                totalBytes += size;
+            }
+            evictOverBudget(null);
+        }
+        List<Path> sources = listCacheFiles(sourceDirectory);
+        synchronized (sourceLock) {
+            for (Path file : sources) {
+                long size = Files.size(file);
+                sourceIndex.put(file, size);
+                sourceBytes += size;
+            }
+            evictSourcesOverBudget();
+        }
+
+        hits = meterRegistry.counter("rendition.cache.requests", "result", "hit");
+        misses = meterRegistry.counter("rendition.cache.requests", "result", "miss");
+        log.info("Rendition cache at {}: {} files, {} bytes; {} source copies, {} bytes",
+                directory, files.size(), totalBytes, sources.size(), sourceBytes);
+    }
+
+    /**
+     * Regular files of one cache directory, oldest first. Leftover temp files are deleted, as are
+     * source copies stored among the renditions by earlier versions.
+     */
+    private List<Path> listCacheFiles(Path dir) throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, Files::isRegularFile)) {
+            for (Path file : stream) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(".tmp") || name.endsWith("-source.pdf")) {
+                    deleteQuietly(file);
+                } else {
+                    files.add(file);
+                }
+            }
+        }
+        files.sort(Comparator.comparing(this::lastModifiedMillis));
+        return files;
+    }
+
+    /**
+     * First-page thumbnail, rendered on first request.
+     */
+    public Path getThumbnail(Long documentId, String filePath, String username) throws Exception {
+        return getRendition(documentId, filePath, 0, Size.width(thumbnailWidth), username);
+    }
+
+    /**
+     * Low-resolution preview of a page (0-based), rendered on first request.
+     * Throws IllegalArgumentException if the page does not exist.
+     */
+    public Path getPreview(Long documentId, String filePath, int pageIndex, String username) throws Exception {
+        return getRendition(documentId, filePath, pageIndex, Size.width(previewWidth), username);
+    }
+
+    /**
+     * A page (0-based) at a zoom level, for the rasterized viewer. The scale snaps to the
+     * nearest of PAGE_SCALES. The neighbouring pages at the same scale are rendered in the
+     * background so paging forward or back is served from the cache.
+     */
+    public Path getPage(Long documentId, String filePath, int pageIndex, int scalePercent, String username) throws Exception {
+        Size size = Size.scale(nearestScale(scalePercent));
+        Path page = getRendition(documentId, filePath, pageIndex, size, username);
+        for (int offset = 1; offset <= prefetchPages; offset++) {
+            prefetch(documentId, filePath, pageIndex + offset, size);
+            prefetch(documentId, filePath, pageIndex - offset, size);
+        }
+        return page;
+    }
+
+    /**
+     * Page count and page sizes of a document.
+     */
+    public List<DocumentPagesDto.PageSize> getPageSizes(Long documentId, String filePath, String username) throws Exception {
+        String key = documentId + "-" + fingerprint(filePath);
+        List<DocumentPagesDto.PageSize> sizes = layouts.get(key);
+        if (sizes == null) {
+            // Measured at ingest: no need to open the PDF at all
+            sizes = documentProfileService.findCurrent(documentId, filePath)
+                    .filter(profile -> profile.getPageSizes() != null)
+                    .map(profile -> Collections.unmodifiableList(DocumentProfileService.decodePageSizes(profile.getPageSizes())))
+                    .orElse(null);
+        }
+        if (sizes == null) {
+            sizes = pdfWorkPool.call(username, () -> withDocument(documentId, filePath, document -> {
+                List<DocumentPagesDto.PageSize> result = new ArrayList<>();
+                for (PDPage page : document.getPages()) {
+                    PDRectangle box = page.getCropBox();
+                    boolean rotated = page.getRotation() % 180 != 0;
+                    result.add(rotated
+                            ? new DocumentPagesDto.PageSize(box.getHeight(), box.getWidth())
+                            : new DocumentPagesDto.PageSize(box.getWidth(), box.getHeight()));
+                }
+                return Collections.unmodifiableList(result);
+            }));
+        }
+        layouts.put(key, sizes);
+        return sizes;
+    }
+
+    public int nearestScale(int scalePercent) {
+        int nearest = PAGE_SCALES.get(0);
+        for (int scale : PAGE_SCALES) {
+            if (Math.abs(scale - scalePercent) < Math.abs(nearest - scalePercent)) {
+                nearest = scale;
+            }
+        }
+        return nearest;
+    }
+
+    /**
+     * Render the thumbnail of a newly ingested document in the background. Best effort: if the
+     * pool is busy it is simply rendered on first request instead.
+     */
+    public void warmThumbnail(Long documentId, String filePath) {
+        if (documentId != null && filePath != null) {
+            renderInBackground(documentId, filePath, 0, Size.width(thumbnailWidth));
+        }
+    }
+
+    /**
+     * Version tag of the renditions for this source file (used as ETag).
+     */
+    public String fingerprint(String filePath) {
+        return sha256(filePath).substring(0, 16);
+    }
+
+    /**
+     * Delete every rendition of a document.
+     */
+    public void invalidateDocument(Long documentId) {
+        String prefix = documentId + "-";
+        List<Path> removed = new ArrayList<>();
+        synchronized (this) {
+            Iterator<Map.Entry<Path, Long>> it = index.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<Path, Long> entry = it.next();
+                if (entry.getKey().getFileName().toString().startsWith(prefix)) {
+                    totalBytes -= entry.getValue();
+                    removed.add(entry.getKey());
+                    it.remove();
+                }
+            }
+        }
+        synchronized (sourceLock) {
+            Iterator<Map.Entry<Path, Long>> it = sourceIndex.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<Path, Long> entry = it.next();
+                // A copy in use is left to age out; its fingerprint no longer matches new requests
+                if (entry.getKey().getFileName().toString().startsWith(prefix) && !sourcePins.containsKey(entry.getKey())) {
+                    sourceBytes -= entry.getValue();
+                    removed.add(entry.getKey());
+                    it.remove();
+                }
+            }
+        }
+        layouts.keySet().removeIf(key -> key.startsWith(prefix));
+        removed.forEach(this::deleteQuietly);
+    }
+
+    private void prefetch(Long documentId, String filePath, int pageIndex, Size size) {
+        List<DocumentPagesDto.PageSize> sizes = layouts.get(documentId + "-" + fingerprint(filePath));
+        if (pageIndex >= 0 && (sizes == null || pageIndex < sizes.size())) {
+            renderInBackground(documentId, filePath, pageIndex, size);
+        }
+    }
+
+    private void renderInBackground(Long documentId, String filePath, int pageIndex, Size size) {
+        if (isCached(renditionPath(documentId, filePath, pageIndex, size))) {
+            return;
+        }
+        try {
+            pdfWorkPool.submit(BACKGROUND_OWNER, () -> render(documentId, filePath, pageIndex, size));
+        } catch (Exception e) {
+            log.debug("Skipped background rendering of document {} page {}: {}", documentId, pageIndex + 1, e.getMessage());
+        }
+    }
+
+    private Path getRendition(Long documentId, String filePath, int pageIndex, Size size, String username) throws Exception {
+        Path file = renditionPath(documentId, filePath, pageIndex, size);
+        if (isCached(file)) {
+            hits.increment();
+            return file;
+        }
+        misses.increment();
+        return pdfWorkPool.call(username, () -> render(documentId, filePath, pageIndex, size));
+    }
+
+    private synchronized boolean isCached(Path file) {
+        return index.get(file) != null && Files.exists(file);
+    }
+
+    private Path render(Long documentId, String filePath, int pageIndex, Size size) throws Exception {
+        Path target = renditionPath(documentId, filePath, pageIndex, size);
+        if (isCached(target)) {
+            // Rendered by a concurrent request in the meantime
+            return target;
+        }
+
+        long started = System.currentTimeMillis();
+        BufferedImage image = withDocument(documentId, filePath, document -> {
+            if (pageIndex < 0 || pageIndex >= document.getNumberOfPages()) {
+                throw new IllegalArgumentException("Page " + (pageIndex + 1) + " does not exist");
+            }
+            float scale = size.scaleFor(document.getPage(pageIndex).getCropBox());
+            return new PDFRenderer(document).renderImage(pageIndex, scale, ImageType.RGB);
+        });
+
+        Path temp = Files.createTempFile(directory, "render-", ".tmp");
+        try (OutputStream out = Files.newOutputStream(temp)) {
+            ImageIO.write(image, FORMAT, out);
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        store(temp, target);
+
+        log.debug("Rendered document {} page {} ({}) in {} ms", documentId, pageIndex + 1, size.suffix,
+                System.currentTimeMillis() - started);
+        return target;
+    }
+
+    /**
+     * Open the document from its local copy (fetching it from the share first if needed) and run
+     * the task on it. The copy is pinned for the duration, so it cannot be evicted underneath.
+     */
+    private <T> T withDocument(Long documentId, String filePath, DocumentTask<T> task) throws Exception {
+        Path source = acquireSource(documentId, filePath);
+        try (PDDocument document = PDDocument.load(source.toFile(), MemoryUsageSetting.setupTempFileOnly())) {
+            return task.apply(document);
+        } finally {
+            releaseSource(source);
+        }
+    }
+
+    /**
+     * Pinned local copy of the source PDF. No lock is held while copying from the share;
+     * concurrent callers for the same document wait for the one fetch in progress.
+     */
+    private Path acquireSource(Long documentId, String filePath) throws Exception {
+        Path source = sourceDirectory.resolve(documentId + "-" + fingerprint(filePath) + ".pdf");
+        while (true) {
+            synchronized (sourceLock) {
+                if (sourceIndex.get(source) != null && Files.exists(source)) {
+                    sourcePins.merge(source, 1, Integer::sum);
+                    return source;
+                }
+            }
+
+            CompletableFuture<Path> fetch = new CompletableFuture<>();
+            CompletableFuture<Path> running = sourceFetches.putIfAbsent(source, fetch);
+            if (running != null) {
+                try {
+                    running.get();
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    throw cause instanceof Exception ? (Exception) cause : e;
+                }
+                continue;
+            }
+
+            try {
+                Path temp = Files.createTempFile(sourceDirectory, "source-", ".tmp");
+                try (InputStream in = networkFileService.openFileStream(filePath)) {
+                    Files.copy(in, temp, StandardCopyOption.REPLACE_EXISTING);
+                    Files.move(temp, source, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } catch (Exception e) {
+                    Files.deleteIfExists(temp);
+                    throw e;
+                }
+                long size = Files.size(source);
+                synchronized (sourceLock) {
+                    Long previous = sourceIndex.put(source, size);
+                    sourceBytes += size - (previous != null ? previous : 0);
+                    sourcePins.merge(source, 1, Integer::sum);
+                    evictSourcesOverBudget();
+                }
+                fetch.complete(source);
+                return source;
+            } catch (Exception e) {
+                fetch.completeExceptionally(e);
+                throw e;
+            } finally {
+                sourceFetches.remove(source, fetch);
+            }
+        }
+    }
+
+    private void releaseSource(Path source) {
+        synchronized (sourceLock) {
+            sourcePins.computeIfPresent(source, (path, pins) -> pins > 1 ? pins - 1 : null);
+            evictSourcesOverBudget();
+        }
+    }
+
+    /**
+     * Drop least recently used source copies that are not in use until the budget fits.
+     * Called with sourceLock held.
+     */
+    private void evictSourcesOverBudget() {
+        Iterator<Map.Entry<Path, Long>> it = sourceIndex.entrySet().iterator();
+        while (sourceBytes > maxSourceBytes && it.hasNext()) {
+            Map.Entry<Path, Long> eldest = it.next();
+            if (sourcePins.containsKey(eldest.getKey())) {
+                continue;
+            }
+            sourceBytes -= eldest.getValue();
+            it.remove();
+            deleteQuietly(eldest.getKey());
+        }
+    }
+
+    private void store(Path temp, Path target) throws IOException {
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        long size = Files.size(target);
+        synchronized (this) {
+            Long previous = index.put(target, size);
+            totalBytes += size - (previous != null ? previous : 0);
+            evictOverBudget(target);
+        }
+    }
+
+    /**
+     * Drop least recently used files until the cache fits its budget, never the file just stored.
+     */
+    private void evictOverBudget(Path keep) {
+        Iterator<Map.Entry<Path, Long>> it = index.entrySet().iterator();
+        while (totalBytes > maxBytes && it.hasNext()) {
+            Map.Entry<Path, Long> eldest = it.next();
+            if (eldest.getKey().equals(keep)) {
+                continue;
+            }
+            totalBytes -= eldest.getValue();
+            it.remove();
+            deleteQuietly(eldest.getKey());
+        }
+    }
+
+    private Path renditionPath(Long documentId, String filePath, int pageIndex, Size size) {
+        return directory.resolve(documentId + "-" + fingerprint(filePath)
+                + "-p" + (pageIndex + 1) + "-" + size.suffix + "." + FORMAT);
+    }
+
+    private long lastModifiedMillis(Path file) {
+        try {
+            return Files.readAttributes(file, BasicFileAttributes.class).lastModifiedTime().toMillis();
+        } catch (IOException e) {
+            return 0L;
+        }
+    }
+
+    private void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Could not delete rendition {}: {}", file, e.getMessage());
+        }
+    }
+
+    private static String sha256(String value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
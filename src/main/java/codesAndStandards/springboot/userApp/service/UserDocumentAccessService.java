@@ -0,0 +1,147 @@
+package codesAndStandards.springboot.userApp.service;
+
+import codesAndStandards.springboot.userApp.entity.Document;
+import codesAndStandards.springboot.userApp.event.GroupMembershipChangedEvent;
+import codesAndStandards.springboot.userApp.repository.AccessControlLogicRepository;
+import codesAndStandards.springboot.userApp.repository.DocumentRepository;
+import codesAndStandards.springboot.userApp.repository.UserDocumentAccessRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Keeps the UserDocumentAccess read model (who can reach which document through groups) in step
+ * with GroupUser and AccessControlLogic, and answers access questions from it with one indexed
+ * lookup instead of joining the group tables on every request.
+ *
+ * Membership changes are applied from GroupMembershipChangedEvent just before the changing
+ * transaction commits, so the table and the group tables commit (or roll back) together. A rebuild
+ * at startup and every night reconciles anything changed behind the application's back; until the
+ * first rebuild has finished, reads fall back to the join.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class UserDocumentAccessService {
+
+    // SQL Server accepts at most 2100 parameters per statement
+    private static final int MAX_IDS_PER_STATEMENT = 2000;
+
+    private final UserDocumentAccessRepository accessRepository;
+    private final AccessControlLogicRepository accessControlLogicRepository;
+    private final DocumentRepository documentRepository;
+    private final PlatformTransactionManager transactionManager;
+
+    private volatile boolean ready;
+
+    // ===== Reads =====
+
+    public List<Long> findAccessibleDocumentIds(Long userId) {
+        return ready
+                ? accessRepository.findDocumentIdsByUserId(userId)
+                : accessControlLogicRepository.findAccessibleDocumentIdsByUserId(userId);
+    }
+
+    public List<Document> findAccessibleDocuments(Long userId) {
+        return ready
+                ? documentRepository.findDocumentsInUserAccess(userId)
+                : documentRepository.findAllById(accessControlLogicRepository.findAccessibleDocumentIdsByUserId(userId));
+    }
+
+    public boolean hasAccess(Long userId, Long documentId) {
+        return ready
+                ? accessRepository.existsByUserIdAndDocumentId(userId, documentId)
+                : accessControlLogicRepository.hasUserAccessToDocument(userId, documentId);
+    }
+
+    /**
+     * Of the given document IDs, those the user can access
+     */
+    public Set<Long> findAccessibleAmong(Long userId, Collection<Long> documentIds) {
+        List<Long> ids = new ArrayList<>(new LinkedHashSet<>(documentIds));
+        Set<Long> accessible = new HashSet<>();
+        for (int from = 0; from < ids.size(); from += MAX_IDS_PER_STATEMENT) {
+            List<Long> chunk = ids.subList(from, Math.min(ids.size(), from + MAX_IDS_PER_STATEMENT));
+            accessible.addAll(ready
+                    ? accessRepository.findDocumentIdsByUserIdAmong(userId, chunk)
+                    : accessControlLogicRepository.findAccessibleDocumentIdsAmong(userId, chunk));
+        }
+        return accessible;
+    }
+
+    // ===== Maintenance =====
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void onMembershipChanged(GroupMembershipChangedEvent event) {
+        Long groupId = event.getGroupId();
+        int granted = 0;
+        int revoked = 0;
+
+        // Removals first: a user both removed and re-added in one transaction ends up granted
+        if (!event.getRemovedUserIds().isEmpty()) {
+            revoked += forEachChunk(event.getRemovedUserIds(), accessRepository::revokeUngrantedForUsers);
+        }
+        if (!event.getRemovedDocumentIds().isEmpty()) {
+            revoked += forEachChunk(event.getRemovedDocumentIds(), accessRepository::revokeUngrantedForDocuments);
+        }
+        if (!event.getAddedUserIds().isEmpty()) {
+            granted += forEachChunk(event.getAddedUserIds(), chunk -> accessRepository.grantGroupToUsers(groupId, chunk));
+        }
+        if (!event.getAddedDocumentIds().isEmpty()) {
+            granted += forEachChunk(event.getAddedDocumentIds(),
+                    chunk -> accessRepository.grantDocumentsToGroupMembers(groupId, chunk));
+        }
+        log.debug("Access rows for group {}: {} granted, {} revoked", groupId, granted, revoked);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        rebuild();
+    }
+
+    /**
+     * Reconcile the whole table with the group tables
+     */
+    @Scheduled(cron = "${user-document-access.rebuild-cron:0 30 3 * * *}")
+    public void rebuild() {
+        long started = System.currentTimeMillis();
+        try {
+            new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                int removed = accessRepository.deleteAllUngranted();
+                int added = accessRepository.insertAllMissing();
+                if (removed > 0 || added > 0) {
+                    log.info("Access table reconciled: {} rows added, {} removed", added, removed);
+                }
+            });
+            ready = true;
+            log.info("Access table rebuilt in {} ms", System.currentTimeMillis() - started);
+        } catch (Exception e) {
+            log.error("Failed to rebuild access table: {}", e.getMessage(), e);
+        }
+    }
+
+    private static int forEachChunk(Set<Long> ids, Function<List<Long>, Integer> statement) {
+        List<Long> list = new ArrayList<>(ids);
+        int rows = 0;
+        for (int from = 0; from < list.size(); from += MAX_IDS_PER_STATEMENT) {
+            Integer result = statement.apply(list.subList(from, Math.min(list.size(), from + MAX_IDS_PER_STATEMENT)));
+            rows += result != null ? result : 0;
+        }
+        return rows;
+    }
+}
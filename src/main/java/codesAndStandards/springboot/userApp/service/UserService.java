@@ -2,9 +2,11 @@ package codesAndStandards.springboot.userApp.service;
 
 import codesAndStandards.springboot.userApp.dto.GroupListDTO;
 import codesAndStandards.springboot.userApp.dto.UserDto;
+import codesAndStandards.springboot.userApp.dto.UserListPage;
 import codesAndStandards.springboot.userApp.entity.User;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 public interface UserService {
@@ -13,6 +15,15 @@ public interface UserService {
 
     List<UserDto> findAllUsers();
 
+    /**
+     * One page of users matching a prefix (or, with contains=true, substring) search on
+     * username, names and email, optionally limited to one role
+     */
+    UserListPage getUsersPage(String search, boolean contains, String roleName,
+                              int page, int size, String sort, String direction);
+
+    Map<String, Long> countUsersByRole();
+
     User findUserByUsername(String username);
 
     UserDto findUserById(Long userId);
@@ -1,35 +1,86 @@
 package codesAndStandards.springboot.userApp.service;
 
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.io.MemoryUsageSetting;
 import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDFormContentStream;
 import org.apache.pdfbox.pdmodel.PDPage;
 import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
 import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.graphics.form.PDFormXObject;
 import org.apache.pdfbox.pdmodel.graphics.state.PDExtendedGraphicsState;
 import org.apache.pdfbox.util.Matrix;
 import org.apache.pdfbox.pdmodel.encryption.InvalidPasswordException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.util.StreamUtils;
 
 import java.awt.*;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Service
 public class WatermarkService {
 
     private static final Logger logger = LoggerFactory.getLogger(WatermarkService.class);
 
+    private static final String CENTER_MARK_TEXT = "DOWNLOAD COPY";
+    private static final float MAIN_FONT_SIZE = 36;
+    private static final float FOOTER_FONT_SIZE = 10;
+    private static final float CENTER_FONT_SIZE = 80;
+    private static final float OVERLAY_ALPHA = 0.3f;
+    private static final float CENTER_MARK_ALPHA = 0.08f;
+
+    // Text widths of the standard-14 fonts never change, so they are computed once per text/size
+    private static final int MAX_CACHED_WIDTHS = 10_000;
+    private final Map<String, Float> textWidthCache = new ConcurrentHashMap<>();
+
+    // Heap allowed per document while parsing; anything larger spills to a scratch file
+    @Value("${watermark.max-main-memory-bytes:8388608}")
+    private long maxMainMemoryBytes;
+
+    // "full" (default) rewrites the whole file. "incremental" is faster and appends the overlay
+    // as a PDF incremental update after the original bytes - but the original is then a byte
+    // prefix of the output, and truncating at its %%EOF strips the mark. Opt-in only.
+    // Encrypted PDFs always use full (security is removed).
+    @Value("${watermark.mode:full}")
+    private String mode = MODE_FULL;
+
+    public static final String MODE_INCREMENTAL = "incremental";
+    public static final String MODE_FULL = "full";
+
+    /**
+     * ADD WATERMARK TO PDF (in-memory convenience wrapper around writeWatermarkedPdf)
+     */
+    public byte[] addWatermarkToPdf(byte[] pdfData, String username) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        writeWatermarkedPdf(new ByteArrayInputStream(pdfData), username, outputStream);
+        return outputStream.toByteArray();
+    }
+
     /**
      * ADD WATERMARK TO PDF
+     * Reads the PDF from a stream and writes the watermarked copy straight to the output.
+     * Parsing is buffered in a bounded amount of heap plus a temp scratch file, so a large
+     * standard never has to be held in memory as a whole. The output stream is not closed.
      * Works for:
      *    - Normal PDFs
      *    - Encrypted PDFs (but throws meaningful error)
      */
-    public byte[] addWatermarkToPdf(byte[] pdfData, String username) throws IOException {
+    public void writeWatermarkedPdf(InputStream pdfInput, String username, OutputStream output) throws IOException {
         logger.info("Adding watermark to PDF for user: {}", username);
 
         PDDocument document = null;
@@ -37,15 +88,19 @@ public class WatermarkService {
         try {
             // =============== STEP 1: TRY LOAD PDF ===============
             try {
-                document = PDDocument.load(pdfData);
+                document = PDDocument.load(pdfInput, scratchMemorySetting());
             } catch (InvalidPasswordException e) {
                 logger.error("PDF is password protected. Cannot watermark without password.");
                 throw new IOException("Cannot decrypt PDF, the password is incorrect");
             }
 
-            // =============== STEP 2: REMOVE ALL SECURITY ===============
+            // =============== STEP 2: REMOVE ALL SECURITY (full rewrite only) ===============
             // (This is WHY watermarking works after decryption)
-            document.setAllSecurityToBeRemoved(true);
+            // An incremental update cannot drop encryption, so encrypted files are rewritten
+            boolean incremental = MODE_INCREMENTAL.equalsIgnoreCase(mode) && !document.isEncrypted();
+            if (!incremental) {
+                document.setAllSecurityToBeRemoved(true);
+            }
 
             // =============== STEP 3: PREPARE WATERMARK TEXT ===============
             String timestamp = LocalDateTime.now()
@@ -54,19 +109,20 @@ public class WatermarkService {
             String mainWatermark = "CONFIDENTIAL - " + username;
             String footerWatermark = "Downloaded by: " + username + " on " + timestamp;
 
-            logger.info("Processing {} pages", document.getNumberOfPages());
+            logger.info("Processing {} pages ({} mode)", document.getNumberOfPages(),
+                    incremental ? MODE_INCREMENTAL : MODE_FULL);
 
-            int pageNumber = 1;
-            for (PDPage page : document.getPages()) {
-                logger.debug("Adding watermark to page {}", pageNumber);
-                addWatermarksToPage(document, page, mainWatermark, footerWatermark);
-                pageNumber++;
-            }
+            // =============== STEP 4: STAMP EVERY PAGE ===============
+            new Overlay(document, mainWatermark, footerWatermark, incremental).applyToAllPages();
 
-            // =============== STEP 4: SAVE PDF ===============
-            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-            document.save(outputStream);
-            return outputStream.toByteArray();
+            // =============== STEP 5: SAVE PDF ===============
+            // PDFBox closes the stream it writes to; the caller owns the output
+            if (incremental) {
+                // Original bytes unchanged, followed by the new/updated objects and an xref section
+                document.saveIncremental(StreamUtils.nonClosing(output));
+            } else {
+                document.save(StreamUtils.nonClosing(output));
+            }
 
         } finally {
             if (document != null) {
@@ -75,93 +131,168 @@ public class WatermarkService {
         }
     }
 
+    private MemoryUsageSetting scratchMemorySetting() {
+        return maxMainMemoryBytes > 0
+                ? MemoryUsageSetting.setupMixed(maxMainMemoryBytes)
+                : MemoryUsageSetting.setupTempFileOnly();
+    }
+
     /**
-     * APPLY ALL WATERMARKS TO A SINGLE PAGE
+     * The watermark for one document. All three layers are drawn once into a
+     * Form XObject per distinct page size; each page then only references it
+     * with a one-line "Do" operator, so a 500-page document carries one copy
+     * of the overlay instead of 500.
      */
-    private void addWatermarksToPage(PDDocument document, PDPage page,
-                                     String mainWatermark, String footerWatermark) throws IOException {
-
-        PDPageContentStream cs = new PDPageContentStream(
-                document, page,
-                PDPageContentStream.AppendMode.APPEND,
-                true,
-                true
-        );
-
-        try {
-            // Transparency (alpha)
-            PDExtendedGraphicsState alpha = new PDExtendedGraphicsState();
-            alpha.setNonStrokingAlphaConstant(0.3f);
-            cs.setGraphicsStateParameters(alpha);
-
-            float pageWidth = page.getMediaBox().getWidth();
-            float pageHeight = page.getMediaBox().getHeight();
-
-            // =============== MAIN DIAGONAL WATERMARK ===============
-            cs.setNonStrokingColor(Color.RED);
-            cs.setFont(PDType1Font.HELVETICA_BOLD, 36);
-
-            float textWidth = PDType1Font.HELVETICA_BOLD
-                    .getStringWidth(mainWatermark) / 1000 * 36;
+    private class Overlay {
+
+        private final PDDocument document;
+        private final String mainWatermark;
+        private final String footerWatermark;
+        private final boolean incremental;
+        private final Map<String, PDFormXObject> formsBySize = new HashMap<>();
+
+        // One pair of graphics states per document, shared by all forms
+        private final PDExtendedGraphicsState overlayAlpha = alphaState(OVERLAY_ALPHA);
+        private final PDExtendedGraphicsState centerMarkAlpha = alphaState(CENTER_MARK_ALPHA);
+
+        Overlay(PDDocument document, String mainWatermark, String footerWatermark, boolean incremental) {
+            this.document = document;
+            this.mainWatermark = mainWatermark;
+            this.footerWatermark = footerWatermark;
+            this.incremental = incremental;
+        }
 
-            float x = (pageWidth - textWidth) / 2;
-            float y = pageHeight / 2;
+        void applyToAllPages() throws IOException {
+            if (incremental) {
+                document.getDocumentCatalog().getCOSObject().setNeedToBeUpdated(true);
+            }
+            int pageNumber = 1;
+            for (PDPage page : document.getPages()) {
+                logger.debug("Adding watermark to page {}", pageNumber);
+                applyToPage(page);
+                pageNumber++;
+            }
+        }
 
-            cs.beginText();
-            Matrix matrix = new Matrix();
-            matrix.translate(x, y);
-            matrix.rotate(Math.toRadians(-45));
-            cs.setTextMatrix(matrix);
-            cs.showText(mainWatermark);
-            cs.endText();
+        /**
+         * APPLY ALL WATERMARKS TO A SINGLE PAGE
+         */
+        void applyToPage(PDPage page) throws IOException {
+            PDFormXObject form = formFor(page.getMediaBox());
+            try (PDPageContentStream cs = new PDPageContentStream(
+                    document, page,
+                    PDPageContentStream.AppendMode.APPEND,
+                    true,
+                    true)) {
+                cs.drawForm(form);
+            }
+            if (incremental) {
+                markForIncrementalUpdate(page);
+            }
+        }
 
-            // =============== FOOTER INFO WATERMARK ===============
-            addFooter(cs, footerWatermark);
+        /**
+         * saveIncremental only writes objects flagged as updated, reachable from the catalog:
+         * the page, its parents in the page tree, and the resource dictionaries the form was
+         * added to (which may be inherited from a parent node).
+         */
+        private void markForIncrementalUpdate(PDPage page) {
+            COSDictionary node = page.getCOSObject();
+            while (node != null) {
+                node.setNeedToBeUpdated(true);
+                node = node.getCOSDictionary(COSName.PARENT);
+            }
+            PDResources resources = page.getResources();
+            if (resources != null) {
+                COSDictionary resourcesDict = resources.getCOSObject();
+                resourcesDict.setNeedToBeUpdated(true);
+                COSDictionary xObjects = resourcesDict.getCOSDictionary(COSName.XOBJECT);
+                if (xObjects != null) {
+                    xObjects.setNeedToBeUpdated(true);
+                }
+            }
+        }
 
-            // =============== LARGE FAINT CENTER WATERMARK ===============
-            addCenterFaintMark(cs, pageWidth, pageHeight);
+        private PDFormXObject formFor(PDRectangle mediaBox) throws IOException {
+            String key = mediaBox.getLowerLeftX() + "," + mediaBox.getLowerLeftY() + ","
+                    + mediaBox.getWidth() + "x" + mediaBox.getHeight();
+            PDFormXObject form = formsBySize.get(key);
+            if (form == null) {
+                form = buildForm(mediaBox);
+                formsBySize.put(key, form);
+            }
+            return form;
+        }
 
-        } finally {
-            cs.close();
+        private PDFormXObject buildForm(PDRectangle mediaBox) throws IOException {
+            PDFormXObject form = new PDFormXObject(document);
+            form.setResources(new PDResources());
+            form.setBBox(mediaBox);
+
+            float pageWidth = mediaBox.getWidth();
+            float pageHeight = mediaBox.getHeight();
+
+            try (PDFormContentStream cs = new PDFormContentStream(form)) {
+                // Transparency (alpha)
+                cs.setGraphicsStateParameters(overlayAlpha);
+
+                // =============== MAIN DIAGONAL WATERMARK ===============
+                cs.setNonStrokingColor(Color.RED);
+                cs.setFont(PDType1Font.HELVETICA_BOLD, MAIN_FONT_SIZE);
+
+                float textWidth = textWidth(PDType1Font.HELVETICA_BOLD, mainWatermark, MAIN_FONT_SIZE);
+
+                cs.beginText();
+                Matrix matrix = new Matrix();
+                matrix.translate((pageWidth - textWidth) / 2, pageHeight / 2);
+                matrix.rotate(Math.toRadians(-45));
+                cs.setTextMatrix(matrix);
+                cs.showText(mainWatermark);
+                cs.endText();
+
+                // =============== FOOTER INFO WATERMARK ===============
+                cs.setFont(PDType1Font.HELVETICA, FOOTER_FONT_SIZE);
+                cs.setNonStrokingColor(Color.DARK_GRAY);
+
+                cs.beginText();
+                cs.newLineAtOffset(50, 10);
+                cs.showText(footerWatermark);
+                cs.endText();
+
+                // =============== LARGE, VERY FAINT "DOWNLOAD COPY" ===============
+                cs.setGraphicsStateParameters(centerMarkAlpha);
+                cs.setFont(PDType1Font.HELVETICA_BOLD, CENTER_FONT_SIZE);
+                cs.setNonStrokingColor(Color.LIGHT_GRAY);
+
+                float centerWidth = textWidth(PDType1Font.HELVETICA_BOLD, CENTER_MARK_TEXT, CENTER_FONT_SIZE);
+
+                cs.beginText();
+                Matrix centerMatrix = new Matrix();
+                centerMatrix.translate((pageWidth - centerWidth) / 2, pageHeight / 2 - 150);
+                centerMatrix.rotate(Math.toRadians(-45));
+                cs.setTextMatrix(centerMatrix);
+                cs.showText(CENTER_MARK_TEXT);
+                cs.endText();
+            }
+            return form;
         }
     }
 
-    /**
-     * SMALL FOOTER TEXT
-     */
-    private void addFooter(PDPageContentStream cs, String footerText) throws IOException {
-        cs.setFont(PDType1Font.HELVETICA, 10);
-        cs.setNonStrokingColor(Color.DARK_GRAY);
-
-        cs.beginText();
-        cs.newLineAtOffset(50, 10);
-        cs.showText(footerText);
-        cs.endText();
+    private static PDExtendedGraphicsState alphaState(float alpha) {
+        PDExtendedGraphicsState state = new PDExtendedGraphicsState();
+        state.setNonStrokingAlphaConstant(alpha);
+        return state;
     }
 
-    /**
-     * LARGE, VERY FAINT "DOWNLOAD COPY"
-     */
-    private void addCenterFaintMark(PDPageContentStream cs,
-                                    float pageWidth, float pageHeight) throws IOException {
-
-        PDExtendedGraphicsState faintAlpha = new PDExtendedGraphicsState();
-        faintAlpha.setNonStrokingAlphaConstant(0.08f);
-        cs.setGraphicsStateParameters(faintAlpha);
-
-        cs.setFont(PDType1Font.HELVETICA_BOLD, 80);
-        cs.setNonStrokingColor(Color.LIGHT_GRAY);
-
-        String text = "DOWNLOAD COPY";
-        float textWidth = PDType1Font.HELVETICA_BOLD
-                .getStringWidth(text) / 1000 * 80;
-
-        cs.beginText();
-        Matrix centerMatrix = new Matrix();
-        centerMatrix.translate((pageWidth - textWidth) / 2, pageHeight / 2 - 150);
-        centerMatrix.rotate(Math.toRadians(-45));
-        cs.setTextMatrix(centerMatrix);
-        cs.showText(text);
-        cs.endText();
+    private float textWidth(PDType1Font font, String text, float fontSize) throws IOException {
+        String key = font.getName() + "|" + fontSize + "|" + text;
+        Float width = textWidthCache.get(key);
+        if (width == null) {
+            width = font.getStringWidth(text) / 1000 * fontSize;
+            if (textWidthCache.size() < MAX_CACHED_WIDTHS) {
+                textWidthCache.put(key, width);
+            }
+        }
+        return width;
     }
 }
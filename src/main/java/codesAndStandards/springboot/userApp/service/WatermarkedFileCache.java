@@ -0,0 +1,248 @@
+package codesAndStandards.springboot.userApp.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Local disk cache of watermarked downloads, keyed by (document, user, time bucket, source file).
+ *
+ * A repeat download inside the same bucket is served from the cached file instead of being
+ * watermarked again. The source file path is part of the key, so replacing a document's file
+ * never serves the old copy; update/delete also drop the document's entries explicitly.
+ * Entries expire after the TTL and are evicted least-recently-used once the byte budget is
+ * exceeded. Evicted files are deleted after a short grace period, since a file handed to the
+ * container for sendfile is only opened after the request thread has returned. Every put
+ * writes a new uniquely named file, so a file that is being served is never replaced in place.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class WatermarkedFileCache {
+
+    private static final long DELETE_GRACE_MS = 60_000;
+    private static final String FILE_PREFIX = "wm-";
+    private static final String FILE_SUFFIX = ".pdf";
+
+    @FunctionalInterface
+    public interface ContentWriter {
+        void writeTo(OutputStream out) throws Exception;
+    }
+
+    private static class Entry {
+        final Long documentId;
+        final Path file;
+        final long size;
+        final long createdAt;
+
+        Entry(Long documentId, Path file, long size, long createdAt) {
+            this.documentId = documentId;
+            this.file = file;
+            this.size = size;
+            this.createdAt = createdAt;
+        }
+    }
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${watermark.cache.dir:cache/watermarked}")
+    private String cacheDir;
+
+    // 0 disables the cache
+    @Value("${watermark.cache.max-bytes:1073741824}")
+    private long maxBytes;
+
+    @Value("${watermark.cache.ttl-minutes:10}")
+    private long ttlMinutes;
+
+    // Access-ordered: iteration starts at the least recently used entry. Guarded by "this".
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private final Map<Path, Long> pendingDeletes = new LinkedHashMap<>();
+    private long totalBytes;
+
+    private Path directory;
+    private Counter hits;
+    private Counter misses;
+
+    @PostConstruct
+    void init() throws IOException {
+        directory = Paths.get(cacheDir).toAbsolutePath();
+        Files.createDirectories(directory);
+
+        // The index lives in memory, so cache files left over from a previous run are orphaned.
+        // Only our own files are removed; anything else in the directory is left alone.
+        try (DirectoryStream<Path> leftovers = Files.newDirectoryStream(directory,
+                p -> Files.isRegularFile(p) && p.getFileName().toString().startsWith(FILE_PREFIX))) {
+            for (Path file : leftovers) {
+                try {
+                    Files.deleteIfExists(file);
+                } catch (IOException e) {
+                    log.warn("Could not delete leftover cache file {}: {}", file, e.getMessage());
+                }
+            }
+        }
+
+        hits = meterRegistry.counter("watermark.cache.requests", "result", "hit");
+        misses = meterRegistry.counter("watermark.cache.requests", "result", "miss");
+        Gauge.builder("watermark.cache.bytes", this, WatermarkedFileCache::getTotalBytes).register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return maxBytes > 0 && ttlMinutes > 0;
+    }
+
+    /**
+     * Cached file for this download, or null on a miss.
+     */
+    public synchronized Path get(Long documentId, String username, String sourcePath) {
+        String key = keyFor(documentId, username, sourcePath);
+        Entry entry = entries.get(key);
+        if (entry == null || isExpired(entry, System.currentTimeMillis()) || !Files.exists(entry.file)) {
+            if (entry != null) {
+                drop(key);
+            }
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.file;
+    }
+
+    /**
+     * Write the content into the cache and return the file. The file is always returned,
+     * even if it alone exceeds the byte budget (it is then scheduled for deletion instead
+     * of being indexed).
+     */
+    public Path put(Long documentId, String username, String sourcePath, ContentWriter writer) throws Exception {
+        String key = keyFor(documentId, username, sourcePath);
+        // Unique per put: a concurrent miss for the same key never overwrites a file being served
+        Path target = Files.createTempFile(directory, FILE_PREFIX, FILE_SUFFIX);
+        try {
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(target))) {
+                writer.writeTo(out);
+            }
+        } catch (Exception e) {
+            Files.deleteIfExists(target);
+            throw e;
+        }
+
+        long size = Files.size(target);
+        synchronized (this) {
+            // An older copy for the same key (if any) goes through the normal delete grace period
+            drop(key);
+            if (size > maxBytes) {
+                pendingDeletes.put(target, System.currentTimeMillis());
+            } else {
+                entries.put(key, new Entry(documentId, target, size, System.currentTimeMillis()));
+                totalBytes += size;
+                evictOverBudget();
+            }
+        }
+        return target;
+    }
+
+    /**
+     * Drop every cached copy of a document (file replaced, metadata changed or document deleted).
+     */
+    public synchronized void invalidateDocument(Long documentId) {
+        List<String> keys = new ArrayList<>();
+        for (Map.Entry<String, Entry> e : entries.entrySet()) {
+            if (e.getValue().documentId.equals(documentId)) {
+                keys.add(e.getKey());
+            }
+        }
+        keys.forEach(this::drop);
+        if (!keys.isEmpty()) {
+            log.debug("Invalidated {} cached watermarked copies of document {}", keys.size(), documentId);
+        }
+    }
+
+    /**
+     * Expire old entries and delete evicted files whose grace period has passed.
+     */
+    @Scheduled(fixedDelayString = "${watermark.cache.sweep-interval-ms:60000}")
+    public void sweep() {
+        long now = System.currentTimeMillis();
+        List<Path> deletable = new ArrayList<>();
+        synchronized (this) {
+            List<String> expired = new ArrayList<>();
+            for (Map.Entry<String, Entry> e : entries.entrySet()) {
+                if (isExpired(e.getValue(), now)) {
+                    expired.add(e.getKey());
+                }
+            }
+            expired.forEach(this::drop);
+
+            Iterator<Map.Entry<Path, Long>> it = pendingDeletes.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<Path, Long> pending = it.next();
+                if (now - pending.getValue() >= DELETE_GRACE_MS) {
+                    deletable.add(pending.getKey());
+                    it.remove();
+                }
+            }
+        }
+
+        for (Path file : deletable) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                // e.g. Windows refuses to delete a file that is still open for sendfile: retry later
+                log.debug("Could not delete cached file {} yet: {}", file, e.getMessage());
+                synchronized (this) {
+                    pendingDeletes.putIfAbsent(file, now);
+                }
+            }
+        }
+    }
+
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    private void evictOverBudget() {
+        Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && it.hasNext()) {
+            Entry eldest = it.next().getValue();
+            it.remove();
+            totalBytes -= eldest.size;
+            pendingDeletes.put(eldest.file, System.currentTimeMillis());
+        }
+    }
+
+    private void drop(String key) {
+        Entry entry = entries.remove(key);
+        if (entry != null) {
+            totalBytes -= entry.size;
+            pendingDeletes.put(entry.file, System.currentTimeMillis());
+        }
+    }
+
+    private boolean isExpired(Entry entry, long now) {
+        return now - entry.createdAt >= ttlMinutes * 60_000;
+    }
+
+    private String keyFor(Long documentId, String username, String sourcePath) {
+        long bucket = System.currentTimeMillis() / (Math.max(1, ttlMinutes) * 60_000);
+        return documentId + "|" + username + "|" + bucket + "|" + sourcePath;
+    }
+}
@@ -0,0 +1,76 @@
+package codesAndStandards.springboot.userApp.security;
+
+import codesAndStandards.springboot.userApp.event.UserAccountChangedEvent;
+import codesAndStandards.springboot.userApp.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CustomUserDetailsServiceTest {
+
+    /** The stored account; lookups ignore case like SQL Server's default collation */
+    private final List<Object[]> account = new ArrayList<>();
+
+    private UserRepository userRepository;
+    private CustomUserDetailsService service;
+
+    @BeforeEach
+    void setUp() {
+        userRepository = mock(UserRepository.class);
+        when(userRepository.findCredentialsByUsername(anyString())).thenAnswer(inv -> {
+            String username = inv.getArgument(0);
+            return account.stream().filter(row -> ((String) row[0]).equalsIgnoreCase(username)).toList();
+        });
+        service = new CustomUserDetailsService(userRepository);
+        ReflectionTestUtils.setField(service, "ttlSeconds", 600L);
+        ReflectionTestUtils.setField(service, "maxEntries", 5000);
+
+        account.add(new Object[]{"alice", "{old}hash", "Manager"});
+    }
+
+    @Test
+    void mixedCaseLoginsShareOneCacheEntry() {
+        assertThat(service.loadUserByUsername("ALICE").getUsername()).isEqualTo("alice");
+        service.loadUserByUsername("alice");
+        service.loadUserByUsername("Alice");
+
+        verify(userRepository, times(1)).findCredentialsByUsername(anyString());
+    }
+
+    @Test
+    void evictionCoversEntriesLoadedWithAnyCase() {
+        service.loadUserByUsername("ALICE");
+
+        account.clear();
+        account.add(new Object[]{"alice", "{new}hash", "Viewer"});
+        service.onUserAccountChanged(new UserAccountChangedEvent("alice"));
+
+        UserDetails reloaded = service.loadUserByUsername("ALICE");
+        assertThat(reloaded.getPassword()).isEqualTo("{new}hash");
+        assertThat(reloaded.getAuthorities()).extracting(GrantedAuthority::getAuthority).containsExactly("Viewer");
+    }
+
+    @Test
+    void deletedAccountCannotLogInWithADifferentCase() {
+        service.loadUserByUsername("aLiCe");
+
+        account.clear();
+        service.onUserAccountChanged(new UserAccountChangedEvent("alice"));
+
+        assertThatThrownBy(() -> service.loadUserByUsername("aLiCe")).isInstanceOf(UsernameNotFoundException.class);
+    }
+}
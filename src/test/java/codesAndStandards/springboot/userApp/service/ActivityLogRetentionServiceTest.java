@@ -0,0 +1,206 @@
+package codesAndStandards.springboot.userApp.service;
+
+import codesAndStandards.springboot.userApp.entity.ActivityLog;
+import codesAndStandards.springboot.userApp.repository.ActivityLogRepository;
+import codesAndStandards.springboot.userApp.repository.ActivityLogRollupRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ActivityLogRetentionServiceTest {
+
+    @TempDir
+    Path archiveDir;
+
+    /** In-memory stand-in for the ActivityLog table */
+    private final List<ActivityLog> table = new ArrayList<>();
+
+    private ActivityLogRepository repository;
+    private ActivityLogRollupService rollupService;
+    private ActivityLogRetentionService service;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(ActivityLogRepository.class);
+        rollupService = mock(ActivityLogRollupService.class);
+
+        when(repository.findExpiredChunk(any(LocalDateTime.class), any(Pageable.class))).thenAnswer(inv -> {
+            LocalDateTime cutoff = inv.getArgument(0);
+            Pageable page = inv.getArgument(1);
+            return table.stream()
+                    .filter(l -> l.getTimestamp().isBefore(cutoff))
+                    .sorted(Comparator.comparing(ActivityLog::getLogId))
+                    .limit(page.getPageSize())
+                    .collect(Collectors.toList());
+        });
+        when(repository.countByLogIdIn(anyCollection())).thenAnswer(inv -> {
+            Collection<Long> ids = inv.getArgument(0);
+            return table.stream().filter(l -> ids.contains(l.getLogId())).count();
+        });
+        when(rollupService.deleteLogs(anyCollection())).thenAnswer(inv -> deleteFromTable(inv.getArgument(0)));
+
+        service = new ActivityLogRetentionService(repository, rollupService, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(service, "retentionDays", 90);
+        ReflectionTestUtils.setField(service, "chunkSize", 2);
+        ReflectionTestUtils.setField(service, "pauseMs", 0L);
+        ReflectionTestUtils.setField(service, "archiveDir", archiveDir.toString());
+        service.registerMetrics();
+    }
+
+    @Test
+    void archivesAndDeletesOnlyExpiredRows() throws IOException {
+        LocalDateTime old = LocalDateTime.now().minusDays(200);
+        addRow(1, old);
+        addRow(2, old.plusHours(1));
+        addRow(3, old.plusHours(2));
+        addRow(4, LocalDateTime.now());
+
+        assertThat(service.purgeExpiredLogs()).isEqualTo(3);
+
+        assertThat(table).extracting(ActivityLog::getLogId).containsExactly(4L);
+        assertThat(archivedIds()).containsExactly(1L, 2L, 3L);
+        assertThat(archiveDir.resolve(".purge-checkpoint")).doesNotExist();
+    }
+
+    @Test
+    void rowInsideAChunkRangeThatExpiresLaterIsStillArchived() throws IOException {
+        LocalDateTime old = LocalDateTime.now().minusDays(200);
+        addRow(1, old);
+        // Out-of-order timestamp: id 2 is newer than the retention window, id 3 is not
+        ActivityLog late = addRow(2, LocalDateTime.now().minusDays(10));
+        addRow(3, old);
+
+        assertThat(service.purgeExpiredLogs()).isEqualTo(2);
+        assertThat(table).extracting(ActivityLog::getLogId).containsExactly(2L);
+
+        late.setTimestamp(old);
+        assertThat(service.purgeExpiredLogs()).isEqualTo(1);
+
+        assertThat(table).isEmpty();
+        assertThat(archivedIds()).containsExactlyInAnyOrder(1L, 2L, 3L);
+    }
+
+    @Test
+    void interruptedDeleteIsArchivedOnlyOnceOnRetry() throws IOException {
+        LocalDateTime old = LocalDateTime.now().minusDays(200);
+        addRow(1, old);
+        addRow(2, old);
+        addRow(3, old);
+
+        // The first chunk is archived, then the delete transaction fails
+        when(rollupService.deleteLogs(anyCollection()))
+                .thenThrow(new IllegalStateException("connection lost"))
+                .thenAnswer(inv -> deleteFromTable(inv.getArgument(0)));
+
+        assertThat(service.purgeExpiredLogs()).isZero();
+        assertThat(table).hasSize(3);
+        assertThat(archiveDir.resolve(".purge-checkpoint")).exists();
+
+        assertThat(service.purgeExpiredLogs()).isEqualTo(3);
+
+        assertThat(table).isEmpty();
+        assertThat(archivedIds()).containsExactly(1L, 2L, 3L);
+        assertThat(archiveDir.resolve(".purge-checkpoint")).doesNotExist();
+    }
+
+    @Test
+    void committedDeleteKeepsItsArchiveAfterInterruption() throws IOException {
+        LocalDateTime old = LocalDateTime.now().minusDays(200);
+        addRow(1, old);
+        addRow(2, old);
+
+        // The delete commits, but the run dies before the checkpoint is cleared
+        when(rollupService.deleteLogs(anyCollection())).thenAnswer(inv -> {
+            deleteFromTable(inv.getArgument(0));
+            throw new IllegalStateException("process killed");
+        });
+        service.purgeExpiredLogs();
+        assertThat(table).isEmpty();
+        assertThat(archiveDir.resolve(".purge-checkpoint")).exists();
+
+        assertThat(service.purgeExpiredLogs()).isZero();
+
+        assertThat(archivedIds()).containsExactly(1L, 2L);
+        assertThat(archiveDir.resolve(".purge-checkpoint")).doesNotExist();
+    }
+
+    @Test
+    void chunkStatementsStayUnderTheSqlServerParameterLimit() throws Exception {
+        // Hibernate expands a collection parameter at every occurrence, one bind per id each time
+        Method[] statements = {
+                ActivityLogRollupRepository.class.getMethod("subtractLogs", Collection.class),
+                ActivityLogRepository.class.getMethod("deleteLogsByIds", Collection.class)
+        };
+        for (Method statement : statements) {
+            String sql = statement.getAnnotation(Query.class).value();
+            int occurrences = sql.split(":logIds", -1).length - 1;
+            assertThat(occurrences * ActivityLogRetentionService.MAX_CHUNK_SIZE)
+                    .as(statement.getName() + " parameters for a full chunk")
+                    .isGreaterThan(0)
+                    .isLessThanOrEqualTo(2100);
+        }
+    }
+
+    // ================= HELPERS =================
+
+    private ActivityLog addRow(long id, LocalDateTime timestamp) {
+        ActivityLog log = new ActivityLog(null, "LOGIN", "row " + id);
+        log.setLogId(id);
+        log.setTimestamp(timestamp);
+        table.add(log);
+        return log;
+    }
+
+    private int deleteFromTable(Collection<Long> ids) {
+        int before = table.size();
+        table.removeIf(l -> ids.contains(l.getLogId()));
+        return before - table.size();
+    }
+
+    /** Log ids in every archive file, in the order they were written */
+    private List<Long> archivedIds() throws IOException {
+        List<Long> ids = new ArrayList<>();
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(archiveDir)) {
+            files = walk.filter(p -> p.toString().endsWith(".csv.gz")).sorted().collect(Collectors.toList());
+        }
+        for (Path file : files) {
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                    new GZIPInputStream(Files.newInputStream(file)), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (!line.startsWith("log_id")) {
+                        ids.add(Long.parseLong(line.substring(0, line.indexOf(','))));
+                    }
+                }
+            }
+        }
+        return ids;
+    }
+}
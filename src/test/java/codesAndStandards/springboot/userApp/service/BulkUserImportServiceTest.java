@@ -0,0 +1,241 @@
+package codesAndStandards.springboot.userApp.service;
+
+import codesAndStandards.springboot.userApp.dto.BulkUserImportReport;
+import codesAndStandards.springboot.userApp.entity.Role;
+import codesAndStandards.springboot.userApp.repository.GroupRepository;
+import codesAndStandards.springboot.userApp.repository.RoleRepository;
+import codesAndStandards.springboot.userApp.repository.UserRepository;
+import codesAndStandards.springboot.userApp.security.ThrottledPasswordEncoder;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BulkUserImportServiceTest {
+
+    private static final String HEADER = "First Name,Last Name,Username,Email,Password,Role,Groups";
+
+    private JdbcTemplate jdbcTemplate;
+    private final List<String> insertedUsernames = new ArrayList<>();
+    private BulkUserImportService service;
+
+    @BeforeEach
+    void setUp() {
+        UserRepository userRepository = mock(UserRepository.class);
+        RoleRepository roleRepository = mock(RoleRepository.class);
+        GroupRepository groupRepository = mock(GroupRepository.class);
+        ThrottledPasswordEncoder passwordEncoder = mock(ThrottledPasswordEncoder.class);
+        jdbcTemplate = mock(JdbcTemplate.class);
+
+        when(userRepository.findIdByUsername("admin")).thenReturn(Optional.of(1L));
+        when(userRepository.findAllUsernamesAndEmails())
+                .thenReturn(List.<Object[]>of(new Object[]{"admin", "admin@example.com"}));
+        when(userRepository.findIdsByUsernameIn(anyCollection())).thenAnswer(inv -> {
+            Collection<String> usernames = inv.getArgument(0);
+            List<Object[]> rows = new ArrayList<>();
+            for (String username : usernames) {
+                insertedUsernames.add(username);
+                rows.add(new Object[]{(long) (100 + insertedUsernames.size()), username});
+            }
+            return rows;
+        });
+        when(roleRepository.findAll()).thenReturn(List.of(new Role(2L, "User", List.of()), new Role(3L, "Viewer", List.of())));
+        when(groupRepository.findAllIdsAndNames()).thenReturn(List.<Object[]>of(new Object[]{10L, "Engineering"}));
+        when(passwordEncoder.encodeAsync(any()))
+                .thenAnswer(inv -> CompletableFuture.completedFuture("hash:" + inv.getArgument(0)));
+
+        service = new BulkUserImportService(userRepository, roleRepository, groupRepository, passwordEncoder,
+                jdbcTemplate, mock(PlatformTransactionManager.class), mock(ApplicationEventPublisher.class),
+                mock(ActivityLogService.class));
+        ReflectionTestUtils.setField(service, "batchSize", 500);
+        ReflectionTestUtils.setField(service, "maxRows", 10_000);
+        ReflectionTestUtils.setField(service, "hashWindow", 64);
+        ReflectionTestUtils.invokeMethod(service, "init");
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReflectionTestUtils.invokeMethod(service, "stop");
+    }
+
+    @Test
+    void parsesQuotedCsvFields() {
+        assertThat(BulkUserImportService.parseCsvLine("a,\"b,c\",\"say \"\"hi\"\"\",,"))
+                .containsExactly("a", "b,c", "say \"hi\"", "", "");
+    }
+
+    @Test
+    void reportsEachInvalidCsvRowAndCreatesTheRest() throws Exception {
+        BulkUserImportReport report = importCsv(
+                HEADER,
+                "Ann,Lee,ann,ann@example.com,secret,User,Engineering",
+                "Bob,Ray,,bob@example.com,secret,User,",
+                "Cy,Ng,cy,not-an-email,secret,User,",
+                "Dee,Po,ADMIN,dee@example.com,secret,User,",
+                "Eve,Li,eve,Admin@Example.com,secret,User,",
+                "Ann,Lee,Ann,ann2@example.com,secret,User,",
+                "Fay,Wu,fay,ann@example.com,secret,User,",
+                "Gus,Oh,gus,gus@example.com,secret,Owner,",
+                "Hal,Yu,hal,hal@example.com,secret,Viewer,Sales",
+                "",
+                "Ivy,Xu,ivy,ivy@example.com,secret,viewer,engineering");
+
+        assertThat(report.getStatus()).isEqualTo(BulkUserImportReport.COMPLETED);
+        assertThat(messagesByRow(report)).containsExactly(
+                Map.entry(2, "Created"),
+                Map.entry(3, "Missing username"),
+                Map.entry(4, "Invalid email: not-an-email"),
+                Map.entry(5, "Username already exists"),
+                Map.entry(6, "Email already exists"),
+                Map.entry(7, "Username repeats row 2"),
+                Map.entry(8, "Email repeats row 2"),
+                Map.entry(9, "Unknown role: Owner"),
+                Map.entry(10, "Unknown group: Sales"),
+                Map.entry(12, "Created"));
+        assertThat(insertedUsernames).containsExactly("ann", "ivy");
+    }
+
+    @Test
+    void rejectedRowDoesNotClaimItsUsernameOrEmail() throws Exception {
+        BulkUserImportReport report = importCsv(
+                HEADER,
+                "Ann,Lee,ann,ann@example.com,secret,Owner,",
+                "Ann,Lee,ann,ann@example.com,secret,User,");
+
+        assertThat(messagesByRow(report)).containsExactly(
+                Map.entry(2, "Unknown role: Owner"),
+                Map.entry(3, "Created"));
+        assertThat(insertedUsernames).containsExactly("ann");
+    }
+
+    @Test
+    void fileOverTheRowLimitIsRejectedBeforeAnyInsert() throws Exception {
+        ReflectionTestUtils.setField(service, "maxRows", 2);
+        ReflectionTestUtils.setField(service, "batchSize", 1);
+
+        BulkUserImportReport report = importCsv(
+                HEADER,
+                "Ann,Lee,ann,ann@example.com,secret,User,",
+                "Bob,Ray,bob,bob@example.com,secret,User,",
+                "Cy,Ng,cy,cy@example.com,secret,User,");
+
+        assertThat(report.getStatus()).isEqualTo(BulkUserImportReport.FAILED);
+        assertThat(report.getError()).isEqualTo("The file has more than 2 users");
+        assertThat(report.getRows()).isEmpty();
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyCollection(), anyInt(), any());
+    }
+
+    @Test
+    void missingRequiredColumnFailsTheJob() throws Exception {
+        BulkUserImportReport report = importCsv(
+                "First Name,Last Name,Username,Email,Password",
+                "Ann,Lee,ann,ann@example.com,secret");
+
+        assertThat(report.getStatus()).isEqualTo(BulkUserImportReport.FAILED);
+        assertThat(report.getError()).isEqualTo("Missing columns: role");
+    }
+
+    @Test
+    void validatesWorkbookRowsLikeCsvRows() throws Exception {
+        BulkUserImportReport report = importWorkbook(
+                List.of("Username", "Email", "First_Name", "Last Name", "Password", "Role"),
+                List.of("ann", "ann@example.com", "Ann", "Lee", "secret", "User"),
+                List.of("bob", "", "Bob", "Ray", "secret", "User"),
+                List.of("ann", "ann3@example.com", "Ann", "Lee", "secret", "User"));
+
+        assertThat(report.getStatus()).isEqualTo(BulkUserImportReport.COMPLETED);
+        assertThat(messagesByRow(report)).containsExactly(
+                Map.entry(2, "Created"),
+                Map.entry(3, "Missing email"),
+                Map.entry(4, "Username repeats row 2"));
+        assertThat(insertedUsernames).containsExactly("ann");
+    }
+
+    @Test
+    void workbookOverTheRowLimitIsRejectedBeforeAnyInsert() throws Exception {
+        ReflectionTestUtils.setField(service, "maxRows", 1);
+        ReflectionTestUtils.setField(service, "batchSize", 1);
+
+        BulkUserImportReport report = importWorkbook(
+                List.of("First Name", "Last Name", "Username", "Email", "Password", "Role"),
+                List.of("Ann", "Lee", "ann", "ann@example.com", "secret", "User"),
+                List.of("Bob", "Ray", "bob", "bob@example.com", "secret", "User"));
+
+        assertThat(report.getStatus()).isEqualTo(BulkUserImportReport.FAILED);
+        assertThat(report.getError()).isEqualTo("The file has more than 1 users");
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyCollection(), anyInt(), any());
+    }
+
+    // ================= HELPERS =================
+
+    private BulkUserImportReport importCsv(String... lines) throws Exception {
+        byte[] content = String.join("\n", lines).getBytes(StandardCharsets.UTF_8);
+        return awaitReport(service.startImport(new MockMultipartFile("file", "users.csv", "text/csv", content), "admin"));
+    }
+
+    @SafeVarargs
+    private BulkUserImportReport importWorkbook(List<String>... rows) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (XSSFWorkbook workbook = new XSSFWorkbook()) {
+            Sheet sheet = workbook.createSheet("Users");
+            for (int r = 0; r < rows.length; r++) {
+                Row row = sheet.createRow(r);
+                for (int c = 0; c < rows[r].size(); c++) {
+                    if (!rows[r].get(c).isEmpty()) {
+                        row.createCell(c).setCellValue(rows[r].get(c));
+                    }
+                }
+            }
+            workbook.write(out);
+        }
+        return awaitReport(service.startImport(new MockMultipartFile("file", "users.xlsx",
+                "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet", out.toByteArray()), "admin"));
+    }
+
+    private BulkUserImportReport awaitReport(String jobId) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        BulkUserImportReport report = service.getReport(jobId);
+        while (report.getFinishedAt() == null && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+            report = service.getReport(jobId);
+        }
+        assertThat(report.getFinishedAt()).as("import finished").isNotNull();
+        return report;
+    }
+
+    private static Map<Integer, String> messagesByRow(BulkUserImportReport report) {
+        return report.getRows().stream().collect(Collectors.toMap(
+                BulkUserImportReport.RowResult::getRowNumber,
+                BulkUserImportReport.RowResult::getMessage,
+                (a, b) -> a + "; " + b,
+                LinkedHashMap::new));
+    }
+}
@@ -0,0 +1,100 @@
+package codesAndStandards.springboot.userApp.service;
+
+import codesAndStandards.springboot.userApp.event.GroupMembershipChangedEvent;
+import codesAndStandards.springboot.userApp.event.UserAccountChangedEvent;
+import codesAndStandards.springboot.userApp.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class DocumentAclCacheTest {
+
+    private UserDocumentAccessService accessService;
+    private DocumentAclCache cache;
+
+    @BeforeEach
+    void setUp() {
+        UserRepository userRepository = mock(UserRepository.class);
+        accessService = mock(UserDocumentAccessService.class);
+        when(userRepository.findIdByUsername("alice")).thenReturn(Optional.of(7L));
+        when(userRepository.findIdByUsername("ghost")).thenReturn(Optional.empty());
+        when(accessService.findAccessibleDocumentIds(7L)).thenReturn(List.of(300L, 100L));
+
+        cache = new DocumentAclCache(userRepository, accessService);
+        ReflectionTestUtils.setField(cache, "ttlSeconds", 300L);
+        ReflectionTestUtils.setField(cache, "maxUsers", 10_000);
+    }
+
+    @Test
+    void snapshotIsReusedUntilTheVersionChanges() {
+        assertThat(cache.hasAccess("alice", 100L)).isTrue();
+        assertThat(cache.hasAccess("alice", 300L)).isTrue();
+        assertThat(cache.hasAccess("alice", 200L)).isFalse();
+        verify(accessService, times(1)).findAccessibleDocumentIds(7L);
+
+        when(accessService.findAccessibleDocumentIds(7L)).thenReturn(List.of(200L));
+        cache.onMembershipChanged(membershipChange());
+
+        assertThat(cache.hasAccess("alice", 100L)).isFalse();
+        assertThat(cache.hasAccess("alice", 200L)).isTrue();
+        verify(accessService, times(2)).findAccessibleDocumentIds(7L);
+    }
+
+    @Test
+    void snapshotLoadedWhileAChangeCommitsIsDiscarded() {
+        // The change commits after the version was read but before the load returns
+        when(accessService.findAccessibleDocumentIds(7L)).thenAnswer(inv -> {
+            cache.onMembershipChanged(membershipChange());
+            return List.of(100L);
+        }).thenReturn(List.of(200L));
+
+        assertThat(cache.hasAccess("alice", 100L)).isTrue();
+        assertThat(cache.hasAccess("alice", 100L)).isFalse();
+        assertThat(cache.hasAccess("alice", 200L)).isTrue();
+        verify(accessService, times(2)).findAccessibleDocumentIds(7L);
+    }
+
+    @Test
+    void expiredSnapshotIsReloaded() {
+        ReflectionTestUtils.setField(cache, "ttlSeconds", 0L);
+
+        cache.hasAccess("alice", 100L);
+        cache.hasAccess("alice", 100L);
+
+        verify(accessService, times(2)).findAccessibleDocumentIds(7L);
+    }
+
+    @Test
+    void accountChangeDropsOnlyThatUsersSnapshot() {
+        cache.hasAccess("alice", 100L);
+
+        cache.onUserAccountChanged(new UserAccountChangedEvent("bob"));
+        cache.hasAccess("alice", 100L);
+        verify(accessService, times(1)).findAccessibleDocumentIds(7L);
+
+        cache.onUserAccountChanged(new UserAccountChangedEvent("alice"));
+        cache.hasAccess("alice", 100L);
+        verify(accessService, times(2)).findAccessibleDocumentIds(7L);
+    }
+
+    @Test
+    void unknownUserAndMissingArgumentsHaveNoAccess() {
+        assertThat(cache.hasAccess("ghost", 100L)).isFalse();
+        assertThat(cache.hasAccess(null, 100L)).isFalse();
+        assertThat(cache.hasAccess("alice", null)).isFalse();
+    }
+
+    private static GroupMembershipChangedEvent membershipChange() {
+        return GroupMembershipChangedEvent.users(1L, Set.of(7L), Set.of());
+    }
+}
@@ -0,0 +1,117 @@
+package codesAndStandards.springboot.userApp.service;
+
+import codesAndStandards.springboot.userApp.repository.DocumentUsageCounterRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class DocumentUsageServiceTest {
+
+    private DocumentUsageCounterRepository repository;
+    private DocumentUsageService service;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(DocumentUsageCounterRepository.class);
+        service = new DocumentUsageService(repository);
+    }
+
+    @Test
+    void flushWritesDeltasAndResetsTheCounters() {
+        service.recordView(1L);
+        service.recordView(1L);
+        service.recordDownload(1L);
+        service.recordView(2L);
+
+        service.flush();
+
+        verify(repository).addCounts(eq(1L), eq(2L), eq(1L), any(LocalDateTime.class));
+        verify(repository).addCounts(eq(2L), eq(1L), eq(0L), any(LocalDateTime.class));
+        assertThat(pending("pendingViews")).isZero();
+        assertThat(pending("pendingDownloads")).isZero();
+
+        service.flush();
+        verify(repository, times(2)).addCounts(anyLong(), anyLong(), anyLong(), any());
+    }
+
+    @Test
+    void emptyFlushDoesNotTouchTheDatabase() {
+        service.flush();
+        verify(repository, never()).addCounts(anyLong(), anyLong(), anyLong(), any());
+    }
+
+    @Test
+    void failedWriteIsRetriedOnNextFlush() {
+        service.recordView(7L);
+        service.recordDownload(7L);
+        doThrow(new IllegalStateException("db down"))
+                .doReturn(1)
+                .when(repository).addCounts(anyLong(), anyLong(), anyLong(), any());
+
+        service.flush();
+        assertThat(pending("pendingViews")).isEqualTo(1L);
+
+        service.recordView(7L);
+        service.flush();
+
+        verify(repository).addCounts(eq(7L), eq(2L), eq(1L), any(LocalDateTime.class));
+        assertThat(pending("pendingViews")).isZero();
+    }
+
+    @Test
+    void concurrentRecordsAreNeitherLostNorCountedTwice() throws Exception {
+        AtomicLong flushedViews = new AtomicLong();
+        doAnswer(inv -> {
+            flushedViews.addAndGet(inv.getArgument(1, Long.class));
+            return 1;
+        }).when(repository).addCounts(anyLong(), anyLong(), anyLong(), any());
+
+        int threads = 4;
+        int perThread = 20_000;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            pool.execute(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    service.recordView((long) (i % 3));
+                }
+                done.countDown();
+            });
+        }
+        while (!done.await(1, TimeUnit.MILLISECONDS)) {
+            service.flush();
+        }
+        service.flush();
+        pool.shutdown();
+
+        assertThat(flushedViews.get()).isEqualTo((long) threads * perThread);
+        assertThat(pending("pendingViews")).isZero();
+    }
+
+    /** Counts recorded but not yet flushed, over all documents */
+    @SuppressWarnings("unchecked")
+    private long pending(String field) {
+        Map<Long, LongAdder> counters = (Map<Long, LongAdder>) ReflectionTestUtils.getField(service, field);
+        return counters.values().stream().mapToLong(LongAdder::sum).sum();
+    }
+}
@@ -0,0 +1,146 @@
+package codesAndStandards.springboot.userApp.service;
+
+import codesAndStandards.springboot.userApp.event.GroupMembershipChangedEvent;
+import codesAndStandards.springboot.userApp.repository.AccessControlLogicRepository;
+import codesAndStandards.springboot.userApp.repository.DocumentRepository;
+import codesAndStandards.springboot.userApp.repository.GroupRepository;
+import codesAndStandards.springboot.userApp.repository.GroupUserRepository;
+import codesAndStandards.springboot.userApp.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class GroupServiceSyncTest {
+
+    private GroupUserRepository groupUserRepository;
+    private AccessControlLogicRepository accessControlLogicRepository;
+    private ApplicationEventPublisher eventPublisher;
+    private GroupService groupService;
+
+    @BeforeEach
+    void setUp() {
+        SecurityContextHolder.clearContext();
+        groupUserRepository = mock(GroupUserRepository.class);
+        accessControlLogicRepository = mock(AccessControlLogicRepository.class);
+        eventPublisher = mock(ApplicationEventPublisher.class);
+        groupService = new GroupService(mock(GroupRepository.class), groupUserRepository, accessControlLogicRepository,
+                mock(DocumentRepository.class), mock(UserRepository.class), eventPublisher,
+                mock(UserDocumentAccessService.class));
+    }
+
+    @Test
+    void syncGroupUsersWritesOnlyTheDelta() {
+        when(groupUserRepository.findUserIdsByGroupId(10L)).thenReturn(List.of(1L, 2L, 3L));
+
+        groupService.syncGroupUsers(10L, Arrays.asList(2L, 3L, 4L, null, 4L));
+
+        verify(groupUserRepository).deleteByGroupIdAndUserIdIn(10L, List.of(1L));
+        verify(groupUserRepository).insertUsersIntoGroup(eq(10L), eq(List.of(4L)), any());
+        GroupMembershipChangedEvent event = singleEvent();
+        assertThat(event.getGroupId()).isEqualTo(10L);
+        assertThat(event.getAddedUserIds()).containsExactly(4L);
+        assertThat(event.getRemovedUserIds()).containsExactly(1L);
+        assertThat(event.getAddedDocumentIds()).isEmpty();
+    }
+
+    @Test
+    void unchangedMembershipWritesNothing() {
+        when(accessControlLogicRepository.findDocumentIdsByGroupId(10L)).thenReturn(List.of(5L, 6L));
+
+        groupService.syncGroupDocuments(10L, List.of(6L, 5L));
+
+        verify(accessControlLogicRepository, never()).deleteByGroupIdAndDocumentIdIn(anyLong(), anyCollection());
+        verify(accessControlLogicRepository, never()).insertDocumentsIntoGroup(anyLong(), anyCollection(), any());
+        verify(eventPublisher, never()).publishEvent(any(Object.class));
+    }
+
+    @Test
+    void nullDesiredSetEmptiesTheGroup() {
+        when(accessControlLogicRepository.findDocumentIdsByGroupId(10L)).thenReturn(List.of(5L, 6L));
+
+        groupService.syncGroupDocuments(10L, null);
+
+        verify(accessControlLogicRepository).deleteByGroupIdAndDocumentIdIn(10L, List.of(5L, 6L));
+        verify(accessControlLogicRepository, never()).insertDocumentsIntoGroup(anyLong(), anyCollection(), any());
+        assertThat(singleEvent().getRemovedDocumentIds()).containsExactlyInAnyOrder(5L, 6L);
+    }
+
+    @Test
+    void syncUserGroupsKeepExistingOnlyAdds() {
+        when(groupUserRepository.findGroupIdsByUserId(7L)).thenReturn(List.of(1L, 2L));
+
+        groupService.syncUserGroups(7L, List.of(2L, 3L), true);
+
+        verify(groupUserRepository, never()).deleteByUserIdAndGroupIdIn(anyLong(), anyCollection());
+        verify(groupUserRepository).insertUserIntoGroups(eq(7L), eq(List.of(3L)), any());
+        GroupMembershipChangedEvent event = singleEvent();
+        assertThat(event.getGroupId()).isEqualTo(3L);
+        assertThat(event.getAddedUserIds()).containsExactly(7L);
+    }
+
+    @Test
+    void syncDocumentGroupsPublishesOneEventPerChangedGroup() {
+        when(accessControlLogicRepository.findGroupIdsByDocumentId(99L)).thenReturn(List.of(1L, 2L));
+
+        groupService.syncDocumentGroups(99L, List.of(2L, 3L));
+
+        verify(accessControlLogicRepository).deleteByDocumentIdAndGroupIdIn(99L, List.of(1L));
+        verify(accessControlLogicRepository).insertDocumentIntoGroups(eq(99L), eq(List.of(3L)), any());
+
+        ArgumentCaptor<Object> events = ArgumentCaptor.forClass(Object.class);
+        verify(eventPublisher, times(2)).publishEvent(events.capture());
+        List<GroupMembershipChangedEvent> published = events.getAllValues().stream()
+                .map(GroupMembershipChangedEvent.class::cast)
+                .collect(Collectors.toList());
+        assertThat(published).anySatisfy(e -> {
+            assertThat(e.getGroupId()).isEqualTo(3L);
+            assertThat(e.getAddedDocumentIds()).containsExactly(99L);
+        });
+        assertThat(published).anySatisfy(e -> {
+            assertThat(e.getGroupId()).isEqualTo(1L);
+            assertThat(e.getRemovedDocumentIds()).containsExactly(99L);
+        });
+    }
+
+    @Test
+    void largeDeltasAreSplitUnderTheParameterLimit() {
+        when(groupUserRepository.findUserIdsByGroupId(10L)).thenReturn(List.of());
+        List<Long> desired = LongStream.rangeClosed(1, 4500).boxed().collect(Collectors.toList());
+        List<Integer> chunkSizes = new ArrayList<>();
+        when(groupUserRepository.insertUsersIntoGroup(eq(10L), anyCollection(), any())).thenAnswer(inv -> {
+            chunkSizes.add(inv.getArgument(1, Collection.class).size());
+            return 0;
+        });
+
+        groupService.syncGroupUsers(10L, desired);
+
+        assertThat(chunkSizes).containsExactly(2000, 2000, 500);
+        assertThat(singleEvent().getAddedUserIds()).hasSize(4500);
+    }
+
+    private GroupMembershipChangedEvent singleEvent() {
+        ArgumentCaptor<Object> event = ArgumentCaptor.forClass(Object.class);
+        verify(eventPublisher).publishEvent(event.capture());
+        return (GroupMembershipChangedEvent) event.getValue();
+    }
+}
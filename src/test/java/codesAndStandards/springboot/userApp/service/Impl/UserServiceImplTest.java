@@ -0,0 +1,32 @@
+package codesAndStandards.springboot.userApp.service.Impl;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UserServiceImplTest {
+
+    @Test
+    void noSearchMeansNoPattern() {
+        assertThat(UserServiceImpl.likePattern(null, true)).isNull();
+        assertThat(UserServiceImpl.likePattern("   ", false)).isNull();
+    }
+
+    @Test
+    void prefixAndContainsPatterns() {
+        assertThat(UserServiceImpl.likePattern(" ann ", false)).isEqualTo("ann%");
+        assertThat(UserServiceImpl.likePattern("ann", true)).isEqualTo("%ann%");
+    }
+
+    @Test
+    void wildcardsAreMatchedLiterally() {
+        assertThat(UserServiceImpl.likePattern("50%_off", false)).isEqualTo("50!%!_off%");
+        assertThat(UserServiceImpl.likePattern("[admin]", true)).isEqualTo("%![admin]%");
+    }
+
+    @Test
+    void escapeCharacterIsEscapedFirst() {
+        // '!' doubled before the other escapes are added, so they are not doubled again
+        assertThat(UserServiceImpl.likePattern("hi!_", false)).isEqualTo("hi!!!_%");
+    }
+}
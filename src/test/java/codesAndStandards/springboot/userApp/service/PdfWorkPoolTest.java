@@ -0,0 +1,88 @@
+package codesAndStandards.springboot.userApp.service;
+
+import codesAndStandards.springboot.userApp.exception.TooManyRequestsException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PdfWorkPoolTest {
+
+    private final CountDownLatch workerBusy = new CountDownLatch(1);
+    private final CountDownLatch releaseWorker = new CountDownLatch(1);
+    private PdfWorkPool pool;
+
+    @BeforeEach
+    void setUp() {
+        pool = new PdfWorkPool(new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(pool, "threads", 1);
+        ReflectionTestUtils.setField(pool, "queueCapacity", 10);
+        ReflectionTestUtils.setField(pool, "maxPerUser", 2);
+        ReflectionTestUtils.setField(pool, "retryAfterSeconds", 5);
+        pool.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        releaseWorker.countDown();
+        pool.stop();
+    }
+
+    @Test
+    void userLimitIsEnforcedWhileTasksAreQueued() throws Exception {
+        occupyTheWorker();
+        pool.submit("alice", () -> 1);
+        pool.submit("alice", () -> 2);
+
+        assertThatThrownBy(() -> pool.submit("alice", () -> 3)).isInstanceOf(TooManyRequestsException.class);
+        pool.submit("bob", () -> 4);
+    }
+
+    @Test
+    void cancellingAQueuedTaskReleasesItsSlot() throws Exception {
+        occupyTheWorker();
+        AtomicBoolean ran = new AtomicBoolean();
+        Future<Boolean> first = pool.submit("alice", () -> ran.getAndSet(true));
+        Future<Boolean> second = pool.submit("alice", () -> ran.getAndSet(true));
+
+        assertThat(first.cancel(true)).isTrue();
+        assertThat(second.cancel(true)).isTrue();
+
+        Future<Integer> third = pool.submit("alice", () -> 3);
+        Future<Integer> fourth = pool.submit("alice", () -> 4);
+        releaseWorker.countDown();
+        assertThat(third.get(5, TimeUnit.SECONDS)).isEqualTo(3);
+        assertThat(fourth.get(5, TimeUnit.SECONDS)).isEqualTo(4);
+        assertThat(ran).isFalse();
+    }
+
+    @Test
+    void completedAndFailedTasksReleaseTheirSlots() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            assertThat(pool.call("alice", () -> "ok")).isEqualTo("ok");
+            assertThatThrownBy(() -> pool.call("alice", () -> {
+                throw new IllegalStateException("broken pdf");
+            })).isInstanceOf(IllegalStateException.class);
+        }
+        pool.submit("alice", () -> 1);
+        pool.submit("alice", () -> 2);
+    }
+
+    /** Park the single worker thread so later tasks stay in the queue */
+    private void occupyTheWorker() throws InterruptedException {
+        pool.submit("other", () -> {
+            workerBusy.countDown();
+            return releaseWorker.await(10, TimeUnit.SECONDS);
+        });
+        assertThat(workerBusy.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+}
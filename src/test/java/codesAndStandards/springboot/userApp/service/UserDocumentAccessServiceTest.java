@@ -0,0 +1,190 @@
+package codesAndStandards.springboot.userApp.service;
+
+import codesAndStandards.springboot.userApp.event.GroupMembershipChangedEvent;
+import codesAndStandards.springboot.userApp.repository.AccessControlLogicRepository;
+import codesAndStandards.springboot.userApp.repository.DocumentRepository;
+import codesAndStandards.springboot.userApp.repository.UserDocumentAccessRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Drives the delta maintenance against an in-memory model of the group tables. The fake
+ * repository follows the documented semantics of each statement: grants insert the missing
+ * (user, document) pairs the group now gives, revokes delete only pairs no group grants any more.
+ */
+class UserDocumentAccessServiceTest {
+
+    private static final long GROUP_A = 1L;
+    private static final long GROUP_B = 2L;
+
+    private final Map<Long, Set<Long>> groupUsers = new HashMap<>();
+    private final Map<Long, Set<Long>> groupDocuments = new HashMap<>();
+    private final Set<List<Long>> accessRows = new HashSet<>();
+
+    private UserDocumentAccessRepository accessRepository;
+    private AccessControlLogicRepository accessControlLogicRepository;
+    private UserDocumentAccessService service;
+
+    @BeforeEach
+    void setUp() {
+        accessRepository = mock(UserDocumentAccessRepository.class);
+        accessControlLogicRepository = mock(AccessControlLogicRepository.class);
+
+        when(accessRepository.grantGroupToUsers(anyLong(), anyCollection())).thenAnswer(inv -> {
+            long groupId = inv.getArgument(0);
+            Collection<Long> userIds = inv.getArgument(1);
+            int rows = 0;
+            for (Long userId : userIds) {
+                if (members(groupId).contains(userId)) {
+                    for (Long documentId : documents(groupId)) {
+                        rows += accessRows.add(List.of(userId, documentId)) ? 1 : 0;
+                    }
+                }
+            }
+            return rows;
+        });
+        when(accessRepository.grantDocumentsToGroupMembers(anyLong(), anyCollection())).thenAnswer(inv -> {
+            long groupId = inv.getArgument(0);
+            Collection<Long> documentIds = inv.getArgument(1);
+            int rows = 0;
+            for (Long documentId : documentIds) {
+                if (documents(groupId).contains(documentId)) {
+                    for (Long userId : members(groupId)) {
+                        rows += accessRows.add(List.of(userId, documentId)) ? 1 : 0;
+                    }
+                }
+            }
+            return rows;
+        });
+        when(accessRepository.revokeUngrantedForUsers(anyCollection())).thenAnswer(inv -> {
+            Collection<Long> userIds = inv.getArgument(0);
+            int before = accessRows.size();
+            accessRows.removeIf(row -> userIds.contains(row.get(0)) && !granted(row.get(0), row.get(1)));
+            return before - accessRows.size();
+        });
+        when(accessRepository.revokeUngrantedForDocuments(anyCollection())).thenAnswer(inv -> {
+            Collection<Long> documentIds = inv.getArgument(0);
+            int before = accessRows.size();
+            accessRows.removeIf(row -> documentIds.contains(row.get(1)) && !granted(row.get(0), row.get(1)));
+            return before - accessRows.size();
+        });
+        when(accessRepository.existsByUserIdAndDocumentId(anyLong(), anyLong()))
+                .thenAnswer(inv -> accessRows.contains(List.of(inv.getArgument(0, Long.class), inv.getArgument(1, Long.class))));
+
+        service = new UserDocumentAccessService(accessRepository, accessControlLogicRepository,
+                mock(DocumentRepository.class), mock(PlatformTransactionManager.class));
+        ReflectionTestUtils.setField(service, "ready", true);
+    }
+
+    @Test
+    void userKeepsDocumentWhileAnotherGroupStillGrantsIt() {
+        addDocument(GROUP_A, 100L);
+        addDocument(GROUP_B, 100L);
+        addUser(GROUP_A, 7L);
+        addUser(GROUP_B, 7L);
+        assertThat(service.hasAccess(7L, 100L)).isTrue();
+
+        removeUser(GROUP_A, 7L);
+        assertThat(service.hasAccess(7L, 100L)).isTrue();
+
+        removeUser(GROUP_B, 7L);
+        assertThat(service.hasAccess(7L, 100L)).isFalse();
+    }
+
+    @Test
+    void removingDocumentFromOneGroupOnlyRevokesUsersWithoutAnotherPath() {
+        addUser(GROUP_A, 7L);
+        addUser(GROUP_A, 8L);
+        addUser(GROUP_B, 8L);
+        addDocument(GROUP_A, 100L);
+        addDocument(GROUP_B, 100L);
+
+        removeDocument(GROUP_A, 100L);
+
+        assertThat(service.hasAccess(7L, 100L)).isFalse();
+        assertThat(service.hasAccess(8L, 100L)).isTrue();
+    }
+
+    @Test
+    void grantsOnlyTheDocumentsOfTheChangedGroup() {
+        addDocument(GROUP_A, 100L);
+        addDocument(GROUP_B, 200L);
+
+        addUser(GROUP_A, 7L);
+
+        assertThat(service.hasAccess(7L, 100L)).isTrue();
+        assertThat(service.hasAccess(7L, 200L)).isFalse();
+    }
+
+    @Test
+    void userRemovedAndReAddedInOneTransactionEndsUpGranted() {
+        addDocument(GROUP_A, 100L);
+        addUser(GROUP_A, 7L);
+
+        // Net effect of the transaction: 7 is a member again; the event carries both
+        service.onMembershipChanged(GroupMembershipChangedEvent.users(GROUP_A, Set.of(7L), Set.of(7L)));
+
+        assertThat(service.hasAccess(7L, 100L)).isTrue();
+    }
+
+    @Test
+    void readsFallBackToTheJoinUntilTheFirstRebuild() {
+        ReflectionTestUtils.setField(service, "ready", false);
+        when(accessControlLogicRepository.hasUserAccessToDocument(7L, 100L)).thenReturn(true);
+
+        assertThat(service.hasAccess(7L, 100L)).isTrue();
+        verify(accessRepository, never()).existsByUserIdAndDocumentId(anyLong(), anyLong());
+    }
+
+    // ================= HELPERS =================
+
+    private void addUser(long groupId, long userId) {
+        members(groupId).add(userId);
+        service.onMembershipChanged(GroupMembershipChangedEvent.users(groupId, Set.of(userId), Set.of()));
+    }
+
+    private void removeUser(long groupId, long userId) {
+        members(groupId).remove(userId);
+        service.onMembershipChanged(GroupMembershipChangedEvent.users(groupId, Set.of(), Set.of(userId)));
+    }
+
+    private void addDocument(long groupId, long documentId) {
+        documents(groupId).add(documentId);
+        service.onMembershipChanged(GroupMembershipChangedEvent.documents(groupId, Set.of(documentId), Set.of()));
+    }
+
+    private void removeDocument(long groupId, long documentId) {
+        documents(groupId).remove(documentId);
+        service.onMembershipChanged(GroupMembershipChangedEvent.documents(groupId, Set.of(), Set.of(documentId)));
+    }
+
+    private Set<Long> members(long groupId) {
+        return groupUsers.computeIfAbsent(groupId, id -> new HashSet<>());
+    }
+
+    private Set<Long> documents(long groupId) {
+        return groupDocuments.computeIfAbsent(groupId, id -> new HashSet<>());
+    }
+
+    private boolean granted(long userId, long documentId) {
+        return groupUsers.entrySet().stream().anyMatch(e -> e.getValue().contains(userId)
+                && documents(e.getKey()).contains(documentId));
+    }
+}
@@ -0,0 +1,126 @@
+package codesAndStandards.springboot.userApp.service;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.encryption.AccessPermission;
+import org.apache.pdfbox.pdmodel.encryption.StandardProtectionPolicy;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WatermarkServiceTest {
+
+    private final WatermarkService service = new WatermarkService();
+
+    @Test
+    void incrementalOutputKeepsOriginalBytesAndWatermarksEveryPage() throws IOException {
+        ReflectionTestUtils.setField(service, "mode", WatermarkService.MODE_INCREMENTAL);
+        byte[] original = pdf(3, false);
+
+        byte[] watermarked = service.addWatermarkToPdf(original, "alice");
+
+        assertThat(watermarked.length).isGreaterThan(original.length);
+        assertThat(Arrays.copyOf(watermarked, original.length)).isEqualTo(original);
+        try (PDDocument document = PDDocument.load(watermarked)) {
+            assertThat(document.getNumberOfPages()).isEqualTo(3);
+            for (int page = 1; page <= 3; page++) {
+                assertThat(pageText(document, page))
+                        .contains("Original page " + page)
+                        .contains("CONFIDENTIAL - alice");
+            }
+        }
+    }
+
+    /**
+     * Why incremental mode is opt-in: the original file is a prefix of the output,
+     * so cutting the output at the original %%EOF gives back the unwatermarked document.
+     */
+    @Test
+    void incrementalWatermarkIsRemovedByTruncatingAtOriginalEof() throws IOException {
+        ReflectionTestUtils.setField(service, "mode", WatermarkService.MODE_INCREMENTAL);
+        byte[] original = pdf(2, false);
+
+        byte[] watermarked = service.addWatermarkToPdf(original, "alice");
+        byte[] truncated = Arrays.copyOf(watermarked, original.length);
+
+        assertThat(new String(truncated, 0, truncated.length, "ISO-8859-1").trim()).endsWith("%%EOF");
+        try (PDDocument document = PDDocument.load(truncated)) {
+            assertThat(new PDFTextStripper().getText(document))
+                    .contains("Original page 1")
+                    .doesNotContain("CONFIDENTIAL");
+        }
+    }
+
+    @Test
+    void defaultModeRewritesTheWholeFile() throws IOException {
+        byte[] original = pdf(2, false);
+
+        byte[] watermarked = service.addWatermarkToPdf(original, "bob");
+
+        byte[] truncated = Arrays.copyOf(watermarked, Math.min(original.length, watermarked.length));
+        assertThat(truncated).isNotEqualTo(original);
+        try (PDDocument document = PDDocument.load(watermarked)) {
+            assertThat(document.getNumberOfPages()).isEqualTo(2);
+            for (int page = 1; page <= 2; page++) {
+                assertThat(pageText(document, page))
+                        .contains("Original page " + page)
+                        .contains("CONFIDENTIAL - bob");
+            }
+        }
+    }
+
+    @Test
+    void encryptedFileFallsBackToFullRewriteWithoutSecurity() throws IOException {
+        byte[] original = pdf(1, true);
+
+        byte[] watermarked = service.addWatermarkToPdf(original, "carol");
+
+        try (PDDocument document = PDDocument.load(watermarked)) {
+            assertThat(document.isEncrypted()).isFalse();
+            assertThat(new PDFTextStripper().getText(document)).contains("CONFIDENTIAL - carol");
+        }
+    }
+
+    // ================= HELPERS =================
+
+    private static byte[] pdf(int pages, boolean encrypted) throws IOException {
+        try (PDDocument document = new PDDocument()) {
+            for (int i = 1; i <= pages; i++) {
+                PDPage page = new PDPage(PDRectangle.A4);
+                document.addPage(page);
+                try (PDPageContentStream cs = new PDPageContentStream(document, page)) {
+                    cs.beginText();
+                    cs.setFont(PDType1Font.HELVETICA, 12);
+                    cs.newLineAtOffset(72, 700);
+                    cs.showText("Original page " + i);
+                    cs.endText();
+                }
+            }
+            if (encrypted) {
+                // Owner password only: opens without a password, but is still encrypted
+                StandardProtectionPolicy policy = new StandardProtectionPolicy("owner", "", new AccessPermission());
+                policy.setEncryptionKeyLength(128);
+                document.protect(policy);
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            document.save(out);
+            return out.toByteArray();
+        }
+    }
+
+    private static String pageText(PDDocument document, int page) throws IOException {
+        PDFTextStripper stripper = new PDFTextStripper();
+        stripper.setStartPage(page);
+        stripper.setEndPage(page);
+        return stripper.getText(document);
+    }
+}